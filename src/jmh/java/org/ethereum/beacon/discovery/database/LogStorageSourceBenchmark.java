@@ -0,0 +1,94 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.ethereum.beacon.discovery.database;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.apache.tuweni.bytes.Bytes;
+import org.apache.tuweni.bytes.Bytes32;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Random get and put of node record sized values by 32 bytes keys in {@link LogStorageSource}
+ * (`log`) and in {@link HashMapDataSource} backing {@link InMemoryDatabase} (`memory`). Puts
+ * overwrite existing keys, so log compactions are included.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LogStorageSourceBenchmark {
+  private static final int VALUE_SIZE = 300;
+
+  @Param({"log", "memory"})
+  private String store;
+
+  @Param({"100000"})
+  private int keys;
+
+  private final Random rnd = new Random(1);
+  private Path directory;
+  private DataSource<Bytes, Bytes> source;
+  private Bytes[] keyList;
+  private Bytes value;
+
+  @Setup
+  public void setup() throws IOException {
+    if (store.equals("log")) {
+      directory = Files.createTempDirectory("log-storage-benchmark");
+      final LogStorageSource logSource = new LogStorageSource(directory);
+      logSource.open();
+      source = logSource;
+    } else {
+      source = new HashMapDataSource<>();
+    }
+    final byte[] valueBytes = new byte[VALUE_SIZE];
+    rnd.nextBytes(valueBytes);
+    value = Bytes.wrap(valueBytes);
+    keyList = new Bytes[keys];
+    for (int i = 0; i < keys; i++) {
+      keyList[i] = Bytes32.random(rnd);
+      source.put(keyList[i], value);
+    }
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    if (source instanceof LogStorageSource) {
+      ((LogStorageSource) source).close();
+      try (Stream<Path> files = Files.walk(directory)) {
+        files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+      }
+    }
+  }
+
+  @Benchmark
+  public Object randomGet() {
+    return source.get(keyList[rnd.nextInt(keys)]);
+  }
+
+  @Benchmark
+  public void randomPut() {
+    source.put(keyList[rnd.nextInt(keys)], value);
+  }
+}
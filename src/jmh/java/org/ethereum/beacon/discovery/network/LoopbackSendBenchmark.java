@@ -0,0 +1,148 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.ethereum.beacon.discovery.network;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.DatagramChannel;
+import io.netty.channel.socket.DatagramPacket;
+import io.netty.channel.socket.nio.NioDatagramChannel;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.core.config.Configurator;
+import org.apache.tuweni.bytes.Bytes;
+import org.ethereum.beacon.discovery.network.OutgoingParcelQueue.OverflowPolicy;
+import org.ethereum.beacon.discovery.packet.MessagePacket;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import reactor.core.publisher.EmitterProcessor;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+
+/**
+ * Packets per second sent on loopback by the former client, which called <code>writeAndFlush
+ * </code> for every datagram from the producer thread, versus {@link NettyDiscoveryClientImpl},
+ * which drains its queue on the event loop and coalesces flushes. Every invocation sends a burst of
+ * packets, like several NODES responses to one FINDNODE, and waits until the event loop has written
+ * them.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(3)
+@State(Scope.Benchmark)
+public class LoopbackSendBenchmark {
+  private static final int BURST = 64;
+  private static final int PACKET_SIZE = 200;
+
+  @Param({"writeAndFlush", "drain"})
+  private String sendPath;
+
+  private EventLoopGroup senderGroup;
+  private EventLoopGroup receiverGroup;
+  private DatagramChannel sender;
+  private DatagramChannel receiver;
+  private FluxSink<NetworkParcel> outgoing;
+  private NetworkParcel parcel;
+
+  @Setup(Level.Trial)
+  public void setup() throws Exception {
+    // main log config traces every sent datagram, printing would outweigh the send path itself
+    Configurator.setAllLevels(LogManager.ROOT_LOGGER_NAME, org.apache.logging.log4j.Level.FATAL);
+    receiverGroup = new NioEventLoopGroup(1);
+    receiver =
+        (DatagramChannel)
+            new Bootstrap()
+                .group(receiverGroup)
+                .channel(NioDatagramChannel.class)
+                .option(ChannelOption.SO_RCVBUF, 4096 * 1024)
+                .handler(
+                    new SimpleChannelInboundHandler<DatagramPacket>() {
+                      @Override
+                      protected void channelRead0(ChannelHandlerContext ctx, DatagramPacket msg) {}
+                    })
+                .bind(new InetSocketAddress("127.0.0.1", 0))
+                .sync()
+                .channel();
+    senderGroup = new NioEventLoopGroup(1);
+    sender =
+        (DatagramChannel)
+            new Bootstrap()
+                .group(senderGroup)
+                .channel(NioDatagramChannel.class)
+                .option(ChannelOption.SO_SNDBUF, 4096 * 1024)
+                .handler(
+                    new SimpleChannelInboundHandler<DatagramPacket>() {
+                      @Override
+                      protected void channelRead0(ChannelHandlerContext ctx, DatagramPacket msg) {}
+                    })
+                .bind(new InetSocketAddress("127.0.0.1", 0))
+                .sync()
+                .channel();
+
+    EmitterProcessor<NetworkParcel> processor = EmitterProcessor.create(false);
+    outgoing = processor.sink();
+    if ("writeAndFlush".equals(sendPath)) {
+      Flux.from(processor)
+          .subscribe(
+              networkPacket ->
+                  sender.writeAndFlush(
+                      new DatagramPacket(
+                          Unpooled.copiedBuffer(networkPacket.getPacket().getBytes().toArray()),
+                          networkPacket.getDestination())));
+    } else {
+      new NettyDiscoveryClientImpl(
+          processor,
+          List.of(sender),
+          new OutgoingParcelQueue(
+              BURST * 4,
+              OverflowPolicy.BLOCK,
+              OutgoingParcelQueue.DEFAULT_SHEDDABLE_TYPES,
+              Duration.ofSeconds(1)),
+          FlushPolicy.DEFAULT);
+    }
+    parcel =
+        new NetworkParcelV5(new MessagePacket(Bytes.random(PACKET_SIZE)), receiver.localAddress());
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws Exception {
+    sender.close().sync();
+    receiver.close().sync();
+    senderGroup.shutdownGracefully().sync();
+    receiverGroup.shutdownGracefully().sync();
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(BURST)
+  public void sendBurst() throws Exception {
+    for (int i = 0; i < BURST; i++) {
+      outgoing.next(parcel);
+    }
+    // event loop runs tasks in order, so all writes and drains of the burst are done after this one
+    sender.eventLoop().submit(() -> {}).sync();
+  }
+}
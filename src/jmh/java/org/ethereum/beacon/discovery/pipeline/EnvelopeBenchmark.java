@@ -0,0 +1,111 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.ethereum.beacon.discovery.pipeline;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Compares {@link Envelope} with the former UUID-identified, synchronized map based implementation
+ * on an access pattern similar to one incoming packet passing all incoming handlers: every handler
+ * checks its required fields, few of them read and replace values.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EnvelopeBenchmark {
+  private static final int HANDLERS = 12;
+  private final Object value = new Object();
+
+  @Benchmark
+  public void slotEnvelope(Blackhole bh) {
+    Envelope envelope = new Envelope();
+    envelope.put(Field.INCOMING, value);
+    envelope.put(Field.REMOTE_SENDER, value);
+    for (int i = 0; i < HANDLERS; i++) {
+      bh.consume(envelope.contains(Field.PACKET_UNKNOWN));
+      bh.consume(envelope.contains(Field.SESSION));
+      bh.consume(envelope.get(Field.REMOTE_SENDER));
+    }
+    envelope.put(Field.PACKET_UNKNOWN, value);
+    envelope.remove(Field.INCOMING);
+    envelope.put(Field.SESSION, value);
+    bh.consume(envelope.getId());
+  }
+
+  @Benchmark
+  public void legacyEnvelope(Blackhole bh) {
+    LegacyEnvelope envelope = new LegacyEnvelope();
+    envelope.put(Field.INCOMING, value);
+    envelope.put(Field.REMOTE_SENDER, value);
+    for (int i = 0; i < HANDLERS; i++) {
+      bh.consume(envelope.contains(Field.PACKET_UNKNOWN));
+      bh.consume(envelope.contains(Field.SESSION));
+      bh.consume(envelope.get(Field.REMOTE_SENDER));
+    }
+    envelope.put(Field.PACKET_UNKNOWN, value);
+    envelope.remove(Field.INCOMING);
+    envelope.put(Field.SESSION, value);
+    bh.consume(envelope.getId());
+  }
+
+  @Benchmark
+  @Threads(4)
+  public void slotEnvelopeContended(Blackhole bh) {
+    slotEnvelope(bh);
+  }
+
+  @Benchmark
+  @Threads(4)
+  public void legacyEnvelopeContended(Blackhole bh) {
+    legacyEnvelope(bh);
+  }
+
+  /** Previous {@link Envelope} implementation kept as the baseline */
+  static class LegacyEnvelope {
+    private UUID id;
+    private Map<Field, Object> data = new HashMap<>();
+
+    LegacyEnvelope() {
+      this.id = UUID.randomUUID();
+    }
+
+    synchronized void put(Field key, Object value) {
+      data.put(key, value);
+    }
+
+    synchronized Object get(Field key) {
+      return data.get(key);
+    }
+
+    synchronized boolean remove(Field key) {
+      return data.remove(key) != null;
+    }
+
+    synchronized boolean contains(Field key) {
+      return data.containsKey(key);
+    }
+
+    UUID getId() {
+      return id;
+    }
+  }
+}
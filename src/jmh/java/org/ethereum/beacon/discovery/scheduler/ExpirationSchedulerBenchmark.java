@@ -0,0 +1,157 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.ethereum.beacon.discovery.scheduler;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@link ExpirationScheduler} with 100k live sessions: renewal of a random session timeout, as done
+ * on every packet, from one thread and from four at once, and expiration of all sessions at once.
+ * Compares the timing wheel with the former implementation rescheduling a {@link ScheduledFuture}
+ * on a single thread executor. Expirations per second are ops/s multiplied by {@link #SESSIONS}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(3)
+@State(Scope.Benchmark)
+public class ExpirationSchedulerBenchmark {
+  private static final int SESSIONS = 100_000;
+  private static final long SESSION_TIMEOUT_SECONDS = 180;
+  private static final Runnable NOOP = () -> {};
+
+  private final Random rnd = new Random(1);
+  private final AtomicLong clock = new AtomicLong();
+  private ScheduledExecutorService executor;
+  private ExpirationScheduler<Integer> wheel;
+  private LegacyExpirationScheduler<Integer> legacy;
+
+  @Setup
+  public void setup() {
+    executor = Executors.newSingleThreadScheduledExecutor();
+    wheel =
+        new ExpirationSchedulerFactory(executor).create(SESSION_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    legacy = new LegacyExpirationScheduler<>(SESSION_TIMEOUT_SECONDS, TimeUnit.SECONDS, executor);
+    for (int i = 0; i < SESSIONS; i++) {
+      wheel.put(i, NOOP);
+      legacy.put(i, NOOP);
+    }
+  }
+
+  @TearDown
+  public void tearDown() {
+    executor.shutdownNow();
+  }
+
+  @Benchmark
+  @OutputTimeUnit(TimeUnit.MICROSECONDS)
+  public void wheelTouch() {
+    wheel.put(rnd.nextInt(SESSIONS), NOOP);
+  }
+
+  @Benchmark
+  @OutputTimeUnit(TimeUnit.MICROSECONDS)
+  public void legacyTouch() {
+    legacy.put(rnd.nextInt(SESSIONS), NOOP);
+  }
+
+  /** Touches from several pipeline lanes at once */
+  @Benchmark
+  @Threads(4)
+  @OutputTimeUnit(TimeUnit.MICROSECONDS)
+  public void wheelTouchContended() {
+    wheel.put(ThreadLocalRandom.current().nextInt(SESSIONS), NOOP);
+  }
+
+  @Benchmark
+  @Threads(4)
+  @OutputTimeUnit(TimeUnit.MICROSECONDS)
+  public void legacyTouchContended() {
+    legacy.put(ThreadLocalRandom.current().nextInt(SESSIONS), NOOP);
+  }
+
+  @Benchmark
+  public long wheelExpireAll() {
+    final long tickNanos = TimeUnit.MILLISECONDS.toNanos(100);
+    final ExpirationScheduler<Integer> scheduler =
+        new ExpirationScheduler<>(SESSION_TIMEOUT_SECONDS, TimeUnit.SECONDS, tickNanos, clock::get);
+    final AtomicLong expired = new AtomicLong();
+    for (int i = 0; i < SESSIONS; i++) {
+      scheduler.put(i, expired::incrementAndGet);
+    }
+    clock.addAndGet(TimeUnit.SECONDS.toNanos(SESSION_TIMEOUT_SECONDS) + tickNanos);
+    scheduler.expire();
+    return expired.get();
+  }
+
+  @Benchmark
+  public long legacyExpireAll() throws InterruptedException {
+    final LegacyExpirationScheduler<Integer> scheduler =
+        new LegacyExpirationScheduler<>(1, TimeUnit.MILLISECONDS, executor);
+    final CountDownLatch expired = new CountDownLatch(SESSIONS);
+    for (int i = 0; i < SESSIONS; i++) {
+      scheduler.put(i, expired::countDown);
+    }
+    expired.await();
+    return expired.getCount();
+  }
+
+  /** Former implementation with a scheduled future per key */
+  private static class LegacyExpirationScheduler<Key> {
+    private final long delay;
+    private final TimeUnit timeUnit;
+    private final ScheduledExecutorService scheduler;
+    private final Map<Key, ScheduledFuture<?>> expirationTasks = new ConcurrentHashMap<>();
+
+    private LegacyExpirationScheduler(
+        long delay, TimeUnit timeUnit, ScheduledExecutorService scheduler) {
+      this.delay = delay;
+      this.timeUnit = timeUnit;
+      this.scheduler = scheduler;
+    }
+
+    private void put(Key key, Runnable runnable) {
+      cancel(key);
+      ScheduledFuture<?> future =
+          scheduler.schedule(
+              () -> {
+                runnable.run();
+                expirationTasks.remove(key);
+              },
+              delay,
+              timeUnit);
+      expirationTasks.put(key, future);
+    }
+
+    private void cancel(Key key) {
+      ScheduledFuture<?> future = expirationTasks.remove(key);
+      if (future != null) {
+        future.cancel(true);
+      }
+    }
+  }
+}
@@ -0,0 +1,109 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.ethereum.beacon.discovery.storage;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.apache.tuweni.bytes.Bytes;
+import org.ethereum.beacon.discovery.type.NodeId;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Closest 16 node ids to a random target, as taken by recursive lookup, from {@link NodeIdTrie} and
+ * from the former lists per first byte of id walked outwards from the target's list (which is not
+ * XOR order), and insert with removal of an id. Node records lookups are excluded.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class NodeIdTrieBenchmark {
+  private static final int K = 16;
+  private static final int TARGETS = 1024;
+
+  @Param({"100000"})
+  private int nodes;
+
+  private final Random rnd = new Random(1);
+  private final NodeIdTrie trie = new NodeIdTrie();
+  private final List<List<Bytes>> firstByteIndexes = new ArrayList<>();
+  private final NodeId[] targets = new NodeId[TARGETS];
+  private int next = 0;
+
+  @Setup
+  public void setup() {
+    for (int i = 0; i < 256; i++) {
+      firstByteIndexes.add(new ArrayList<>());
+    }
+    for (int i = 0; i < nodes; i++) {
+      Bytes id = randomId();
+      trie.add(NodeId.fromBytes(id));
+      firstByteIndexes.get(id.get(0) & 0xFF).add(id);
+    }
+    for (int i = 0; i < TARGETS; i++) {
+      targets[i] = NodeId.fromBytes(randomId());
+    }
+  }
+
+  private Bytes randomId() {
+    byte[] id = new byte[NodeId.SIZE];
+    rnd.nextBytes(id);
+    return Bytes.wrap(id);
+  }
+
+  private NodeId nextTarget() {
+    return targets[next++ & (TARGETS - 1)];
+  }
+
+  @Benchmark
+  public void trieClosest(Blackhole bh) {
+    Iterator<NodeId> closest = trie.closest(nextTarget());
+    for (int i = 0; i < K && closest.hasNext(); i++) {
+      bh.consume(closest.next());
+    }
+  }
+
+  @Benchmark
+  public void legacyFirstByteClosest(Blackhole bh) {
+    NodeId target = nextTarget();
+    int start = target.toBytes().get(0) & 0xFF;
+    List<Bytes> batch = new ArrayList<>();
+    for (int up = start, down = start; batch.size() < K && (up < 256 || down >= 0); ) {
+      if (up < 256) {
+        batch.addAll(firstByteIndexes.get(up++));
+      }
+      if (--down >= 0) {
+        batch.addAll(firstByteIndexes.get(down));
+      }
+    }
+    batch.sort(target::compareDistance);
+    for (int i = 0; i < K && i < batch.size(); i++) {
+      bh.consume(batch.get(i));
+    }
+  }
+
+  @Benchmark
+  public boolean trieAddRemove() {
+    NodeId id = nextTarget();
+    trie.add(id);
+    return trie.remove(id);
+  }
+}
@@ -0,0 +1,79 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.ethereum.beacon.discovery.type;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.apache.tuweni.bytes.Bytes;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Log distance from one target to a set of random node ids, as done when placing nodes into
+ * buckets and filtering NODES responses. Compares {@link NodeId} with the former bit by bit
+ * implementation over an XOR-ed {@link Bytes} copy.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class NodeIdBenchmark {
+  private static final int IDS = 1024;
+  private final Bytes[] ids = new Bytes[IDS];
+  private Bytes target;
+  private NodeId targetId;
+
+  @Setup
+  public void setup() {
+    Random rnd = new Random(1);
+    for (int i = 0; i < IDS; i++) {
+      byte[] id = new byte[NodeId.SIZE];
+      rnd.nextBytes(id);
+      ids[i] = Bytes.wrap(id);
+    }
+    target = ids[0];
+    targetId = NodeId.fromBytes(target);
+  }
+
+  @Benchmark
+  public void nodeIdLogDistance(Blackhole bh) {
+    for (Bytes id : ids) {
+      bh.consume(targetId.logDistance(id));
+    }
+  }
+
+  @Benchmark
+  public void legacyLogDistance(Blackhole bh) {
+    for (Bytes id : ids) {
+      bh.consume(legacyLogDistance(target, id));
+    }
+  }
+
+  private static int legacyLogDistance(Bytes nodeId1, Bytes nodeId2) {
+    Bytes distance = nodeId1.xor(nodeId2);
+    int logDistance = Byte.SIZE * distance.size();
+    final int maxLogDistance = logDistance;
+    for (int i = 0; i < maxLogDistance; ++i) {
+      boolean highBit = ((distance.get(i / 8) >> (7 - (i % 8))) & 1) == 1;
+      if (highBit) {
+        break;
+      } else {
+        logDistance--;
+      }
+    }
+    return logDistance;
+  }
+}
@@ -0,0 +1,93 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.ethereum.beacon.discovery.util;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import org.apache.tuweni.bytes.Bytes;
+import org.apache.tuweni.bytes.MutableBytes;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Encryption of a typical ~100 byte message packet payload: the former per call cipher lookup and
+ * key setup compared with reused per-thread ciphers, with and without a prepared session key, and
+ * encryption straight into the packet array. Nonce changes on every call as auth tags do.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class AesGcmBenchmark {
+  private static final int MESSAGE_SIZE = 100;
+  private Bytes key;
+  private SecretKey preparedKey;
+  private MutableBytes nonce;
+  private Bytes message;
+  private Bytes aad;
+  private byte[] packet;
+
+  @Setup
+  public void setup() {
+    Random rnd = new Random(1);
+    key = randomBytes(rnd, 16);
+    preparedKey = Functions.aesgcm_key(key);
+    nonce = MutableBytes.wrap(randomBytes(rnd, 12).toArray());
+    message = randomBytes(rnd, MESSAGE_SIZE);
+    aad = randomBytes(rnd, 32);
+    packet = new byte[45 + MESSAGE_SIZE + 16];
+  }
+
+  private static Bytes randomBytes(Random rnd, int size) {
+    byte[] bytes = new byte[size];
+    rnd.nextBytes(bytes);
+    return Bytes.wrap(bytes);
+  }
+
+  private Bytes nextNonce() {
+    nonce.set(0, (byte) (nonce.get(0) + 1));
+    return nonce;
+  }
+
+  @Benchmark
+  public Bytes legacyEncrypt() throws Exception {
+    Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+    cipher.init(
+        Cipher.ENCRYPT_MODE,
+        new SecretKeySpec(key.toArray(), "AES"),
+        new GCMParameterSpec(128, nextNonce().toArray()));
+    cipher.updateAAD(aad.toArray());
+    return Bytes.wrap(cipher.doFinal(message.toArray()));
+  }
+
+  @Benchmark
+  public Bytes encryptRawKey() {
+    return Functions.aesgcm_encrypt(key, nextNonce(), message, aad);
+  }
+
+  @Benchmark
+  public Bytes encryptPreparedKey() {
+    return Functions.aesgcm_encrypt(preparedKey, nextNonce(), message, aad);
+  }
+
+  @Benchmark
+  public int encryptIntoPacket() {
+    return Functions.aesgcm_encrypt(preparedKey, nextNonce(), message, aad, packet, 45);
+  }
+}
@@ -0,0 +1,141 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.ethereum.beacon.discovery.util;
+
+import java.math.BigInteger;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.apache.tuweni.bytes.Bytes;
+import org.bouncycastle.math.ec.ECPoint;
+import org.ethereum.beacon.discovery.packet.AuthHeaderMessagePacket;
+import org.ethereum.beacon.discovery.schema.NodeRecord;
+import org.ethereum.beacon.discovery.schema.NodeRecordBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.web3j.crypto.ECDSASignature;
+import org.web3j.crypto.Sign;
+
+/**
+ * Cost of one signature check, as done for every ENR in a NODES response and for the id nonce
+ * signature of every handshake. Compares the former check, recovering up to four public keys from
+ * the signature, with ECDSA verification against a known key: once for a key seen before and once
+ * for a key decoded from scratch. Record and handshake benchmarks include hashing of the signed
+ * content, as done by {@link org.ethereum.beacon.discovery.schema.IdentitySchemaV4Interpreter} and
+ * {@link AuthHeaderMessagePacket#isValid(Bytes, Bytes)}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(3)
+@State(Scope.Benchmark)
+public class SignatureVerificationBenchmark {
+  private Bytes message;
+  private Bytes signature;
+  private Bytes pubKey;
+  private NodeRecord nodeRecord;
+  private Bytes idNonce;
+  private Bytes ephemeralPubKey;
+  private Bytes idNonceSignature;
+
+  @Setup
+  public void setup() {
+    Random rnd = new Random(1);
+    byte[] privateKey = new byte[32];
+    rnd.nextBytes(privateKey);
+    message = Functions.hash(Bytes.wrap("benchmark".getBytes()));
+    signature = Functions.sign(Bytes.wrap(privateKey), message);
+    pubKey = Functions.derivePublicKeyFromPrivate(Bytes.wrap(privateKey));
+    nodeRecord =
+        new NodeRecordBuilder()
+            .seq(1)
+            .privateKey(Bytes.wrap(privateKey))
+            .address("127.0.0.1", 30303)
+            .build();
+    byte[] nonce = new byte[32];
+    rnd.nextBytes(nonce);
+    idNonce = Bytes.wrap(nonce);
+    byte[] ephemeralKey = new byte[32];
+    rnd.nextBytes(ephemeralKey);
+    ephemeralPubKey = Functions.derivePublicKeyFromPrivate(Bytes.wrap(ephemeralKey));
+    idNonceSignature =
+        AuthHeaderMessagePacket.signIdNonce(idNonce, Bytes.wrap(privateKey), ephemeralPubKey);
+  }
+
+  @Benchmark
+  public boolean verifyKnownKey() {
+    return Functions.verifyECDSASignature(signature, message, pubKey);
+  }
+
+  @Benchmark
+  public boolean verifyNewKey() {
+    return Functions.verifyECDSASignature(signature, message, Functions.publicKeyToPoint(pubKey));
+  }
+
+  @Benchmark
+  public boolean legacyRecovery() {
+    return legacyVerify(signature, message, pubKey);
+  }
+
+  /** ENR from NODES response, signer is usually not seen before */
+  @Benchmark
+  public boolean recordNewKey() {
+    Bytes contentHash = Functions.hashKeccak(nodeRecord.serializeNoSignature());
+    return Functions.verifyECDSASignature(
+        nodeRecord.getSignature(), contentHash, Functions.publicKeyToPoint(pubKey));
+  }
+
+  @Benchmark
+  public boolean recordLegacy() {
+    Bytes contentHash = Functions.hashKeccak(nodeRecord.serializeNoSignature());
+    return legacyVerify(nodeRecord.getSignature(), contentHash, pubKey);
+  }
+
+  /** Id nonce signature of the handshake, signer key is known from its ENR */
+  @Benchmark
+  public boolean handshakeKnownKey() {
+    return Functions.verifyECDSASignature(
+        idNonceSignature,
+        Functions.hash(AuthHeaderMessagePacket.createIdNonceMessage(idNonce, ephemeralPubKey)),
+        pubKey);
+  }
+
+  @Benchmark
+  public boolean handshakeLegacy() {
+    return legacyVerify(
+        idNonceSignature,
+        Functions.hash(AuthHeaderMessagePacket.createIdNonceMessage(idNonce, ephemeralPubKey)),
+        pubKey);
+  }
+
+  /** Former {@link Functions#verifyECDSASignature(Bytes, Bytes, Bytes)} */
+  private static boolean legacyVerify(Bytes signature, Bytes message, Bytes pubKey) {
+    ECPoint ecPoint = Functions.publicKeyToPoint(pubKey);
+    Bytes pubKeyUncompressed = Bytes.wrap(ecPoint.getEncoded(false)).slice(1);
+    ECDSASignature ecdsaSignature =
+        new ECDSASignature(
+            new BigInteger(1, signature.slice(0, 32).toArray()),
+            new BigInteger(1, signature.slice(32).toArray()));
+    for (int recId = 0; recId < 4; ++recId) {
+      BigInteger calculatedPubKey =
+          Sign.recoverFromSignature(recId, ecdsaSignature, message.toArray());
+      if (calculatedPubKey != null
+          && pubKeyUncompressed.equals(
+              Bytes.wrap(
+                  Utils.extractBytesFromUnsignedBigInt(calculatedPubKey, Functions.PUBKEY_SIZE)))) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
@@ -0,0 +1,120 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.ethereum.beacon.discovery;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.util.Optional;
+import org.ethereum.beacon.discovery.network.FlushPolicy;
+import org.ethereum.beacon.discovery.network.IncomingRateLimiter;
+import org.ethereum.beacon.discovery.network.OutgoingParcelQueue;
+import org.ethereum.beacon.discovery.pipeline.Pipeline;
+import org.ethereum.beacon.discovery.pipeline.PipelineImpl;
+import org.ethereum.beacon.discovery.pipeline.handler.HandshakeAdmission;
+import org.ethereum.beacon.discovery.pipeline.handler.IdNonceMac;
+import org.ethereum.beacon.discovery.pipeline.handler.SessionTable;
+import org.ethereum.beacon.discovery.scheduler.Scheduler;
+
+/**
+ * Networking and handshake settings of {@link DiscoveryManagerImpl}, defaults keep single socket,
+ * single lane pipeline and inline handshake cryptography without rate limiting. Holds stateful
+ * components like queue and session table, so one instance configures one manager.
+ */
+public class DiscoveryManagerConfig {
+  private int socketCount = 1;
+  private Pipeline incomingPipeline = new PipelineImpl();
+  private OutgoingParcelQueue outgoingQueue = new OutgoingParcelQueue();
+  private FlushPolicy flushPolicy = FlushPolicy.DEFAULT;
+  private Optional<Scheduler> handshakeScheduler = Optional.empty();
+  private HandshakeAdmission handshakeAdmission = new HandshakeAdmission();
+  private Optional<IncomingRateLimiter> rateLimiter = Optional.empty();
+  private Optional<IdNonceMac> idNonceMac = Optional.empty();
+  private SessionTable sessionTable = new SessionTable();
+
+  /** Number of sockets bound to the listen address */
+  public DiscoveryManagerConfig socketCount(final int socketCount) {
+    checkArgument(socketCount > 0, "Socket count should be positive");
+    this.socketCount = socketCount;
+    return this;
+  }
+
+  public DiscoveryManagerConfig incomingPipeline(final Pipeline incomingPipeline) {
+    this.incomingPipeline = incomingPipeline;
+    return this;
+  }
+
+  public DiscoveryManagerConfig outgoingQueue(final OutgoingParcelQueue outgoingQueue) {
+    this.outgoingQueue = outgoingQueue;
+    return this;
+  }
+
+  public DiscoveryManagerConfig flushPolicy(final FlushPolicy flushPolicy) {
+    this.flushPolicy = flushPolicy;
+    return this;
+  }
+
+  /** Scheduler to run handshake cryptography on instead of the pipeline thread */
+  public DiscoveryManagerConfig handshakeScheduler(final Scheduler handshakeScheduler) {
+    this.handshakeScheduler = Optional.of(handshakeScheduler);
+    return this;
+  }
+
+  public DiscoveryManagerConfig handshakeAdmission(final HandshakeAdmission handshakeAdmission) {
+    this.handshakeAdmission = handshakeAdmission;
+    return this;
+  }
+
+  public DiscoveryManagerConfig rateLimiter(final IncomingRateLimiter rateLimiter) {
+    this.rateLimiter = Optional.of(rateLimiter);
+    return this;
+  }
+
+  /** Answers unknown senders with stateless WHOAREYOU, see {@link IdNonceMac} */
+  public DiscoveryManagerConfig idNonceMac(final IdNonceMac idNonceMac) {
+    this.idNonceMac = Optional.of(idNonceMac);
+    return this;
+  }
+
+  public DiscoveryManagerConfig sessionTable(final SessionTable sessionTable) {
+    this.sessionTable = sessionTable;
+    return this;
+  }
+
+  public int getSocketCount() {
+    return socketCount;
+  }
+
+  public Pipeline getIncomingPipeline() {
+    return incomingPipeline;
+  }
+
+  public OutgoingParcelQueue getOutgoingQueue() {
+    return outgoingQueue;
+  }
+
+  public FlushPolicy getFlushPolicy() {
+    return flushPolicy;
+  }
+
+  public Optional<Scheduler> getHandshakeScheduler() {
+    return handshakeScheduler;
+  }
+
+  public HandshakeAdmission getHandshakeAdmission() {
+    return handshakeAdmission;
+  }
+
+  public Optional<IncomingRateLimiter> getRateLimiter() {
+    return rateLimiter;
+  }
+
+  public Optional<IdNonceMac> getIdNonceMac() {
+    return idNonceMac;
+  }
+
+  public SessionTable getSessionTable() {
+    return sessionTable;
+  }
+}
@@ -12,10 +12,12 @@ import java.util.function.Consumer;
 
 import org.apache.tuweni.bytes.Bytes;
 import org.ethereum.beacon.discovery.network.DiscoveryClient;
+import org.ethereum.beacon.discovery.network.FlushPolicy;
 import org.ethereum.beacon.discovery.network.NettyDiscoveryClientImpl;
 import org.ethereum.beacon.discovery.network.NettyDiscoveryServer;
 import org.ethereum.beacon.discovery.network.NettyDiscoveryServerImpl;
 import org.ethereum.beacon.discovery.network.NetworkParcel;
+import org.ethereum.beacon.discovery.network.OutgoingParcelQueue;
 import org.ethereum.beacon.discovery.packet.AuthHeaderMessagePacket;
 import org.ethereum.beacon.discovery.pipeline.Envelope;
 import org.ethereum.beacon.discovery.pipeline.Field;
@@ -23,6 +25,8 @@ import org.ethereum.beacon.discovery.pipeline.Pipeline;
 import org.ethereum.beacon.discovery.pipeline.PipelineImpl;
 import org.ethereum.beacon.discovery.pipeline.handler.AuthHeaderMessagePacketHandler;
 import org.ethereum.beacon.discovery.pipeline.handler.BadPacketHandler;
+import org.ethereum.beacon.discovery.pipeline.handler.HandshakeCrypto;
+import org.ethereum.beacon.discovery.pipeline.handler.HandshakeInProgressHandler;
 import org.ethereum.beacon.discovery.pipeline.handler.IncomingDataPacker;
 import org.ethereum.beacon.discovery.pipeline.handler.MessageHandler;
 import org.ethereum.beacon.discovery.pipeline.handler.MessagePacketHandler;
@@ -55,9 +59,11 @@ import reactor.core.publisher.ReplayProcessor;
 public class DiscoveryManagerImpl implements DiscoveryManager {
   private final ReplayProcessor<NetworkParcel> outgoingMessages = ReplayProcessor.cacheLast();
   private final NettyDiscoveryServer discoveryServer;
-  private final Pipeline incomingPipeline = new PipelineImpl();
+  private final Pipeline incomingPipeline;
   private final Pipeline outgoingPipeline = new PipelineImpl();
   private final LocalNodeRecordStore localNodeRecordStore;
+  private final OutgoingParcelQueue outgoingQueue;
+  private final FlushPolicy flushPolicy;
   private volatile DiscoveryClient discoveryClient;
 
   public DiscoveryManagerImpl(
@@ -69,7 +75,32 @@ public class DiscoveryManagerImpl implements DiscoveryManager {
       NodeRecordFactory nodeRecordFactory,
       Scheduler taskScheduler,
       ExpirationSchedulerFactory expirationSchedulerFactory) {
+    this(
+        listenAddress,
+        nodeTable,
+        nodeBucketStorage,
+        localNodeRecordStore,
+        homeNodePrivateKey,
+        nodeRecordFactory,
+        taskScheduler,
+        expirationSchedulerFactory,
+        new DiscoveryManagerConfig());
+  }
+
+  public DiscoveryManagerImpl(
+      Optional<InetSocketAddress> listenAddress,
+      NodeTable nodeTable,
+      NodeBucketStorage nodeBucketStorage,
+      LocalNodeRecordStore localNodeRecordStore,
+      Bytes homeNodePrivateKey,
+      NodeRecordFactory nodeRecordFactory,
+      Scheduler taskScheduler,
+      ExpirationSchedulerFactory expirationSchedulerFactory,
+      DiscoveryManagerConfig config) {
     this.localNodeRecordStore = localNodeRecordStore;
+    this.incomingPipeline = config.getIncomingPipeline();
+    this.outgoingQueue = config.getOutgoingQueue();
+    this.flushPolicy = config.getFlushPolicy();
     final NodeRecord homeNodeRecord = localNodeRecordStore.getLocalNodeRecord();
     AuthTagRepository authTagRepo = new AuthTagRepository();
 
@@ -80,7 +111,9 @@ public class DiscoveryManagerImpl implements DiscoveryManager {
                 .orElseThrow(
                     () ->
                         new IllegalArgumentException(
-                            "Local node record must contain an IP and UDP port")));
+                            "Local node record must contain an IP and UDP port")),
+            config.getSocketCount(),
+            config.getRateLimiter());
     NodeIdToSession nodeIdToSession =
         new NodeIdToSession(
             localNodeRecordStore,
@@ -89,18 +122,32 @@ public class DiscoveryManagerImpl implements DiscoveryManager {
             authTagRepo,
             nodeTable,
             outgoingPipeline,
-            expirationSchedulerFactory);
+            expirationSchedulerFactory,
+            config.getIdNonceMac(),
+            config.getSessionTable(),
+            config.getRateLimiter());
+    HandshakeCrypto handshakeCrypto =
+        config
+            .getHandshakeScheduler()
+            .map(cryptoScheduler -> new HandshakeCrypto(cryptoScheduler, incomingPipeline))
+            .orElse(HandshakeCrypto.INLINE);
     incomingPipeline
         .addHandler(new IncomingDataPacker())
         .addHandler(new WhoAreYouAttempt(homeNodeRecord.getNodeId()))
         .addHandler(new WhoAreYouSessionResolver(authTagRepo))
         .addHandler(new UnknownPacketTagToSender(homeNodeRecord.getNodeId()))
         .addHandler(nodeIdToSession)
+        .addHandler(new HandshakeInProgressHandler())
         .addHandler(new UnknownPacketTypeByStatus())
-        .addHandler(new NotExpectedIncomingPacketHandler())
-        .addHandler(new WhoAreYouPacketHandler(outgoingPipeline, taskScheduler))
+        .addHandler(new NotExpectedIncomingPacketHandler(config.getRateLimiter()))
+        .addHandler(new WhoAreYouPacketHandler(outgoingPipeline, taskScheduler, handshakeCrypto))
         .addHandler(
-            new AuthHeaderMessagePacketHandler(outgoingPipeline, taskScheduler, nodeRecordFactory))
+            new AuthHeaderMessagePacketHandler(
+                outgoingPipeline,
+                taskScheduler,
+                nodeRecordFactory,
+                handshakeCrypto,
+                config.getHandshakeAdmission()))
         .addHandler(new MessagePacketHandler())
         .addHandler(new MessageHandler(nodeRecordFactory, localNodeRecordStore))
         .addHandler(new BadPacketHandler());
@@ -121,7 +168,10 @@ public class DiscoveryManagerImpl implements DiscoveryManager {
     return discoveryServer
         .start()
         .thenAccept(
-            channel -> discoveryClient = new NettyDiscoveryClientImpl(outgoingMessages, channel));
+            channels ->
+                discoveryClient =
+                    new NettyDiscoveryClientImpl(
+                        outgoingMessages, channels, outgoingQueue, flushPolicy));
   }
 
   @Override
@@ -4,17 +4,24 @@
 package org.ethereum.beacon.discovery;
 
 import java.util.List;
+import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 import java.util.stream.Stream;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.apache.tuweni.bytes.Bytes;
 import org.apache.tuweni.bytes.Bytes32;
+import org.ethereum.beacon.discovery.database.WriteBehindFlusher;
+import org.ethereum.beacon.discovery.network.IncomingRateLimiter;
+import org.ethereum.beacon.discovery.network.OutgoingParcelQueue;
 import org.ethereum.beacon.discovery.packet.AuthHeaderMessagePacket;
+import org.ethereum.beacon.discovery.pipeline.handler.HandshakeAdmission;
+import org.ethereum.beacon.discovery.pipeline.handler.SessionTable;
 import org.ethereum.beacon.discovery.scheduler.ExpirationSchedulerFactory;
 import org.ethereum.beacon.discovery.schema.NodeRecord;
 import org.ethereum.beacon.discovery.schema.NodeRecordInfo;
 import org.ethereum.beacon.discovery.storage.NodeTable;
+import org.ethereum.beacon.discovery.storage.NodeTableSnapshot;
 import org.ethereum.beacon.discovery.task.DiscoveryTaskManager;
 
 public class DiscoverySystem {
@@ -24,22 +31,44 @@ public class DiscoverySystem {
   private final ExpirationSchedulerFactory expirationSchedulerFactory;
   private final NodeTable nodeTable;
   private final List<NodeRecord> bootnodes;
+  private final OutgoingParcelQueue outgoingQueue;
+  private final HandshakeAdmission handshakeAdmission;
+  private final IncomingRateLimiter rateLimiter;
+  private final SessionTable sessionTable;
+  private final WriteBehindFlusher storageFlusher;
+  private final Optional<NodeTableSnapshot> nodeTableSnapshot;
 
   DiscoverySystem(
       final DiscoveryManager discoveryManager,
       final DiscoveryTaskManager taskManager,
       final ExpirationSchedulerFactory expirationSchedulerFactory,
       final NodeTable nodeTable,
-      final List<NodeRecord> bootnodes) {
+      final List<NodeRecord> bootnodes,
+      final OutgoingParcelQueue outgoingQueue,
+      final HandshakeAdmission handshakeAdmission,
+      final IncomingRateLimiter rateLimiter,
+      final SessionTable sessionTable,
+      final WriteBehindFlusher storageFlusher,
+      final Optional<NodeTableSnapshot> nodeTableSnapshot) {
     this.discoveryManager = discoveryManager;
     this.taskManager = taskManager;
     this.expirationSchedulerFactory = expirationSchedulerFactory;
     this.nodeTable = nodeTable;
     this.bootnodes = bootnodes;
+    this.outgoingQueue = outgoingQueue;
+    this.handshakeAdmission = handshakeAdmission;
+    this.rateLimiter = rateLimiter;
+    this.sessionTable = sessionTable;
+    this.storageFlusher = storageFlusher;
+    this.nodeTableSnapshot = nodeTableSnapshot;
   }
 
   public CompletableFuture<Void> start() {
-    return discoveryManager.start().thenRun(taskManager::start).thenRun(this::pingBootnodes);
+    return discoveryManager
+        .start()
+        .thenRun(taskManager::start)
+        .thenRun(() -> nodeTableSnapshot.ifPresent(NodeTableSnapshot::start))
+        .thenRun(this::pingBootnodes);
   }
 
   private void pingBootnodes() {
@@ -61,6 +90,38 @@ public class DiscoverySystem {
     taskManager.stop();
     discoveryManager.stop();
     expirationSchedulerFactory.stop();
+    nodeTableSnapshot.ifPresent(NodeTableSnapshot::stop);
+    storageFlusher.flush();
+  }
+
+  /** Outgoing packets queue exposing its depth and drop counters */
+  public OutgoingParcelQueue getOutgoingQueue() {
+    return outgoingQueue;
+  }
+
+  /** Handshake admission exposing counters of rejected attempts per stage */
+  public HandshakeAdmission getHandshakeAdmission() {
+    return handshakeAdmission;
+  }
+
+  /** Incoming packets rate limiter exposing counters of dropped packets */
+  public IncomingRateLimiter getRateLimiter() {
+    return rateLimiter;
+  }
+
+  /** Sessions table exposing live, authenticated and evicted session gauges */
+  public SessionTable getSessionTable() {
+    return sessionTable;
+  }
+
+  /** Writer of node table updates exposing flush latency and batch size metrics */
+  public WriteBehindFlusher getStorageFlusher() {
+    return storageFlusher;
+  }
+
+  /** Node table snapshot exposing numbers of saved and restored nodes, if it's configured */
+  public Optional<NodeTableSnapshot> getNodeTableSnapshot() {
+    return nodeTableSnapshot;
   }
 
   public NodeRecord getLocalNodeRecord() {
@@ -3,30 +3,47 @@
  */
 package org.ethereum.beacon.discovery;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 import static java.util.Arrays.asList;
 
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import java.net.InetSocketAddress;
+import java.nio.file.Path;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 import org.apache.tuweni.bytes.Bytes;
 import org.ethereum.beacon.discovery.database.Database;
+import org.ethereum.beacon.discovery.database.WriteBehindFlusher;
+import org.ethereum.beacon.discovery.network.FlushPolicy;
+import org.ethereum.beacon.discovery.network.IncomingRateLimiter;
+import org.ethereum.beacon.discovery.network.IncomingRateLimiter.Budget;
+import org.ethereum.beacon.discovery.network.OutgoingParcelQueue;
+import org.ethereum.beacon.discovery.network.OutgoingParcelQueue.OverflowPolicy;
+import org.ethereum.beacon.discovery.pipeline.Pipeline;
+import org.ethereum.beacon.discovery.pipeline.PipelineImpl;
+import org.ethereum.beacon.discovery.pipeline.ShardedPipeline;
+import org.ethereum.beacon.discovery.pipeline.handler.HandshakeAdmission;
+import org.ethereum.beacon.discovery.pipeline.handler.HandshakeCrypto;
+import org.ethereum.beacon.discovery.pipeline.handler.IdNonceMac;
+import org.ethereum.beacon.discovery.pipeline.handler.SessionTable;
 import org.ethereum.beacon.discovery.scheduler.ExpirationSchedulerFactory;
+import org.ethereum.beacon.discovery.scheduler.Scheduler;
 import org.ethereum.beacon.discovery.scheduler.Schedulers;
 import org.ethereum.beacon.discovery.schema.NodeRecord;
 import org.ethereum.beacon.discovery.schema.NodeRecordFactory;
 import org.ethereum.beacon.discovery.storage.LocalNodeRecordStore;
 import org.ethereum.beacon.discovery.storage.NodeBucketStorage;
-import org.ethereum.beacon.discovery.storage.NodeBucketStorageImpl;
 import org.ethereum.beacon.discovery.storage.NodeRecordListener;
 import org.ethereum.beacon.discovery.storage.NodeSerializerFactory;
 import org.ethereum.beacon.discovery.storage.NodeTable;
+import org.ethereum.beacon.discovery.storage.NodeTableSnapshot;
 import org.ethereum.beacon.discovery.storage.NodeTableStorage;
 import org.ethereum.beacon.discovery.storage.NodeTableStorageFactory;
 import org.ethereum.beacon.discovery.storage.NodeTableStorageFactoryImpl;
@@ -42,6 +59,19 @@ public class DiscoverySystemBuilder {
   private Database database;
   private Schedulers schedulers;
   private NodeRecordListener localNodeRecordListener = (a, b) -> {};
+  private int socketCount = 1;
+  private int pipelineLanes = 1;
+  private int outgoingQueueCapacity = OutgoingParcelQueue.DEFAULT_CAPACITY;
+  private OverflowPolicy outgoingQueuePolicy = OverflowPolicy.DROP_OLDEST;
+  private FlushPolicy flushPolicy = FlushPolicy.DEFAULT;
+  private int handshakeAttemptsPerSession = HandshakeAdmission.DEFAULT_ATTEMPTS_PER_SESSION;
+  private int handshakeAttemptsPerAddress =
+      HandshakeAdmission.DEFAULT_ATTEMPTS_PER_ADDRESS_PER_SECOND;
+  private Budget handshakeRateBudget = Budget.DEFAULT_HANDSHAKE;
+  private Budget messageRateBudget = Budget.DEFAULT_MESSAGE;
+  private boolean statelessWhoAreYou = false;
+  private int sessionCapacity = SessionTable.DEFAULT_CAPACITY;
+  private Optional<Path> nodeTableSnapshotPath = Optional.empty();
 
   public DiscoverySystemBuilder localNodeRecord(final NodeRecord localNodeRecord) {
     this.localNodeRecord = localNodeRecord;
@@ -87,6 +117,99 @@ public class DiscoverySystemBuilder {
     return this;
   }
 
+  /**
+   * Number of UDP sockets bound to the listen port with <code>SO_REUSEPORT</code>, each served by
+   * its own event loop. Takes effect only when native epoll transport is available, otherwise a
+   * single NIO socket is used.
+   */
+  public DiscoverySystemBuilder socketCount(final int socketCount) {
+    checkArgument(socketCount > 0, "Socket count should be positive");
+    this.socketCount = socketCount;
+    return this;
+  }
+
+  /**
+   * Number of lanes processing incoming packets in parallel. Packets are distributed between lanes
+   * by sender address, so ordering is kept per session. With a single lane, the default, packets
+   * are processed on the network thread, except completion of handshakes, which continues on the
+   * thread that ran their cryptography, see {@link HandshakeCrypto}.
+   */
+  public DiscoverySystemBuilder pipelineLanes(final int pipelineLanes) {
+    checkArgument(pipelineLanes > 0, "Pipeline lanes count should be positive");
+    this.pipelineLanes = pipelineLanes;
+    return this;
+  }
+
+  /**
+   * Capacity of the outgoing packets queue and the policy applied when it's full. Queue is drained
+   * while the network channel is writable.
+   */
+  public DiscoverySystemBuilder outgoingQueue(final int capacity, final OverflowPolicy policy) {
+    checkArgument(capacity > 0, "Outgoing queue capacity should be positive");
+    this.outgoingQueueCapacity = capacity;
+    this.outgoingQueuePolicy = checkNotNull(policy);
+    return this;
+  }
+
+  /** Batching of outgoing datagram flushes, see {@link FlushPolicy} */
+  public DiscoverySystemBuilder flushPolicy(final FlushPolicy flushPolicy) {
+    this.flushPolicy = checkNotNull(flushPolicy);
+    return this;
+  }
+
+  /**
+   * Handshake attempts admitted to cryptography per WHOAREYOU sent and per second from one IP
+   * address, see {@link HandshakeAdmission}
+   */
+  public DiscoverySystemBuilder handshakeBudgets(
+      final int attemptsPerSession, final int attemptsPerAddressPerSecond) {
+    checkArgument(attemptsPerSession > 0, "Attempts per session should be positive");
+    checkArgument(attemptsPerAddressPerSecond > 0, "Attempts per address should be positive");
+    this.handshakeAttemptsPerSession = attemptsPerSession;
+    this.handshakeAttemptsPerAddress = attemptsPerAddressPerSecond;
+    return this;
+  }
+
+  /**
+   * Rates of handshake and message packets accepted from one IP address and from one node id, see
+   * {@link IncomingRateLimiter}
+   */
+  public DiscoverySystemBuilder rateLimits(
+      final Budget handshakeBudget, final Budget messageBudget) {
+    this.handshakeRateBudget = checkNotNull(handshakeBudget);
+    this.messageRateBudget = checkNotNull(messageBudget);
+    return this;
+  }
+
+  /**
+   * Answers packets of unknown senders with WHOAREYOU whose id nonce is derived by {@link
+   * IdNonceMac}, so no session is allocated until a valid handshake response arrives. Disabled by
+   * default.
+   */
+  public DiscoverySystemBuilder statelessWhoAreYou(final boolean statelessWhoAreYou) {
+    this.statelessWhoAreYou = statelessWhoAreYou;
+    return this;
+  }
+
+  /**
+   * Maximum number of sessions kept, least recently used ones are evicted preferring those not
+   * authenticated, see {@link SessionTable}
+   */
+  public DiscoverySystemBuilder sessionCapacity(final int sessionCapacity) {
+    checkArgument(sessionCapacity > 0, "Session capacity should be positive");
+    this.sessionCapacity = sessionCapacity;
+    return this;
+  }
+
+  /**
+   * File to save node table to periodically and on stop, and to restore it from on start, see
+   * {@link NodeTableSnapshot}
+   */
+  public DiscoverySystemBuilder nodeTableSnapshot(final Path path) {
+    this.nodeTableSnapshotPath = Optional.of(path);
+    return this;
+  }
+
   public DiscoverySystem build() {
     checkNotNull(localNodeRecord, "Missing local node record");
     checkNotNull(privateKey, "Missing private key");
@@ -94,24 +217,68 @@ public class DiscoverySystemBuilder {
     if (database == null) {
       database = Database.inMemoryDB();
     }
-    final NodeTableStorageFactory nodeTableStorageFactory = new NodeTableStorageFactoryImpl();
+    if (schedulers == null) {
+      schedulers = Schedulers.createDefault();
+    }
+    final int clientNumber = COUNTER.incrementAndGet();
+    final Scheduler storageScheduler =
+        schedulers.newSingleThreadDaemon("discovery-storage-" + clientNumber);
+    final WriteBehindFlusher storageFlusher = new WriteBehindFlusher(storageScheduler);
+    final NodeTableStorageFactory nodeTableStorageFactory =
+        new NodeTableStorageFactoryImpl(storageFlusher);
     final NodeSerializerFactory serializerFactory = new NodeSerializerFactory(nodeRecordFactory);
     final NodeTableStorage nodeTableStorage =
         nodeTableStorageFactory.createTable(
             database, serializerFactory, oldSeq -> localNodeRecord, () -> bootnodes);
     final NodeTable nodeTable = nodeTableStorage.get();
-    if (schedulers == null) {
-      schedulers = Schedulers.createDefault();
-    }
     final NodeBucketStorage nodeBucketStorage =
-        new NodeBucketStorageImpl(database, serializerFactory, localNodeRecord);
-    final int clientNumber = COUNTER.incrementAndGet();
+        nodeTableStorageFactory.createBucketStorage(database, serializerFactory, localNodeRecord);
+    final Optional<NodeTableSnapshot> nodeTableSnapshot =
+        nodeTableSnapshotPath.map(
+            path ->
+                new NodeTableSnapshot(
+                    path, nodeTable, nodeBucketStorage, nodeRecordFactory, storageScheduler));
+    nodeTableSnapshot.ifPresent(NodeTableSnapshot::load);
     final LocalNodeRecordStore localNodeRecordStore =
         new LocalNodeRecordStore(localNodeRecord, privateKey, localNodeRecordListener);
     final ExpirationSchedulerFactory expirationSchedulerFactory =
         new ExpirationSchedulerFactory(
             Executors.newSingleThreadScheduledExecutor(
                 new ThreadFactoryBuilder().setNameFormat("discovery-expiration-%d").build()));
+    final Pipeline incomingPipeline;
+    if (pipelineLanes > 1) {
+      incomingPipeline =
+          new ShardedPipeline(
+              IntStream.range(0, pipelineLanes)
+                  .mapToObj(
+                      lane ->
+                          schedulers.newSingleThreadDaemon(
+                              "discovery-pipeline-" + clientNumber + "-" + lane))
+                  .collect(Collectors.toList()));
+    } else {
+      incomingPipeline = new PipelineImpl();
+    }
+    final OutgoingParcelQueue outgoingQueue =
+        new OutgoingParcelQueue(outgoingQueueCapacity, outgoingQueuePolicy);
+    final HandshakeAdmission handshakeAdmission =
+        new HandshakeAdmission(handshakeAttemptsPerSession, handshakeAttemptsPerAddress);
+    final IncomingRateLimiter rateLimiter =
+        new IncomingRateLimiter(
+            localNodeRecord.getNodeId(), handshakeRateBudget, messageRateBudget);
+    final SessionTable sessionTable = new SessionTable(sessionCapacity);
+    final DiscoveryManagerConfig discoveryManagerConfig =
+        new DiscoveryManagerConfig()
+            .socketCount(socketCount)
+            .incomingPipeline(incomingPipeline)
+            .outgoingQueue(outgoingQueue)
+            .flushPolicy(flushPolicy)
+            .handshakeScheduler(schedulers.cpuHeavy())
+            .handshakeAdmission(handshakeAdmission)
+            .rateLimiter(rateLimiter)
+            .sessionTable(sessionTable);
+    if (statelessWhoAreYou) {
+      discoveryManagerConfig.idNonceMac(new IdNonceMac());
+    }
     final DiscoveryManager discoveryManager =
         new DiscoveryManagerImpl(
             listenAddress,
@@ -121,7 +288,8 @@ public class DiscoverySystemBuilder {
             privateKey,
             nodeRecordFactory,
             schedulers.newSingleThreadDaemon("discovery-client-" + clientNumber),
-            expirationSchedulerFactory);
+            expirationSchedulerFactory,
+            discoveryManagerConfig);
 
     final DiscoveryTaskManager discoveryTaskManager =
         new DiscoveryTaskManager(
@@ -134,6 +302,16 @@ public class DiscoverySystemBuilder {
             true,
             expirationSchedulerFactory);
     return new DiscoverySystem(
-        discoveryManager, discoveryTaskManager, expirationSchedulerFactory, nodeTable, bootnodes);
+        discoveryManager,
+        discoveryTaskManager,
+        expirationSchedulerFactory,
+        nodeTable,
+        bootnodes,
+        outgoingQueue,
+        handshakeAdmission,
+        rateLimiter,
+        sessionTable,
+        storageFlusher,
+        nodeTableSnapshot);
   }
 }
@@ -22,4 +22,23 @@ public interface BatchUpdateDataSource<KeyType, ValueType> extends DataSource<Ke
    *     <code>null</code> value represents <code>remove</code> operation
    */
   void batchUpdate(Map<KeyType, ValueType> updates);
+
+  /**
+   * Applies updates to `source` with {@link #batchUpdate(Map)} if it's supported, otherwise one by
+   * one
+   */
+  static <K, V> void updateAll(DataSource<K, V> source, Map<K, V> updates) {
+    if (source instanceof BatchUpdateDataSource) {
+      ((BatchUpdateDataSource<K, V>) source).batchUpdate(updates);
+      return;
+    }
+    updates.forEach(
+        (key, value) -> {
+          if (value == null) {
+            source.remove(key);
+          } else {
+            source.put(key, value);
+          }
+        });
+  }
 }
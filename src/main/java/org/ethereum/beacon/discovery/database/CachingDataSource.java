@@ -0,0 +1,138 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.ethereum.beacon.discovery.database;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import javax.annotation.Nonnull;
+
+/**
+ * Keeps values read from upstream, usually decoded by {@link CodecSource}, in memory, evicting
+ * least recently used ones when there are more than capacity. Absence of value is not kept, so
+ * lookups of unknown keys, like spoofed node ids, don't evict cached values. Updates are written
+ * through to upstream and replace cached values, so cache is coherent as long as upstream is
+ * updated only via this source.
+ */
+public class CachingDataSource<KeyType, ValueType>
+    extends AbstractLinkedDataSource<KeyType, ValueType, KeyType, ValueType> {
+  private final int capacity;
+  private final LinkedHashMap<KeyType, ValueType> cache;
+  private final Object writeLock = new Object();
+  private long updateCount = 0;
+  private long hitCount = 0;
+  private long missCount = 0;
+  private long evictionCount = 0;
+
+  public CachingDataSource(
+      @Nonnull final DataSource<KeyType, ValueType> upstreamSource, final int capacity) {
+    super(upstreamSource, true);
+    checkArgument(capacity > 0, "Capacity should be positive");
+    this.capacity = capacity;
+    this.cache =
+        new LinkedHashMap<>(16, 0.75f, true) {
+          @Override
+          protected boolean removeEldestEntry(Map.Entry<KeyType, ValueType> eldest) {
+            if (size() > CachingDataSource.this.capacity) {
+              evictionCount++;
+              return true;
+            }
+            return false;
+          }
+        };
+  }
+
+  @Override
+  public Optional<ValueType> get(@Nonnull final KeyType key) {
+    final long updatesBefore;
+    synchronized (this) {
+      final ValueType cached = cache.get(key);
+      if (cached != null) {
+        hitCount++;
+        return Optional.of(cached);
+      }
+      missCount++;
+      updatesBefore = updateCount;
+    }
+    // Upstream is read outside of the lock, so reads of different keys decode in parallel
+    final Optional<ValueType> value = getUpstream().get(key);
+    if (value.isPresent()) {
+      synchronized (this) {
+        // Value read before concurrent update may be outdated
+        if (updateCount == updatesBefore) {
+          cache.put(key, value.get());
+        }
+      }
+    }
+    return value;
+  }
+
+  @Override
+  public void put(@Nonnull final KeyType key, @Nonnull final ValueType value) {
+    update(key, Optional.of(value));
+  }
+
+  @Override
+  public void remove(@Nonnull final KeyType key) {
+    update(key, Optional.empty());
+  }
+
+  /**
+   * Updates cache, then upstream outside of the cache lock, so reads are not blocked by upstream
+   * writes. Writes are ordered by a separate lock, so upstream ends with the value cached last.
+   */
+  private void update(final KeyType key, final Optional<ValueType> value) {
+    synchronized (writeLock) {
+      synchronized (this) {
+        updateCount++;
+        if (value.isPresent()) {
+          cache.put(key, value.get());
+        } else {
+          cache.remove(key);
+        }
+      }
+      try {
+        if (value.isPresent()) {
+          getUpstream().put(key, value.get());
+        } else {
+          getUpstream().remove(key);
+        }
+      } catch (RuntimeException e) {
+        synchronized (this) {
+          cache.remove(key);
+        }
+        throw e;
+      } finally {
+        synchronized (this) {
+          // Reads of upstream started during the write may have the old value
+          updateCount++;
+        }
+      }
+    }
+  }
+
+  public int getCapacity() {
+    return capacity;
+  }
+
+  /** Number of keys cached */
+  public synchronized int getSize() {
+    return cache.size();
+  }
+
+  public synchronized long getHitCount() {
+    return hitCount;
+  }
+
+  public synchronized long getMissCount() {
+    return missCount;
+  }
+
+  public synchronized long getEvictionCount() {
+    return evictionCount;
+  }
+}
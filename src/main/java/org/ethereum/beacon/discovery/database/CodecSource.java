@@ -6,6 +6,8 @@ package org.ethereum.beacon.discovery.database;
 
 import static java.util.Objects.requireNonNull;
 
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Optional;
 import java.util.function.Function;
 import javax.annotation.Nonnull;
@@ -20,7 +22,8 @@ import javax.annotation.Nonnull;
  * @param <UpValueType> type of upstream values
  */
 public class CodecSource<KeyType, ValueType, UpKeyType, UpValueType>
-    extends AbstractLinkedDataSource<KeyType, ValueType, UpKeyType, UpValueType> {
+    extends AbstractLinkedDataSource<KeyType, ValueType, UpKeyType, UpValueType>
+    implements BatchUpdateDataSource<KeyType, ValueType> {
 
   private final Function<KeyType, UpKeyType> keyCoder;
   private final Function<ValueType, UpValueType> valueCoder;
@@ -63,6 +66,16 @@ public class CodecSource<KeyType, ValueType, UpKeyType, UpValueType>
     getUpstream().remove(keyCoder.apply(key));
   }
 
+  /** Converts all updates and passes them to upstream as a single batch if it's supported */
+  @Override
+  public void batchUpdate(final Map<KeyType, ValueType> updates) {
+    final Map<UpKeyType, UpValueType> converted = new HashMap<>();
+    updates.forEach(
+        (key, value) ->
+            converted.put(keyCoder.apply(key), value == null ? null : valueCoder.apply(value)));
+    BatchUpdateDataSource.updateAll(getUpstream(), converted);
+  }
+
   /** Shortcut {@link CodecSource} subclass when only key conversion is needed */
   public static class KeyOnly<KeyType, ValueType, UpKeyType>
       extends CodecSource<KeyType, ValueType, UpKeyType, ValueType> {
@@ -21,8 +21,16 @@ public class DataSourceList<V> implements HoleyList<V> {
       DataSource<Bytes, Bytes> src,
       @Nonnull final Function<V, Bytes> valueCoder,
       @Nonnull final Function<Bytes, V> valueDecoder) {
+    this(src, new CodecSource.ValueOnly<>(src, valueCoder, valueDecoder));
+  }
+
+  /**
+   * @param src source of the list size
+   * @param valueSource source of list values, usually decoding values of `src`
+   */
+  public DataSourceList(DataSource<Bytes, Bytes> src, DataSource<Bytes, V> valueSource) {
     this.src = src;
-    valSsrc = new CodecSource.ValueOnly<>(src, valueCoder, valueDecoder);
+    this.valSsrc = valueSource;
   }
 
   @Override
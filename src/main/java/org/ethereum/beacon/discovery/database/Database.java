@@ -4,6 +4,7 @@
 
 package org.ethereum.beacon.discovery.database;
 
+import java.nio.file.Path;
 import org.apache.tuweni.bytes.Bytes;
 
 public interface Database {
@@ -29,6 +30,17 @@ public interface Database {
     return new InMemoryDatabase();
   }
 
+  /**
+   * Creates database instance persisted to memory mapped append-only log, see {@link
+   * LogStorageSource}.
+   *
+   * @param directory directory of log and index files, created if missing.
+   * @return opened database instance.
+   */
+  static Database logDB(Path directory) {
+    return new LogDatabase(directory);
+  }
+
   /**
    * Creates database instance driven by <a href="https://github.com/facebook/rocksdb">RocksDB</a>
    * storage engine.
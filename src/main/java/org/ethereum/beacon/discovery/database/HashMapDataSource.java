@@ -9,7 +9,7 @@ import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
 import javax.annotation.Nonnull;
 
-public class HashMapDataSource<K, V> implements DataSource<K, V> {
+public class HashMapDataSource<K, V> implements BatchUpdateDataSource<K, V> {
 
   Map<K, V> store = new ConcurrentHashMap<>();
 
@@ -28,6 +28,18 @@ public class HashMapDataSource<K, V> implements DataSource<K, V> {
     store.remove(key);
   }
 
+  @Override
+  public void batchUpdate(Map<K, V> updates) {
+    updates.forEach(
+        (key, value) -> {
+          if (value == null) {
+            store.remove(key);
+          } else {
+            store.put(key, value);
+          }
+        });
+  }
+
   @Override
   public void flush() {
     // nothing to do
@@ -0,0 +1,33 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.ethereum.beacon.discovery.database;
+
+import java.nio.file.Path;
+import org.ethereum.beacon.discovery.type.Hashes;
+
+/** Persistent database implementation based on {@link LogStorageSource}. */
+public class LogDatabase extends XorKeyDatabase {
+  private final LogStorageSource source;
+
+  public LogDatabase(LogStorageSource source) {
+    super(source, Hashes::sha256);
+    this.source = source;
+    source.open();
+  }
+
+  public LogDatabase(Path directory) {
+    this(new LogStorageSource(directory));
+  }
+
+  @Override
+  public void commit() {
+    source.flush();
+  }
+
+  @Override
+  public void close() {
+    source.close();
+  }
+}
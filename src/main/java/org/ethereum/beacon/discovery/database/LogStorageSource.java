@@ -0,0 +1,656 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.ethereum.beacon.discovery.database;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+import javax.annotation.Nonnull;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.tuweni.bytes.Bytes;
+
+/**
+ * Persistent storage engine keeping all values in a memory mapped append-only log file and keys in
+ * memory, mapped to offsets of their latest records in the log.
+ *
+ * <p>Record is key length, value length (-1 for removal), key, value and CRC32 of all of them.
+ * Updates only append records, so after a crash the log is read up to the first incomplete record
+ * and everything written before it is kept. Log grows until dead records take more than half of it
+ * and it's larger than compaction threshold, then live records are copied to a log of the next
+ * generation in background, which replaces the current one. So disk usage stays within about twice
+ * the size of live data.
+ *
+ * <p>{@link #close()} saves the keys index to a snapshot file, so {@link #open()} reads only the
+ * snapshot and log records appended after it instead of the whole log.
+ */
+public class LogStorageSource implements StorageEngineSource<Bytes> {
+  public static final int DEFAULT_COMPACTION_THRESHOLD = 4 << 20;
+
+  private static final Logger logger = LogManager.getLogger(LogStorageSource.class);
+  private static final int SNAPSHOT_MAGIC = 0x6c6f6731;
+  private static final String LOG_PREFIX = "data-";
+  private static final String LOG_SUFFIX = ".log";
+  private static final String TEMP_SUFFIX = ".tmp";
+  private static final String SNAPSHOT_FILE = "index.snapshot";
+
+  private final Path directory;
+  private final int compactionThreshold;
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+  // Guarded by lock
+  private boolean opened = false;
+  private long generation;
+  private LogFile log;
+  private Map<Bytes, Integer> index;
+  private long liveBytes;
+  private boolean compacting = false;
+  private long compactionCount = 0;
+  private ExecutorService compactionExecutor;
+
+  public LogStorageSource(Path directory) {
+    this(directory, DEFAULT_COMPACTION_THRESHOLD);
+  }
+
+  /** @param compactionThreshold log size in bytes which is never compacted */
+  public LogStorageSource(Path directory, int compactionThreshold) {
+    checkArgument(compactionThreshold > 0, "Compaction threshold should be positive");
+    this.directory = directory;
+    this.compactionThreshold = compactionThreshold;
+  }
+
+  @Override
+  public void open() {
+    lock.writeLock().lock();
+    try {
+      if (opened) {
+        return;
+      }
+      Files.createDirectories(directory);
+      final List<Path> logs = listLogs();
+      for (Path path : listFiles(TEMP_SUFFIX)) {
+        Files.delete(path);
+      }
+      generation = logs.isEmpty() ? 0 : generationOf(logs.get(logs.size() - 1));
+      // Older generations remain if crashed after compaction before deleting them
+      for (Path path : logs) {
+        if (generationOf(path) != generation) {
+          Files.delete(path);
+        }
+      }
+      log = LogFile.open(logPath(generation), false);
+      index = new HashMap<>();
+      liveBytes = 0;
+      compacting = false;
+      log.discardAfter(replay(loadSnapshot()));
+      compactionExecutor =
+          Executors.newSingleThreadExecutor(
+              new ThreadFactoryBuilder()
+                  .setDaemon(true)
+                  .setNameFormat("discovery-log-compaction-%d")
+                  .build());
+      opened = true;
+      logger.debug(
+          "Opened log {} with {} keys, {} of {} bytes live",
+          log.path,
+          index.size(),
+          liveBytes,
+          log.end);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Failed to open log storage in " + directory, e);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  @Override
+  public void close() {
+    final ExecutorService executor;
+    lock.readLock().lock();
+    try {
+      if (!opened) {
+        return;
+      }
+      executor = compactionExecutor;
+    } finally {
+      lock.readLock().unlock();
+    }
+    // Compaction needs the lock to complete, so it's awaited before taking it
+    executor.shutdown();
+    try {
+      executor.awaitTermination(1, TimeUnit.MINUTES);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    lock.writeLock().lock();
+    try {
+      if (!opened) {
+        return;
+      }
+      log.force();
+      saveSnapshot();
+      log.close(true);
+      opened = false;
+      log = null;
+      index = null;
+    } catch (IOException e) {
+      throw new UncheckedIOException("Failed to close log storage in " + directory, e);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  @Override
+  public Optional<Bytes> get(@Nonnull Bytes key) {
+    lock.readLock().lock();
+    try {
+      checkState(opened, "Log storage is not opened");
+      final Integer offset = index.get(key);
+      return offset == null ? Optional.empty() : Optional.of(log.readValue(offset));
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  @Override
+  public void put(@Nonnull Bytes key, @Nonnull Bytes value) {
+    batchUpdate(Collections.singletonMap(key, value));
+  }
+
+  @Override
+  public void remove(@Nonnull Bytes key) {
+    batchUpdate(Collections.singletonMap(key, null));
+  }
+
+  /**
+   * Updates are visible to readers all at once, but are written one by one, so after a crash only
+   * part of them may be restored
+   */
+  @Override
+  public void batchUpdate(Map<Bytes, Bytes> updates) {
+    lock.writeLock().lock();
+    try {
+      checkState(opened, "Log storage is not opened");
+      for (Map.Entry<Bytes, Bytes> update : updates.entrySet()) {
+        final Bytes key = update.getKey();
+        checkArgument(!key.isEmpty(), "Empty keys are not supported");
+        if (update.getValue() == null && !index.containsKey(key)) {
+          continue;
+        }
+        final int offset = log.append(Record.encode(key, update.getValue()));
+        apply(key, update.getValue() == null ? null : offset);
+      }
+      compactIfNeeded();
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /** Starts compaction unless it's running already, should be called under the write lock */
+  private void compactIfNeeded() {
+    if (!compacting && log.end > compactionThreshold && liveBytes < log.end / 2) {
+      compacting = true;
+      try {
+        compactionExecutor.execute(this::compact);
+      } catch (RejectedExecutionException e) {
+        // Storage is being closed
+        compacting = false;
+      }
+    }
+  }
+
+  /** Forces written records to disk */
+  @Override
+  public void flush() {
+    lock.readLock().lock();
+    try {
+      if (opened) {
+        log.force();
+      }
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /** Size of the current log in bytes */
+  public long getLogSize() {
+    lock.readLock().lock();
+    try {
+      return opened ? log.end : 0;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /** Size of the latest records of present keys in bytes */
+  public long getLiveSize() {
+    lock.readLock().lock();
+    try {
+      return liveBytes;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  public long getCompactionCount() {
+    lock.readLock().lock();
+    try {
+      return compactionCount;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /** Updates index with record at `offset` or with removal if `offset` is null */
+  private void apply(Bytes key, Integer offset) {
+    final Integer previous = offset == null ? index.remove(key) : index.put(key, offset);
+    if (previous != null) {
+      liveBytes -= log.recordSize(previous);
+    }
+    if (offset != null) {
+      liveBytes += log.recordSize(offset);
+    }
+  }
+
+  /**
+   * Applies log records starting from `offset` to index
+   *
+   * @return end of the last complete record
+   */
+  private int replay(int offset) {
+    while (true) {
+      final Optional<Record> record = log.read(offset);
+      if (record.isEmpty()) {
+        return offset;
+      }
+      apply(record.get().key, record.get().value == null ? null : offset);
+      offset += record.get().size;
+    }
+  }
+
+  private void compact() {
+    final LogFile source;
+    final int copiedEnd;
+    final List<Map.Entry<Bytes, Integer>> live;
+    final long targetGeneration;
+    lock.readLock().lock();
+    try {
+      if (!opened) {
+        return;
+      }
+      source = log;
+      copiedEnd = log.end;
+      live = new ArrayList<>(index.entrySet());
+      targetGeneration = generation + 1;
+    } finally {
+      lock.readLock().unlock();
+    }
+    final Path targetPath = logPath(targetGeneration);
+    final Path tempPath = targetPath.resolveSibling(targetPath.getFileName() + TEMP_SUFFIX);
+    LogFile target = null;
+    try {
+      target = LogFile.open(tempPath, true);
+      // Records below copiedEnd are never changed, so they are copied without the lock
+      live.sort(Map.Entry.comparingByValue());
+      final Map<Bytes, Integer> targetIndex = new HashMap<>();
+      long targetLiveBytes = 0;
+      for (Map.Entry<Bytes, Integer> entry : live) {
+        final int size = source.recordSize(entry.getValue());
+        targetIndex.put(entry.getKey(), target.append(source.readRecord(entry.getValue(), size)));
+        targetLiveBytes += size;
+      }
+      lock.writeLock().lock();
+      try {
+        if (!opened || log != source) {
+          compacting = false;
+          target.close(false);
+          Files.deleteIfExists(tempPath);
+          return;
+        }
+        // Records appended meanwhile are copied under the lock
+        int offset = copiedEnd;
+        while (offset < log.end) {
+          final Record record = log.read(offset).orElseThrow();
+          if (record.value != null || targetIndex.containsKey(record.key)) {
+            final int targetOffset = target.append(log.readRecord(offset, record.size));
+            final Integer previous =
+                record.value == null
+                    ? targetIndex.remove(record.key)
+                    : targetIndex.put(record.key, targetOffset);
+            if (previous != null) {
+              targetLiveBytes -= target.recordSize(previous);
+            }
+            if (record.value != null) {
+              targetLiveBytes += record.size;
+            }
+          }
+          offset += record.size;
+        }
+        target.force();
+        Files.move(tempPath, targetPath, StandardCopyOption.ATOMIC_MOVE);
+        target.path = targetPath;
+        final LogFile previous = log;
+        final Path previousPath = logPath(generation);
+        log = target;
+        index = targetIndex;
+        liveBytes = targetLiveBytes;
+        generation = targetGeneration;
+        compactionCount++;
+        logger.debug("Compacted log from {} to {} bytes", previous.end, log.end);
+        // Snapshot is of previous generation, it's ignored on open anyway
+        Files.deleteIfExists(directory.resolve(SNAPSHOT_FILE));
+        previous.close(false);
+        Files.delete(previousPath);
+        compacting = false;
+        // Many updates during compaction may leave the new log over the limit already
+        compactIfNeeded();
+      } finally {
+        lock.writeLock().unlock();
+      }
+    } catch (IOException | RuntimeException e) {
+      logger.error("Failed to compact log storage in " + directory, e);
+      lock.writeLock().lock();
+      try {
+        compacting = false;
+        if (target != null && log != target) {
+          target.close(false);
+          Files.deleteIfExists(tempPath);
+        }
+      } catch (IOException ex) {
+        logger.error("Failed to delete " + tempPath, ex);
+      } finally {
+        lock.writeLock().unlock();
+      }
+    }
+  }
+
+  /**
+   * Loads index from snapshot if it was saved for the current log generation
+   *
+   * @return log offset where the snapshot was taken, 0 if it's missing or invalid
+   */
+  private int loadSnapshot() throws IOException {
+    final Path path = directory.resolve(SNAPSHOT_FILE);
+    if (!Files.exists(path)) {
+      return 0;
+    }
+    final Map<Bytes, Integer> snapshot = new HashMap<>();
+    final int end;
+    long snapshotLiveBytes = 0;
+    final CRC32 crc = new CRC32();
+    try (DataInputStream in =
+        new DataInputStream(
+            new CheckedInputStream(
+                new BufferedInputStream(Files.newInputStream(path)), crc))) {
+      if (in.readInt() != SNAPSHOT_MAGIC || in.readLong() != generation) {
+        return 0;
+      }
+      end = in.readInt();
+      final int count = in.readInt();
+      if (end < 0 || end > log.getMappedSize() || count < 0) {
+        return 0;
+      }
+      for (int i = 0; i < count; i++) {
+        final byte[] key = new byte[in.readInt()];
+        in.readFully(key);
+        snapshot.put(Bytes.wrap(key), in.readInt());
+        snapshotLiveBytes += in.readInt();
+      }
+      final long expectedCrc = crc.getValue();
+      if (in.readLong() != expectedCrc) {
+        logger.warn("Corrupted index snapshot {}, reading the whole log", path);
+        return 0;
+      }
+    } catch (IOException | RuntimeException e) {
+      logger.warn("Failed to read index snapshot " + path + ", reading the whole log", e);
+      return 0;
+    }
+    index = snapshot;
+    liveBytes = snapshotLiveBytes;
+    return end;
+  }
+
+  private void saveSnapshot() throws IOException {
+    final Path path = directory.resolve(SNAPSHOT_FILE);
+    final Path tempPath = path.resolveSibling(SNAPSHOT_FILE + TEMP_SUFFIX);
+    final CRC32 crc = new CRC32();
+    try (DataOutputStream out =
+        new DataOutputStream(
+            new CheckedOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(tempPath)), crc))) {
+      out.writeInt(SNAPSHOT_MAGIC);
+      out.writeLong(generation);
+      out.writeInt(log.end);
+      out.writeInt(index.size());
+      for (Map.Entry<Bytes, Integer> entry : index.entrySet()) {
+        out.writeInt(entry.getKey().size());
+        out.write(entry.getKey().toArrayUnsafe());
+        out.writeInt(entry.getValue());
+        out.writeInt(log.recordSize(entry.getValue()));
+      }
+      out.writeLong(crc.getValue());
+    }
+    Files.move(
+        tempPath, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+  }
+
+  private Path logPath(long generation) {
+    return directory.resolve(LOG_PREFIX + generation + LOG_SUFFIX);
+  }
+
+  private static long generationOf(Path log) {
+    final String name = log.getFileName().toString();
+    return Long.parseLong(
+        name.substring(LOG_PREFIX.length(), name.length() - LOG_SUFFIX.length()));
+  }
+
+  /** Logs sorted by generation */
+  private List<Path> listLogs() throws IOException {
+    return listFiles(LOG_SUFFIX).stream()
+        .filter(path -> path.getFileName().toString().startsWith(LOG_PREFIX))
+        .sorted(Comparator.comparingLong(LogStorageSource::generationOf))
+        .collect(Collectors.toList());
+  }
+
+  private List<Path> listFiles(String suffix) throws IOException {
+    try (Stream<Path> files = Files.list(directory)) {
+      return files
+          .filter(path -> path.getFileName().toString().endsWith(suffix))
+          .collect(Collectors.toList());
+    }
+  }
+
+  private static class Record {
+    private static final int HEADER_SIZE = 2 * Integer.BYTES;
+    private static final int REMOVED = -1;
+
+    private final Bytes key;
+    private final Bytes value;
+    private final int size;
+
+    private Record(Bytes key, Bytes value, int size) {
+      this.key = key;
+      this.value = value;
+      this.size = size;
+    }
+
+    private static int size(int keyLength, int valueLength) {
+      return HEADER_SIZE + keyLength + Math.max(valueLength, 0) + Integer.BYTES;
+    }
+
+    private static byte[] encode(Bytes key, Bytes value) {
+      final int valueLength = value == null ? REMOVED : value.size();
+      final ByteBuffer buffer = ByteBuffer.allocate(size(key.size(), valueLength));
+      buffer.putInt(key.size()).putInt(valueLength).put(key.toArrayUnsafe());
+      if (value != null) {
+        buffer.put(value.toArrayUnsafe());
+      }
+      final CRC32 crc = new CRC32();
+      crc.update(buffer.array(), 0, buffer.position());
+      buffer.putInt((int) crc.getValue());
+      return buffer.array();
+    }
+  }
+
+  /** Log file mapped to memory, its mapping grows twice each time it's full */
+  private static class LogFile {
+    private static final int INITIAL_MAPPING_SIZE = 1 << 20;
+
+    private final FileChannel channel;
+    private final long fileSize;
+    private Path path;
+    private MappedByteBuffer buffer;
+    private int end = 0;
+
+    private LogFile(Path path, FileChannel channel, long fileSize, MappedByteBuffer buffer) {
+      this.path = path;
+      this.channel = channel;
+      this.fileSize = fileSize;
+      this.buffer = buffer;
+    }
+
+    private static LogFile open(Path path, boolean createNew) throws IOException {
+      final FileChannel channel =
+          FileChannel.open(
+              path,
+              StandardOpenOption.READ,
+              StandardOpenOption.WRITE,
+              createNew ? StandardOpenOption.CREATE_NEW : StandardOpenOption.CREATE);
+      final long fileSize = channel.size();
+      final long size = Math.max(fileSize, INITIAL_MAPPING_SIZE);
+      checkState(size <= Integer.MAX_VALUE, "Log file %s is too large", path);
+      return new LogFile(
+          path, channel, fileSize, channel.map(FileChannel.MapMode.READ_WRITE, 0, size));
+    }
+
+    /** @return offset of the appended record */
+    private int append(byte[] record) {
+      final int offset = end;
+      checkState((long) offset + record.length <= Integer.MAX_VALUE, "Log file %s is full", path);
+      if (offset + record.length > buffer.capacity()) {
+        final long size =
+            Math.min(Integer.MAX_VALUE, Math.max(2L * buffer.capacity(), offset + record.length));
+        try {
+          buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        } catch (IOException e) {
+          throw new UncheckedIOException("Failed to grow log file " + path, e);
+        }
+      }
+      buffer.duplicate().position(offset).put(record);
+      end = offset + record.length;
+      return offset;
+    }
+
+    /** Reads complete and valid record at `offset` */
+    private Optional<Record> read(int offset) {
+      final ByteBuffer view = buffer.duplicate();
+      if (offset > view.capacity() - Record.HEADER_SIZE) {
+        return Optional.empty();
+      }
+      final int keyLength = view.getInt(offset);
+      final int valueLength = view.getInt(offset + Integer.BYTES);
+      if (keyLength <= 0 || valueLength < Record.REMOVED) {
+        return Optional.empty();
+      }
+      final long size =
+          Record.HEADER_SIZE + (long) keyLength + Math.max(valueLength, 0) + Integer.BYTES;
+      if (offset + size > view.capacity()) {
+        return Optional.empty();
+      }
+      final byte[] content = new byte[(int) size - Integer.BYTES];
+      view.position(offset).get(content);
+      final CRC32 crc = new CRC32();
+      crc.update(content);
+      if (view.getInt() != (int) crc.getValue()) {
+        return Optional.empty();
+      }
+      final Bytes key = Bytes.wrap(content, Record.HEADER_SIZE, keyLength);
+      final Bytes value =
+          valueLength == Record.REMOVED
+              ? null
+              : Bytes.wrap(content, Record.HEADER_SIZE + keyLength, valueLength);
+      return Optional.of(new Record(key, value, (int) size));
+    }
+
+    private Bytes readValue(int offset) {
+      final ByteBuffer view = buffer.duplicate();
+      final int keyLength = view.getInt(offset);
+      final byte[] value = new byte[view.getInt(offset + Integer.BYTES)];
+      view.position(offset + Record.HEADER_SIZE + keyLength).get(value);
+      return Bytes.wrap(value);
+    }
+
+    private byte[] readRecord(int offset, int size) {
+      final byte[] record = new byte[size];
+      buffer.duplicate().position(offset).get(record);
+      return record;
+    }
+
+    private int recordSize(int offset) {
+      return Record.size(buffer.getInt(offset), buffer.getInt(offset + Integer.BYTES));
+    }
+
+    private int getMappedSize() {
+      return buffer.capacity();
+    }
+
+    /**
+     * Sets end of the log to `end` and zeroes the rest of the file, so incomplete records left by a
+     * crash are never read as part of records appended later
+     */
+    private void discardAfter(int end) {
+      this.end = end;
+      final int tailEnd = (int) Math.min(fileSize, buffer.capacity());
+      final ByteBuffer view = buffer.duplicate();
+      for (int position = end; position < tailEnd; position++) {
+        view.put(position, (byte) 0);
+      }
+    }
+
+    private void force() {
+      buffer.force();
+    }
+
+    /** @param trim whether to drop the unused tail of the mapping from the file */
+    private void close(boolean trim) throws IOException {
+      if (trim) {
+        channel.truncate(end);
+      }
+      channel.close();
+    }
+  }
+}
@@ -0,0 +1,134 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.ethereum.beacon.discovery.database;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import javax.annotation.Nonnull;
+
+/**
+ * Keeps updates in memory and writes them to upstream later, all at once with {@link
+ * BatchUpdateDataSource#batchUpdate(Map)} if upstream supports it. Several updates of one key
+ * between writes result in a single upstream update. Pending values are the primary copy: they are
+ * returned by {@link #get(Object)} as is, without upstream round trip, until written. Values are
+ * kept by reference and written by the flusher thread, so they must not be changed after {@link
+ * #put(Object, Object)}: changed value should be put as a new instance.
+ *
+ * <p>Writes are driven by {@link WriteBehindFlusher}, which is notified when number of pending keys
+ * reaches its threshold. {@link #flush()} writes pending updates of all sources of the flusher
+ * immediately.
+ */
+public class WriteBehindDataSource<KeyType, ValueType>
+    extends AbstractLinkedDataSource<KeyType, ValueType, KeyType, ValueType> {
+  private final int flushThreshold;
+  private final WriteBehindFlusher flusher;
+  /** Shared by all sources of the flusher, so their pending updates are taken at once */
+  private final Object lock;
+  private Map<KeyType, Optional<ValueType>> pending = new HashMap<>();
+  private Map<KeyType, Optional<ValueType>> writing = Collections.emptyMap();
+
+  WriteBehindDataSource(
+      @Nonnull final DataSource<KeyType, ValueType> upstreamSource,
+      final int flushThreshold,
+      final WriteBehindFlusher flusher) {
+    super(upstreamSource, true);
+    this.flushThreshold = flushThreshold;
+    this.flusher = flusher;
+    this.lock = flusher.getUpdateLock();
+  }
+
+  @Override
+  public Optional<ValueType> get(@Nonnull final KeyType key) {
+    synchronized (lock) {
+      Optional<ValueType> value = pending.get(key);
+      if (value == null) {
+        value = writing.get(key);
+      }
+      if (value != null) {
+        return value;
+      }
+    }
+    // Updates leave `writing` only after upstream has them
+    return getUpstream().get(key);
+  }
+
+  @Override
+  public void put(@Nonnull final KeyType key, @Nonnull final ValueType value) {
+    update(key, Optional.of(value));
+  }
+
+  @Override
+  public void remove(@Nonnull final KeyType key) {
+    update(key, Optional.empty());
+  }
+
+  private void update(final KeyType key, final Optional<ValueType> value) {
+    final boolean thresholdReached;
+    synchronized (lock) {
+      pending.put(key, value);
+      thresholdReached = pending.size() == flushThreshold;
+    }
+    if (thresholdReached) {
+      flusher.requestFlush();
+    }
+  }
+
+  /** Number of keys with updates not yet written to upstream */
+  public int getPendingCount() {
+    synchronized (lock) {
+      return pending.size();
+    }
+  }
+
+  @Override
+  protected void doFlush() {
+    flusher.writePending();
+  }
+
+  /**
+   * Moves pending updates to the batch to be written by {@link #writeTaken()}. Should be called
+   * with update lock of the flusher held.
+   *
+   * @return number of keys taken
+   */
+  int takePending() {
+    if (pending.isEmpty()) {
+      return 0;
+    }
+    writing = pending;
+    pending = new HashMap<>();
+    return writing.size();
+  }
+
+  /** Writes the batch taken by {@link #takePending()} to upstream */
+  void writeTaken() {
+    final Map<KeyType, Optional<ValueType>> batch;
+    synchronized (lock) {
+      batch = writing;
+    }
+    if (batch.isEmpty()) {
+      return;
+    }
+    final Map<KeyType, ValueType> updates = new HashMap<>();
+    batch.forEach((key, value) -> updates.put(key, value.orElse(null)));
+    BatchUpdateDataSource.updateAll(getUpstream(), updates);
+  }
+
+  /**
+   * Forgets the batch taken by {@link #takePending()}, returning its updates to pending ones if it
+   * was not written
+   */
+  void releaseTaken(final boolean written) {
+    synchronized (lock) {
+      if (!written) {
+        // Updates made meanwhile are newer, the rest is retried on next write
+        writing.forEach(pending::putIfAbsent);
+      }
+      writing = Collections.emptyMap();
+    }
+  }
+}
@@ -0,0 +1,176 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.ethereum.beacon.discovery.database;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.ethereum.beacon.discovery.scheduler.Scheduler;
+
+/**
+ * Writes updates collected by {@link WriteBehindDataSource}s to their upstreams every {@link
+ * #DEFAULT_INTERVAL} or as soon as one of them has {@link #DEFAULT_THRESHOLD} pending keys.
+ *
+ * <p>Pending updates of all sources are taken at once, so no update can be taken before another
+ * update made earlier. Then sources are written one by one in the order they were created, and
+ * each source is written only after the previous one has succeeded. So if source created later
+ * references entries of source created earlier, like index references records, and entries are
+ * updated before references to them, after a crash storage may lose recent updates, but never has
+ * references to entries which were not written.
+ */
+public class WriteBehindFlusher {
+  public static final Duration DEFAULT_INTERVAL = Duration.ofSeconds(5);
+  public static final int DEFAULT_THRESHOLD = 1024;
+
+  private static final Logger logger = LogManager.getLogger(WriteBehindFlusher.class);
+  private final Scheduler scheduler;
+  private final int threshold;
+  private final List<WriteBehindDataSource<?, ?>> sources = new CopyOnWriteArrayList<>();
+  private final AtomicBoolean flushRequested = new AtomicBoolean();
+  private final Object updateLock = new Object();
+  private long flushCount = 0;
+  private long failedFlushCount = 0;
+  private long writtenCount = 0;
+  private int lastBatchSize = 0;
+  private int maxBatchSize = 0;
+  private long lastFlushNanos = 0;
+  private long maxFlushNanos = 0;
+
+  public WriteBehindFlusher(Scheduler scheduler) {
+    this(scheduler, DEFAULT_INTERVAL, DEFAULT_THRESHOLD);
+  }
+
+  public WriteBehindFlusher(Scheduler scheduler, Duration interval, int threshold) {
+    checkArgument(!interval.isNegative() && !interval.isZero(), "Interval should be positive");
+    checkArgument(threshold > 0, "Threshold should be positive");
+    this.scheduler = scheduler;
+    this.threshold = threshold;
+    scheduler.executeAtFixedRate(interval, interval, this::flush);
+  }
+
+  /** Wraps `upstream` so updates to it are written by this flusher */
+  public <K, V> DataSource<K, V> writeBehind(DataSource<K, V> upstream) {
+    final WriteBehindDataSource<K, V> source =
+        new WriteBehindDataSource<>(upstream, threshold, this);
+    sources.add(source);
+    return source;
+  }
+
+  void requestFlush() {
+    if (flushRequested.compareAndSet(false, true)) {
+      scheduler.execute(this::flush);
+    }
+  }
+
+  /**
+   * Writes pending updates of all sources in their creation order, stops at the first failed
+   * source leaving the rest for the next flush
+   */
+  public synchronized void flush() {
+    flushRequested.set(false);
+    final long start = System.nanoTime();
+    final int batchSize;
+    try {
+      batchSize = writePending();
+    } catch (RuntimeException e) {
+      failedFlushCount++;
+      logger.error("Failed to write pending updates to storage", e);
+      return;
+    }
+    if (batchSize == 0) {
+      return;
+    }
+    final long nanos = System.nanoTime() - start;
+    flushCount++;
+    writtenCount += batchSize;
+    lastBatchSize = batchSize;
+    maxBatchSize = Math.max(maxBatchSize, batchSize);
+    lastFlushNanos = nanos;
+    maxFlushNanos = Math.max(maxFlushNanos, nanos);
+  }
+
+  /**
+   * Takes pending updates of all sources at once and writes them
+   *
+   * @return number of keys written
+   */
+  synchronized int writePending() {
+    final List<WriteBehindDataSource<?, ?>> taken;
+    int batchSize = 0;
+    synchronized (updateLock) {
+      taken = new ArrayList<>(sources);
+      for (WriteBehindDataSource<?, ?> source : taken) {
+        batchSize += source.takePending();
+      }
+    }
+    if (batchSize == 0) {
+      return 0;
+    }
+    int written = 0;
+    try {
+      for (WriteBehindDataSource<?, ?> source : taken) {
+        source.writeTaken();
+        written++;
+      }
+    } finally {
+      for (int i = 0; i < taken.size(); i++) {
+        taken.get(i).releaseTaken(i < written);
+      }
+    }
+    return batchSize;
+  }
+
+  Object getUpdateLock() {
+    return updateLock;
+  }
+
+  /** Number of keys with updates not yet written in all sources */
+  public int getPendingCount() {
+    int pending = 0;
+    for (WriteBehindDataSource<?, ?> source : sources) {
+      pending += source.getPendingCount();
+    }
+    return pending;
+  }
+
+  /** Number of flushes which wrote anything */
+  public synchronized long getFlushCount() {
+    return flushCount;
+  }
+
+  /** Number of flushes stopped by storage failure */
+  public synchronized long getFailedFlushCount() {
+    return failedFlushCount;
+  }
+
+  /** Total number of keys written */
+  public synchronized long getWrittenCount() {
+    return writtenCount;
+  }
+
+  /** Number of keys written by the last flush which wrote anything */
+  public synchronized int getLastBatchSize() {
+    return lastBatchSize;
+  }
+
+  public synchronized int getMaxBatchSize() {
+    return maxBatchSize;
+  }
+
+  /** Duration of the last flush which wrote anything, in nanoseconds */
+  public synchronized long getLastFlushNanos() {
+    return lastFlushNanos;
+  }
+
+  public synchronized long getMaxFlushNanos() {
+    return maxFlushNanos;
+  }
+}
@@ -69,8 +69,8 @@ public class FindNodeHandler implements MessageHandler<FindNodeMessage> {
                 MessagePacket.create(
                     session.getHomeNodeId(),
                     session.getNodeId(),
-                    session.getAuthTag().orElseThrow(),
-                    session.getInitiatorKey(),
+                    session.generateNonce(),
+                    session.getInitiatorCipherKey(),
                     DiscoveryV5Message.from(
                         new NodesMessage(
                             message.getRequestId(),
@@ -15,7 +15,7 @@ import org.ethereum.beacon.discovery.schema.NodeRecordInfo;
 import org.ethereum.beacon.discovery.schema.NodeSession;
 import org.ethereum.beacon.discovery.task.TaskStatus;
 import org.ethereum.beacon.discovery.task.TaskType;
-import org.ethereum.beacon.discovery.util.Functions;
+import org.ethereum.beacon.discovery.type.NodeId;
 
 public class NodesHandler implements MessageHandler<NodesMessage> {
   private static final Logger logger = LogManager.getLogger(NodesHandler.class);
@@ -78,7 +78,7 @@ public class NodesHandler implements MessageHandler<NodesMessage> {
       final NodeSession session,
       final FindNodeRequestInfo requestInfo,
       final NodeRecord nodeRecordV5) {
-    final int actualDistance = Functions.logDistance(nodeRecordV5.getNodeId(), session.getNodeId());
+    final int actualDistance = NodeId.logDistance(nodeRecordV5.getNodeId(), session.getNodeId());
     final int requestedDistance = requestInfo.getDistance();
     if (actualDistance != requestedDistance) {
       logger.debug(
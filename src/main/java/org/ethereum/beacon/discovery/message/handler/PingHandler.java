@@ -28,8 +28,8 @@ public class PingHandler implements MessageHandler<PingMessage> {
         MessagePacket.create(
             session.getHomeNodeId(),
             session.getNodeId(),
-            session.getAuthTag().get(),
-            session.getInitiatorKey(),
+            session.generateNonce(),
+            session.getInitiatorCipherKey(),
             DiscoveryV5Message.from(responseMessage)));
   }
 }
@@ -5,6 +5,7 @@
 package org.ethereum.beacon.discovery.network;
 
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.socket.DatagramPacket;
 import io.netty.handler.codec.MessageToMessageDecoder;
@@ -13,14 +14,21 @@ import org.apache.tuweni.bytes.Bytes;
 import org.ethereum.beacon.discovery.pipeline.Envelope;
 import org.ethereum.beacon.discovery.pipeline.Field;
 
-/** UDP Packet -> BytesValue converter with default Netty interface */
+/**
+ * UDP Packet -> BytesValue converter with default Netty interface.
+ *
+ * <p>Datagram is read by Netty into a pooled direct buffer which is released right after decoding.
+ * Its content is copied exactly once into an array owned by the resulting {@link Bytes}. It's not
+ * wrapped as a view released after the pipeline: slices of the packet outlive the pipeline pass,
+ * like the auth tag kept by the session or packets held during an offloaded handshake, and the
+ * pipeline has no point where a packet is known to be done with.
+ */
 public class DatagramToEnvelope extends MessageToMessageDecoder<DatagramPacket> {
   @Override
   protected void decode(ChannelHandlerContext ctx, DatagramPacket msg, List<Object> out) {
     final Envelope envelope = new Envelope();
     final ByteBuf buf = msg.content();
-    final byte[] data = new byte[buf.readableBytes()];
-    buf.readBytes(data);
+    final byte[] data = ByteBufUtil.getBytes(buf, buf.readerIndex(), buf.readableBytes(), true);
     envelope.put(Field.INCOMING, Bytes.wrap(data));
     envelope.put(Field.REMOTE_SENDER, msg.sender());
     out.add(envelope);
@@ -0,0 +1,47 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.ethereum.beacon.discovery.network;
+
+import java.time.Duration;
+
+/**
+ * Defines how outgoing datagrams are flushed to the socket. Datagrams are written without flushing
+ * and flushed together once per event loop pass or every <code>batchSize</code> datagrams. Writing
+ * could be deferred for up to <code>maxDelay</code> to let more datagrams join the batch, so
+ * several-packet responses leave in a single flush.
+ */
+public class FlushPolicy {
+  /** Flush per event loop pass or every 32 datagrams, no extra delay */
+  public static final FlushPolicy DEFAULT = new FlushPolicy(32, Duration.ZERO);
+  /** Flush every datagram on its own */
+  public static final FlushPolicy IMMEDIATE = new FlushPolicy(1, Duration.ZERO);
+
+  private final int batchSize;
+  private final Duration maxDelay;
+
+  public FlushPolicy(int batchSize, Duration maxDelay) {
+    if (batchSize < 1) {
+      throw new IllegalArgumentException("Flush batch size should be positive, got " + batchSize);
+    }
+    if (maxDelay.isNegative()) {
+      throw new IllegalArgumentException("Flush delay should not be negative, got " + maxDelay);
+    }
+    this.batchSize = batchSize;
+    this.maxDelay = maxDelay;
+  }
+
+  public int getBatchSize() {
+    return batchSize;
+  }
+
+  public Duration getMaxDelay() {
+    return maxDelay;
+  }
+
+  @Override
+  public String toString() {
+    return "FlushPolicy{" + "batchSize=" + batchSize + ", maxDelay=" + maxDelay + '}';
+  }
+}
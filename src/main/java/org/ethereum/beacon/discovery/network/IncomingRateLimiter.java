@@ -0,0 +1,226 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.ethereum.beacon.discovery.network;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.channel.ChannelHandler.Sharable;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.socket.DatagramPacket;
+import io.netty.util.ReferenceCountUtil;
+import java.net.InetAddress;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.tuweni.bytes.Bytes;
+import org.ethereum.beacon.discovery.packet.NodeIdHashCache;
+import org.ethereum.beacon.discovery.packet.UnknownPacket;
+
+/**
+ * Drops incoming datagrams exceeding rate limits before they become {@link
+ * org.ethereum.beacon.discovery.pipeline.Envelope}s, so one source can't force unlimited session
+ * creation, WHOAREYOU replies and handshake cryptography.
+ *
+ * <p>Packets are told apart by their first bytes without decoding: WHOAREYOU magic or an auth
+ * header list after the tag mean a handshake packet, anything else is a message packet. Random
+ * packets look like message packets, so they pass with a message token here and then, when they
+ * turn out to initiate a handshake, the pipeline takes a handshake token with {@link
+ * #tryAcquireChallenge} before answering with WHOAREYOU. Each kind has its own {@link Budget},
+ * applied with a token bucket per remote IP address and, for tagged packets, another one per
+ * claimed source node id recovered from the tag. Buckets are kept in size bounded LRU tables, an
+ * evicted source starts with full bucket again.
+ */
+@Sharable
+public class IncomingRateLimiter extends ChannelInboundHandlerAdapter {
+  private static final Logger logger = LogManager.getLogger(IncomingRateLimiter.class);
+  private static final int TAG_SIZE = 32;
+  private static final int MAX_TRACKED_SOURCES = 65536;
+  private static final int IDLE_EXPIRATION_SECONDS = 60;
+
+  /** Sustained rate and burst of packets from one source */
+  public static class Budget {
+    /** Handshake packets from one source: handshakes are rare and expensive */
+    public static final Budget DEFAULT_HANDSHAKE = new Budget(20, 40);
+    /** Message packets from one source: lookups produce short bursts of requests and responses */
+    public static final Budget DEFAULT_MESSAGE = new Budget(500, 1000);
+
+    private final double packetsPerSecond;
+    private final int burst;
+
+    public Budget(double packetsPerSecond, int burst) {
+      checkArgument(packetsPerSecond > 0, "Packets per second should be positive");
+      checkArgument(burst > 0, "Burst should be positive");
+      this.packetsPerSecond = packetsPerSecond;
+      this.burst = burst;
+    }
+
+    public double getPacketsPerSecond() {
+      return packetsPerSecond;
+    }
+
+    public int getBurst() {
+      return burst;
+    }
+  }
+
+  private final Bytes homeNodeId;
+  private final Budget handshakeBudget;
+  private final Budget messageBudget;
+  private final LongSupplier nanoClock;
+  private final Cache<InetAddress, TokenBucket> addressHandshakeBuckets = createTable();
+  private final Cache<InetAddress, TokenBucket> addressMessageBuckets = createTable();
+  private final Cache<Bytes, TokenBucket> nodeHandshakeBuckets = createTable();
+  private final Cache<Bytes, TokenBucket> nodeMessageBuckets = createTable();
+  private final LongAdder passed = new LongAdder();
+  private final LongAdder droppedHandshakes = new LongAdder();
+  private final LongAdder droppedMessages = new LongAdder();
+
+  public IncomingRateLimiter(Bytes homeNodeId) {
+    this(homeNodeId, Budget.DEFAULT_HANDSHAKE, Budget.DEFAULT_MESSAGE);
+  }
+
+  public IncomingRateLimiter(Bytes homeNodeId, Budget handshakeBudget, Budget messageBudget) {
+    this(homeNodeId, handshakeBudget, messageBudget, System::nanoTime);
+  }
+
+  IncomingRateLimiter(
+      Bytes homeNodeId, Budget handshakeBudget, Budget messageBudget, LongSupplier nanoClock) {
+    this.homeNodeId = homeNodeId;
+    this.handshakeBudget = handshakeBudget;
+    this.messageBudget = messageBudget;
+    this.nanoClock = nanoClock;
+  }
+
+  private static <K> Cache<K, TokenBucket> createTable() {
+    return CacheBuilder.newBuilder()
+        .maximumSize(MAX_TRACKED_SOURCES)
+        .expireAfterAccess(IDLE_EXPIRATION_SECONDS, TimeUnit.SECONDS)
+        .build();
+  }
+
+  @Override
+  public void channelRead(ChannelHandlerContext ctx, Object msg) {
+    if (msg instanceof DatagramPacket) {
+      DatagramPacket packet = (DatagramPacket) msg;
+      if (!tryAcquire(packet.sender().getAddress(), packet.content())) {
+        logger.trace(
+            () -> String.format("Rate limit exceeded, dropping packet from %s", packet.sender()));
+        ReferenceCountUtil.release(msg);
+        return;
+      }
+    }
+    ctx.fireChannelRead(msg);
+  }
+
+  /** Takes a token for `packet` from `address` and returns whether packet should be processed */
+  public boolean tryAcquire(InetAddress address, ByteBuf packet) {
+    final long now = nanoClock.getAsLong();
+    final int start = packet.readerIndex();
+    if (packet.readableBytes() <= TAG_SIZE) {
+      // Too short to be valid, costs message token from address only
+      return count(take(addressMessageBuckets, address, messageBudget, now), false);
+    }
+    final Bytes head = Bytes.wrap(ByteBufUtil.getBytes(packet, start, TAG_SIZE, true));
+    if (head.equals(NodeIdHashCache.whoAreYouMagic(homeNodeId))) {
+      // WHOAREYOU doesn't carry source node id
+      return count(take(addressHandshakeBuckets, address, handshakeBudget, now), true);
+    }
+    final Bytes claimedNodeId = NodeIdHashCache.hash(homeNodeId).xor(head);
+    if ((packet.getByte(start + TAG_SIZE) & 0xff) >= UnknownPacket.RLP_LIST_PREFIX) {
+      return count(
+          take(addressHandshakeBuckets, address, handshakeBudget, now)
+              && take(nodeHandshakeBuckets, claimedNodeId, handshakeBudget, now),
+          true);
+    }
+    return count(
+        take(addressMessageBuckets, address, messageBudget, now)
+            && take(nodeMessageBuckets, claimedNodeId, messageBudget, now),
+        false);
+  }
+
+  /**
+   * Takes a handshake token for answering packet from `address` claiming `nodeId` with WHOAREYOU
+   * and returns whether it should be answered
+   */
+  public boolean tryAcquireChallenge(InetAddress address, Bytes nodeId) {
+    final long now = nanoClock.getAsLong();
+    return count(
+        take(addressHandshakeBuckets, address, handshakeBudget, now)
+            && take(nodeHandshakeBuckets, nodeId, handshakeBudget, now),
+        true);
+  }
+
+  private static <K> boolean take(Cache<K, TokenBucket> buckets, K key, Budget budget, long now) {
+    return buckets
+        .asMap()
+        .computeIfAbsent(key, unused -> new TokenBucket(budget, now))
+        .tryTake(now);
+  }
+
+  private boolean count(boolean passes, boolean handshake) {
+    if (passes) {
+      passed.increment();
+    } else if (handshake) {
+      droppedHandshakes.increment();
+    } else {
+      droppedMessages.increment();
+    }
+    return passes;
+  }
+
+  public long getPassedCount() {
+    return passed.sum();
+  }
+
+  public long getDroppedHandshakeCount() {
+    return droppedHandshakes.sum();
+  }
+
+  public long getDroppedMessageCount() {
+    return droppedMessages.sum();
+  }
+
+  /** Number of buckets kept over all tables, each table is bounded separately */
+  public long getTrackedSourcesCount() {
+    return addressHandshakeBuckets.size()
+        + addressMessageBuckets.size()
+        + nodeHandshakeBuckets.size()
+        + nodeMessageBuckets.size();
+  }
+
+  /** Bucket refilled lazily on access, shared by event loops of all sockets */
+  private static class TokenBucket {
+    private final double tokensPerNano;
+    private final double capacity;
+    private double tokens;
+    private long lastRefill;
+
+    private TokenBucket(Budget budget, long now) {
+      this.tokensPerNano = budget.getPacketsPerSecond() / TimeUnit.SECONDS.toNanos(1);
+      this.capacity = budget.getBurst();
+      this.tokens = capacity;
+      this.lastRefill = now;
+    }
+
+    private synchronized boolean tryTake(long now) {
+      if (now > lastRefill) {
+        tokens = Math.min(capacity, tokens + (now - lastRefill) * tokensPerNano);
+        lastRefill = now;
+      }
+      if (tokens < 1) {
+        return false;
+      }
+      tokens -= 1;
+      return true;
+    }
+  }
+}
@@ -4,44 +4,189 @@
 
 package org.ethereum.beacon.discovery.network;
 
-import io.netty.buffer.Unpooled;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.EventLoop;
+import io.netty.channel.socket.DatagramChannel;
 import io.netty.channel.socket.DatagramPacket;
-import io.netty.channel.socket.nio.NioDatagramChannel;
 import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.apache.tuweni.bytes.Bytes;
 import org.reactivestreams.Publisher;
 import reactor.core.publisher.Flux;
 
-/** Netty discovery UDP client */
+/**
+ * Netty discovery UDP client.
+ *
+ * <p>Outgoing parcels are put into the bounded {@link OutgoingParcelQueue}, in a lane per channel,
+ * and each lane is drained on the event loop of its channel while the channel stays writable. When
+ * Netty outbound buffer of a channel is over its high water mark, draining of its lane pauses until
+ * the channel becomes writable again, so the queue overflow policy applies instead of unbounded
+ * buffering. Drained datagrams are written without flushing and flushed in batches according to
+ * {@link FlushPolicy}.
+ */
 public class NettyDiscoveryClientImpl implements DiscoveryClient {
   private static final Logger logger = LogManager.getLogger(NettyDiscoveryClientImpl.class);
-  private NioDatagramChannel channel;
+  private final DatagramChannel[] channels;
+  private final OutgoingParcelQueue outgoingQueue;
+  private final FlushPolicy flushPolicy;
+  private final long flushDelayNanos;
+  private final ChannelDrain[] drains;
 
   /**
    * Constructs UDP client using
    *
    * @param outgoingStream Stream of outgoing packets, client will forward them to the channel
-   * @param channel Nio channel
+   * @param channel Datagram channel
+   */
+  public NettyDiscoveryClientImpl(
+      Publisher<NetworkParcel> outgoingStream, DatagramChannel channel) {
+    this(outgoingStream, List.of(channel), new OutgoingParcelQueue(), FlushPolicy.DEFAULT);
+  }
+
+  /**
+   * Constructs UDP client using several channels bound to the same port. Each destination is
+   * always served by the same channel, so packets to the same peer are not reordered.
+   *
+   * @param outgoingStream Stream of outgoing packets, client will forward them to the channels
+   * @param channels Datagram channels
+   * @param outgoingQueue Queue buffering outgoing packets until channels are writable
+   * @param flushPolicy Batching of channel flushes
    */
   public NettyDiscoveryClientImpl(
-      Publisher<NetworkParcel> outgoingStream, NioDatagramChannel channel) {
-    this.channel = channel;
+      Publisher<NetworkParcel> outgoingStream,
+      List<DatagramChannel> channels,
+      OutgoingParcelQueue outgoingQueue,
+      FlushPolicy flushPolicy) {
+    if (channels.isEmpty()) {
+      throw new IllegalArgumentException("At least one channel is required");
+    }
+    this.channels = channels.toArray(new DatagramChannel[0]);
+    this.outgoingQueue = outgoingQueue;
+    this.flushPolicy = flushPolicy;
+    this.flushDelayNanos = flushPolicy.getMaxDelay().toNanos();
+    this.drains = new ChannelDrain[this.channels.length];
+    for (int i = 0; i < this.channels.length; i++) {
+      final ChannelDrain drain = new ChannelDrain(i, this.channels[i]);
+      drains[i] = drain;
+      this.channels[i]
+          .pipeline()
+          .addLast(
+              new ChannelInboundHandlerAdapter() {
+                @Override
+                public void channelWritabilityChanged(ChannelHandlerContext ctx) {
+                  if (ctx.channel().isWritable()) {
+                    drain.schedule();
+                  }
+                  ctx.fireChannelWritabilityChanged();
+                }
+              });
+    }
+    outgoingQueue.setLanes(this.channels.length, this::selectChannelIndex);
+    outgoingQueue.setNotEmptyListener(lane -> drains[lane].schedule());
     Flux.from(outgoingStream)
-        .subscribe(
-            networkPacket ->
-                send(networkPacket.getPacket().getBytes(), networkPacket.getDestination()));
+        .subscribe(networkPacket -> outgoingQueue.offer(networkPacket, !isNetworkThread()));
     logger.info("UDP discovery client started");
   }
 
+  private boolean isNetworkThread() {
+    for (DatagramChannel channel : channels) {
+      if (channel.eventLoop().inEventLoop()) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /** Drains lane of the queue to one channel on the event loop of the channel */
+  private class ChannelDrain {
+    private final int lane;
+    private final DatagramChannel channel;
+    private final EventLoop eventLoop;
+    private final AtomicBoolean drainScheduled = new AtomicBoolean(false);
+    private final AtomicBoolean immediateDrainScheduled = new AtomicBoolean(false);
+
+    private ChannelDrain(int lane, DatagramChannel channel) {
+      this.lane = lane;
+      this.channel = channel;
+      this.eventLoop = channel.eventLoop();
+    }
+
+    private void schedule() {
+      if (flushDelayNanos > 0 && outgoingQueue.getDepth(lane) >= flushPolicy.getBatchSize()) {
+        // full batch is ready, no reason to wait for the delayed drain
+        if (immediateDrainScheduled.compareAndSet(false, true)) {
+          eventLoop.execute(this::drain);
+        }
+        return;
+      }
+      if (drainScheduled.compareAndSet(false, true)) {
+        if (flushDelayNanos > 0) {
+          eventLoop.schedule(this::drain, flushDelayNanos, TimeUnit.NANOSECONDS);
+        } else {
+          eventLoop.execute(this::drain);
+        }
+      }
+    }
+
+    private void drain() {
+      drainScheduled.set(false);
+      immediateDrainScheduled.set(false);
+      int unflushed = 0;
+      NetworkParcel parcel;
+      while (channel.isWritable() && (parcel = outgoingQueue.poll(lane)) != null) {
+        write(channel, parcel.getPacket().getBytes(), parcel.getDestination());
+        if (++unflushed >= flushPolicy.getBatchSize()) {
+          channel.flush();
+          unflushed = 0;
+        }
+      }
+      if (unflushed > 0) {
+        channel.flush();
+      }
+    }
+  }
+
+  public OutgoingParcelQueue getOutgoingQueue() {
+    return outgoingQueue;
+  }
+
   @Override
   public void stop() {}
 
   @Override
   public void send(Bytes data, InetSocketAddress destination) {
-    DatagramPacket packet = new DatagramPacket(Unpooled.copiedBuffer(data.toArray()), destination);
+    final DatagramChannel channel = selectChannel(destination);
+    write(channel, data, destination);
+    channel.flush();
+  }
+
+  /**
+   * Encodes data straight into a pooled direct buffer of the channel allocator, which is released
+   * by Netty once the datagram is written, so the only copy is the one into socket-ready memory.
+   * Datagram leaves on the next channel flush.
+   */
+  private void write(DatagramChannel channel, Bytes data, InetSocketAddress destination) {
+    final ByteBuf buf = channel.alloc().directBuffer(data.size());
+    buf.writeBytes(data.toArrayUnsafe());
+    DatagramPacket packet = new DatagramPacket(buf, destination);
     logger.trace(() -> String.format("Sending packet %s", packet));
-    channel.writeAndFlush(packet);
+    channel.write(packet);
+  }
+
+  private DatagramChannel selectChannel(InetSocketAddress destination) {
+    return channels[selectChannelIndex(destination)];
+  }
+
+  private int selectChannelIndex(InetSocketAddress destination) {
+    if (channels.length == 1) {
+      return 0;
+    }
+    return Math.floorMod(destination.hashCode(), channels.length);
   }
 }
@@ -4,12 +4,15 @@
 
 package org.ethereum.beacon.discovery.network;
 
-import io.netty.channel.socket.nio.NioDatagramChannel;
+import io.netty.channel.socket.DatagramChannel;
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
 
-/** Netty-specific extension of {@link DiscoveryServer}. Made to reuse server channel for client. */
+/**
+ * Netty-specific extension of {@link DiscoveryServer}. Made to reuse server channels for client.
+ */
 public interface NettyDiscoveryServer extends DiscoveryServer {
 
   @Override
-  CompletableFuture<NioDatagramChannel> start();
+  CompletableFuture<List<DatagramChannel>> start();
 }
@@ -5,18 +5,29 @@
 package org.ethereum.beacon.discovery.network;
 
 import io.netty.bootstrap.Bootstrap;
+import io.netty.buffer.PooledByteBufAllocator;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelInitializer;
 import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollChannelOption;
+import io.netty.channel.epoll.EpollDatagramChannel;
+import io.netty.channel.epoll.EpollEventLoopGroup;
 import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.DatagramChannel;
 import io.netty.channel.socket.nio.NioDatagramChannel;
 import io.netty.handler.logging.LogLevel;
 import io.netty.handler.logging.LoggingHandler;
 import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.Executors;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.ethereum.beacon.discovery.pipeline.Envelope;
@@ -24,47 +35,101 @@ import org.reactivestreams.Publisher;
 import reactor.core.publisher.FluxSink;
 import reactor.core.publisher.ReplayProcessor;
 
+/**
+ * UDP discovery server.
+ *
+ * <p>When native epoll transport is available and more than one socket is requested, binds
+ * <code>socketCount</code> sockets to the same port with <code>SO_REUSEPORT</code>, each served by
+ * its own single-threaded event loop, so the kernel spreads incoming datagrams across cores.
+ * Otherwise falls back to a single NIO socket.
+ */
 public class NettyDiscoveryServerImpl implements NettyDiscoveryServer {
   private static final Logger logger = LogManager.getLogger(NettyDiscoveryServerImpl.class);
   private static final int RECREATION_TIMEOUT = 5000;
   private final ReplayProcessor<Envelope> incomingPackets = ReplayProcessor.cacheLast();
   private final FluxSink<Envelope> incomingSink = incomingPackets.sink();
   private final InetSocketAddress listenAddress;
+  private final int socketCount;
+  private final Optional<IncomingRateLimiter> rateLimiter;
   private AtomicBoolean listen = new AtomicBoolean(false);
-  private Channel channel;
-  private NioEventLoopGroup nioGroup;
+  private final List<Channel> channels = new CopyOnWriteArrayList<>();
+  private final List<EventLoopGroup> groups = new ArrayList<>();
 
   public NettyDiscoveryServerImpl(InetSocketAddress listenAddress) {
+    this(listenAddress, 1, Optional.empty());
+  }
+
+  /**
+   * @param listenAddress UDP address to bind to
+   * @param socketCount number of sockets bound to the same port, honoured only with native epoll
+   *     transport available, otherwise single NIO socket is used
+   * @param rateLimiter limiter dropping excessive datagrams before they are decoded, shared by all
+   *     sockets
+   */
+  public NettyDiscoveryServerImpl(
+      InetSocketAddress listenAddress,
+      int socketCount,
+      Optional<IncomingRateLimiter> rateLimiter) {
+    if (socketCount < 1) {
+      throw new IllegalArgumentException("Socket count should be positive, got " + socketCount);
+    }
     this.listenAddress = listenAddress;
+    this.socketCount = socketCount;
+    this.rateLimiter = rateLimiter;
   }
 
   @Override
-  public CompletableFuture<NioDatagramChannel> start() {
-    logger.info("Starting discovery server on UDP port {}", listenAddress.getPort());
+  public CompletableFuture<List<DatagramChannel>> start() {
     if (!listen.compareAndSet(false, true)) {
       return CompletableFuture.failedFuture(
           new IllegalStateException("Attempted to start an already started server"));
     }
-    nioGroup = new NioEventLoopGroup(1);
-    return startServer(nioGroup);
+    final boolean useEpoll = socketCount > 1 && Epoll.isAvailable();
+    if (socketCount > 1 && !useEpoll) {
+      logger.warn(
+          "Native epoll transport is not available, falling back to single NIO socket",
+          Epoll.unavailabilityCause());
+    }
+    final int sockets = useEpoll ? socketCount : 1;
+    logger.info(
+        "Starting discovery server on UDP port {} with {} {} socket(s)",
+        listenAddress.getPort(),
+        sockets,
+        useEpoll ? "epoll" : "NIO");
+    List<CompletableFuture<DatagramChannel>> futures = new ArrayList<>();
+    for (int i = 0; i < sockets; i++) {
+      final EventLoopGroup group =
+          useEpoll ? new EpollEventLoopGroup(1) : new NioEventLoopGroup(1);
+      groups.add(group);
+      futures.add(startServer(group, useEpoll));
+    }
+    return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0]))
+        .thenApply(
+            unused -> futures.stream().map(CompletableFuture::join).collect(Collectors.toList()));
   }
 
-  private CompletableFuture<NioDatagramChannel> startServer(final NioEventLoopGroup group) {
-    CompletableFuture<NioDatagramChannel> future = new CompletableFuture<>();
+  private CompletableFuture<DatagramChannel> startServer(
+      final EventLoopGroup group, final boolean useEpoll) {
+    CompletableFuture<DatagramChannel> future = new CompletableFuture<>();
     Bootstrap b = new Bootstrap();
     b.option(ChannelOption.SO_SNDBUF, 4096 * 1024)
-            .group(group)
-        .channel(NioDatagramChannel.class)
+        .option(ChannelOption.ALLOCATOR, PooledByteBufAllocator.DEFAULT)
+        .group(group)
+        .channel(useEpoll ? EpollDatagramChannel.class : NioDatagramChannel.class)
         .handler(
-            new ChannelInitializer<NioDatagramChannel>() {
+            new ChannelInitializer<DatagramChannel>() {
               @Override
-              public void initChannel(NioDatagramChannel ch) {
+              public void initChannel(DatagramChannel ch) {
+                ch.pipeline().addFirst(new LoggingHandler(LogLevel.TRACE));
+                rateLimiter.ifPresent(limiter -> ch.pipeline().addLast(limiter));
                 ch.pipeline()
-                    .addFirst(new LoggingHandler(LogLevel.TRACE))
                     .addLast(new DatagramToEnvelope())
                     .addLast(new IncomingMessageSink(incomingSink));
               }
             });
+    if (useEpoll) {
+      b.option(EpollChannelOption.SO_REUSEPORT, true);
+    }
 
     final ChannelFuture bindFuture = b.bind(listenAddress);
     bindFuture.addListener(
@@ -74,13 +139,15 @@ public class NettyDiscoveryServerImpl implements NettyDiscoveryServer {
             return;
           }
 
-          this.channel = bindFuture.channel();
+          final Channel channel = bindFuture.channel();
+          channels.add(channel);
           channel
               .closeFuture()
               .addListener(
                   closeFuture -> {
+                    channels.remove(channel);
                     if (!listen.get()) {
-                      logger.info("Shutting down discovery server");
+                      logger.info("Shutting down discovery server socket");
                       group.shutdownGracefully();
                       return;
                     }
@@ -90,9 +157,9 @@ public class NettyDiscoveryServerImpl implements NettyDiscoveryServer {
                             + " milliseconds delay",
                         closeFuture.cause());
                     Thread.sleep(RECREATION_TIMEOUT);
-                    startServer(group);
+                    startServer(group, useEpoll);
                   });
-          future.complete((NioDatagramChannel) this.channel);
+          future.complete((DatagramChannel) channel);
         });
     return future;
   }
@@ -106,20 +173,21 @@ public class NettyDiscoveryServerImpl implements NettyDiscoveryServer {
   public void stop() {
     if (listen.compareAndSet(true, false)) {
       logger.info("Stopping discovery server");
-      if (channel != null) {
+      for (Channel channel : channels) {
         try {
           channel.close().sync();
         } catch (InterruptedException ex) {
           logger.error("Failed to stop discovery server", ex);
         }
-        if (nioGroup != null) {
-          try {
-            nioGroup.shutdownGracefully().sync();
-          } catch (InterruptedException ex) {
-            logger.error("Failed to stop NIO group", ex);
-          }
+      }
+      for (EventLoopGroup group : groups) {
+        try {
+          group.shutdownGracefully().sync();
+        } catch (InterruptedException ex) {
+          logger.error("Failed to stop event loop group", ex);
         }
       }
+      groups.clear();
     } else {
       logger.warn("An attempt to stop already stopping/stopped discovery server");
     }
@@ -0,0 +1,379 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.ethereum.beacon.discovery.network;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.IntConsumer;
+import java.util.function.ToIntFunction;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.ethereum.beacon.discovery.packet.MessagePacket;
+import org.ethereum.beacon.discovery.packet.Packet;
+
+/**
+ * Bounded queue of outgoing parcels between the outgoing pipeline and the network client. When the
+ * queue is full, the configured {@link OverflowPolicy} decides which parcel is dropped or whether
+ * the producer waits. Keeps counters of enqueued, sent and dropped parcels.
+ *
+ * <p>Parcels can be split into lanes by destination with {@link #setLanes(int, ToIntFunction)}, so
+ * each lane is drained separately, like one lane per channel. Capacity and overflow policy apply to
+ * all lanes together, in the order parcels were added.
+ */
+public class OutgoingParcelQueue {
+  public static final int DEFAULT_CAPACITY = 8192;
+  public static final Duration DEFAULT_BLOCK_TIMEOUT = Duration.ofMillis(100);
+  /** Packet types shed first with {@link OverflowPolicy#DROP_BY_TYPE}: regular messages */
+  public static final Set<Class<? extends Packet>> DEFAULT_SHEDDABLE_TYPES =
+      Set.of(MessagePacket.class);
+
+  private static final Logger logger = LogManager.getLogger(OutgoingParcelQueue.class);
+
+  public enum OverflowPolicy {
+    /** The oldest queued parcel is dropped to make room for the new one */
+    DROP_OLDEST,
+    /**
+     * New parcel of sheddable packet type is dropped, otherwise the oldest queued sheddable parcel
+     * is evicted, or the oldest one when there are no sheddable parcels queued
+     */
+    DROP_BY_TYPE,
+    /**
+     * Producer waits for free space up to the block timeout, new parcel is dropped after it. Never
+     * blocks producers which are not allowed to, like network event loop threads
+     */
+    BLOCK
+  }
+
+  private final int capacity;
+  private final OverflowPolicy policy;
+  private final Set<Class<? extends Packet>> sheddableTypes;
+  private final long blockTimeoutNanos;
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition notFull = lock.newCondition();
+  private volatile IntConsumer notEmptyListener = lane -> {};
+
+  // lanes are guarded by the lock
+  private List<ArrayDeque<Entry>> lanes = List.of(new ArrayDeque<>());
+  private ToIntFunction<InetSocketAddress> laneSelector = destination -> 0;
+  private int size = 0;
+  private long nextSeq = 0;
+  private long pushedBackSeq = 0;
+
+  // counters are guarded by the lock
+  private long enqueuedCount = 0;
+  private long sentCount = 0;
+  private long droppedCount = 0;
+  private int maxDepth = 0;
+
+  public OutgoingParcelQueue() {
+    this(DEFAULT_CAPACITY, OverflowPolicy.DROP_OLDEST);
+  }
+
+  public OutgoingParcelQueue(int capacity, OverflowPolicy policy) {
+    this(capacity, policy, DEFAULT_SHEDDABLE_TYPES, DEFAULT_BLOCK_TIMEOUT);
+  }
+
+  public OutgoingParcelQueue(
+      int capacity,
+      OverflowPolicy policy,
+      Set<Class<? extends Packet>> sheddableTypes,
+      Duration blockTimeout) {
+    if (capacity < 1) {
+      throw new IllegalArgumentException("Queue capacity should be positive, got " + capacity);
+    }
+    this.capacity = capacity;
+    this.policy = policy;
+    this.sheddableTypes = sheddableTypes;
+    this.blockTimeoutNanos = blockTimeout.toNanos();
+  }
+
+  /** Sets callback which is called with the lane of every parcel added to the queue */
+  public void setNotEmptyListener(IntConsumer notEmptyListener) {
+    this.notEmptyListener = notEmptyListener;
+  }
+
+  /**
+   * Splits parcels into `count` lanes, lane of a parcel is chosen by its destination with
+   * `laneSelector`. Parcels already queued are moved to their lanes.
+   */
+  public void setLanes(int count, ToIntFunction<InetSocketAddress> laneSelector) {
+    checkArgument(count > 0, "Lanes count should be positive");
+    lock.lock();
+    try {
+      final List<Entry> queued = new ArrayList<>(size);
+      lanes.forEach(queued::addAll);
+      queued.sort(Comparator.comparingLong(entry -> entry.seq));
+      final List<ArrayDeque<Entry>> newLanes = new ArrayList<>(count);
+      for (int i = 0; i < count; i++) {
+        newLanes.add(new ArrayDeque<>());
+      }
+      this.lanes = newLanes;
+      this.laneSelector = laneSelector;
+      for (Entry entry : queued) {
+        laneOf(entry.parcel).addLast(entry);
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Adds parcel to the queue applying overflow policy when it's full
+   *
+   * @param parcel Outgoing parcel
+   * @param mayBlock Whether calling thread could wait for free space with {@link
+   *     OverflowPolicy#BLOCK} policy
+   * @return true if parcel was queued, false if it was dropped
+   */
+  public boolean offer(NetworkParcel parcel, boolean mayBlock) {
+    final int lane;
+    lock.lock();
+    try {
+      lane = offerLocked(parcel, mayBlock);
+    } finally {
+      lock.unlock();
+    }
+    if (lane < 0) {
+      return false;
+    }
+    notEmptyListener.accept(lane);
+    return true;
+  }
+
+  /** @return lane the parcel was added to, or -1 if it was dropped */
+  private int offerLocked(NetworkParcel parcel, boolean mayBlock) {
+    if (size >= capacity) {
+      switch (policy) {
+        case DROP_OLDEST:
+          drop(removeOldest());
+          break;
+        case DROP_BY_TYPE:
+          if (isSheddable(parcel)) {
+            drop(parcel);
+            return -1;
+          }
+          drop(evictOldestSheddable());
+          break;
+        case BLOCK:
+          if (!mayBlock || !awaitNotFull()) {
+            drop(parcel);
+            return -1;
+          }
+          break;
+        default:
+          throw new IllegalStateException("Unknown overflow policy " + policy);
+      }
+    }
+    final int lane = laneSelector.applyAsInt(parcel.getDestination());
+    lanes.get(lane).addLast(new Entry(nextSeq++, parcel));
+    size++;
+    enqueuedCount++;
+    if (size > maxDepth) {
+      maxDepth = size;
+    }
+    return lane;
+  }
+
+  private boolean awaitNotFull() {
+    long nanos = blockTimeoutNanos;
+    try {
+      while (size >= capacity) {
+        if (nanos <= 0) {
+          return false;
+        }
+        nanos = notFull.awaitNanos(nanos);
+      }
+      return true;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    }
+  }
+
+  private ArrayDeque<Entry> laneOf(NetworkParcel parcel) {
+    return lanes.get(laneSelector.applyAsInt(parcel.getDestination()));
+  }
+
+  /** Removes the parcel added first among all lanes */
+  private NetworkParcel removeOldest() {
+    ArrayDeque<Entry> oldestLane = null;
+    for (ArrayDeque<Entry> lane : lanes) {
+      final Entry head = lane.peekFirst();
+      if (head != null && (oldestLane == null || head.seq < oldestLane.peekFirst().seq)) {
+        oldestLane = lane;
+      }
+    }
+    if (oldestLane == null) {
+      return null;
+    }
+    size--;
+    return oldestLane.pollFirst().parcel;
+  }
+
+  private NetworkParcel evictOldestSheddable() {
+    ArrayDeque<Entry> oldestLane = null;
+    Entry oldest = null;
+    for (ArrayDeque<Entry> lane : lanes) {
+      for (Entry entry : lane) {
+        if (isSheddable(entry.parcel)) {
+          if (oldest == null || entry.seq < oldest.seq) {
+            oldestLane = lane;
+            oldest = entry;
+          }
+          break;
+        }
+      }
+    }
+    if (oldest == null) {
+      return removeOldest();
+    }
+    oldestLane.remove(oldest);
+    size--;
+    return oldest.parcel;
+  }
+
+  private boolean isSheddable(NetworkParcel parcel) {
+    return sheddableTypes.contains(parcel.getPacket().getClass());
+  }
+
+  private void drop(NetworkParcel parcel) {
+    droppedCount++;
+    logger.trace(
+        () ->
+            String.format(
+                "Outgoing queue is full, dropping packet %s to %s",
+                parcel.getPacket(), parcel.getDestination()));
+  }
+
+  /** Retrieves the parcel added first among all lanes or null if the queue is empty */
+  public NetworkParcel poll() {
+    lock.lock();
+    try {
+      return polled(removeOldest());
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /** Retrieves the head of `lane` or null if it's empty */
+  public NetworkParcel poll(int lane) {
+    lock.lock();
+    try {
+      final Entry entry = lanes.get(lane).pollFirst();
+      if (entry == null) {
+        return null;
+      }
+      size--;
+      return polled(entry.parcel);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private NetworkParcel polled(NetworkParcel parcel) {
+    if (parcel != null) {
+      sentCount++;
+      notFull.signal();
+    }
+    return parcel;
+  }
+
+  /**
+   * Returns polled but not sent parcel back to the head of its lane, ignoring the capacity. It's
+   * considered added before all queued parcels.
+   */
+  public void pushBack(NetworkParcel parcel) {
+    lock.lock();
+    try {
+      laneOf(parcel).addFirst(new Entry(--pushedBackSeq, parcel));
+      size++;
+      sentCount--;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  public int getDepth() {
+    lock.lock();
+    try {
+      return size;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /** Number of parcels queued in `lane` */
+  public int getDepth(int lane) {
+    lock.lock();
+    try {
+      return lanes.get(lane).size();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  public int getMaxDepth() {
+    lock.lock();
+    try {
+      return maxDepth;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  public long getEnqueuedCount() {
+    lock.lock();
+    try {
+      return enqueuedCount;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  public long getSentCount() {
+    lock.lock();
+    try {
+      return sentCount;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  public long getDroppedCount() {
+    lock.lock();
+    try {
+      return droppedCount;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  public int getCapacity() {
+    return capacity;
+  }
+
+  public OverflowPolicy getPolicy() {
+    return policy;
+  }
+
+  private static class Entry {
+    private final long seq;
+    private final NetworkParcel parcel;
+
+    private Entry(long seq, NetworkParcel parcel) {
+      this.seq = seq;
+      this.parcel = parcel;
+    }
+  }
+}
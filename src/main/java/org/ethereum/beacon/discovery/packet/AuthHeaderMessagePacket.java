@@ -144,19 +144,24 @@ public class AuthHeaderMessagePacket extends AbstractPacket {
 
   public Bytes getHomeNodeId(Bytes destNodeId) {
     verifyDecode();
-    return Functions.hash(destNodeId).xor(decodedEphemeralPubKeyPt.tag);
+    return NodeIdHashCache.hash(destNodeId).xor(decodedEphemeralPubKeyPt.tag);
   }
 
   public Bytes getAuthTag() {
-    verifyDecode();
+    verifyEphemeralPubKeyDecode();
     return decodedEphemeralPubKeyPt.authTag;
   }
 
   public Bytes getIdNonce() {
-    verifyDecode();
+    verifyEphemeralPubKeyDecode();
     return decodedEphemeralPubKeyPt.idNonce;
   }
 
+  public String getAuthSchemeName() {
+    verifyEphemeralPubKeyDecode();
+    return decodedEphemeralPubKeyPt.authSchemeName;
+  }
+
   public Bytes getEphemeralPubkey() {
     verifyEphemeralPubKeyDecode();
     return decodedEphemeralPubKeyPt.ephemeralPubkey;
@@ -4,6 +4,7 @@
 
 package org.ethereum.beacon.discovery.packet;
 
+import javax.crypto.SecretKey;
 import org.apache.tuweni.bytes.Bytes;
 import org.apache.tuweni.bytes.MutableBytes;
 import org.ethereum.beacon.discovery.message.DiscoveryMessage;
@@ -40,14 +41,31 @@ public class MessagePacket extends AbstractPacket {
       Bytes authTag,
       Bytes initiatorKey,
       DiscoveryMessage message) {
+    return create(homeNodeId, destNodeId, authTag, Functions.aesgcm_key(initiatorKey), message);
+  }
+
+  /** Creates packet encrypting message straight into the packet bytes */
+  public static MessagePacket create(
+      Bytes homeNodeId,
+      Bytes destNodeId,
+      Bytes authTag,
+      SecretKey initiatorKey,
+      DiscoveryMessage message) {
     Bytes tag = Packet.createTag(homeNodeId, destNodeId);
-    Bytes encryptedData = Functions.aesgcm_encrypt(initiatorKey, authTag, message.getBytes(), tag);
-    return create(tag, authTag, encryptedData);
+    byte[] authTagBytesRlp = RlpEncoder.encode(RlpString.create(authTag.toArray()));
+    Bytes messagePt = message.getBytes();
+    int headerSize = tag.size() + authTagBytesRlp.length;
+    byte[] packet = new byte[headerSize + messagePt.size() + Functions.AESGCM_TAG_SIZE];
+    System.arraycopy(tag.toArrayUnsafe(), 0, packet, 0, tag.size());
+    System.arraycopy(authTagBytesRlp, 0, packet, tag.size(), authTagBytesRlp.length);
+    Functions.aesgcm_encrypt(initiatorKey, authTag, messagePt, tag, packet, headerSize);
+    return new MessagePacket(Bytes.wrap(packet));
   }
 
   public Bytes getHomeNodeId(Bytes destNodeId) {
     verifyDecode();
-    return Functions.hash(destNodeId).xor(decoded.tag, MutableBytes.create(decoded.tag.size()));
+    return NodeIdHashCache.hash(destNodeId)
+        .xor(decoded.tag, MutableBytes.create(decoded.tag.size()));
   }
 
   public Bytes getAuthTag() {
@@ -71,6 +89,10 @@ public class MessagePacket extends AbstractPacket {
   }
 
   public void decode(Bytes readKey) {
+    decode(Functions.aesgcm_key(readKey));
+  }
+
+  public void decode(SecretKey readKey) {
     if (decoded != null) {
       return;
     }
@@ -0,0 +1,57 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.ethereum.beacon.discovery.packet;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import org.apache.tuweni.bytes.Bytes;
+import org.ethereum.beacon.discovery.util.Functions;
+
+/**
+ * Bounded cache of per node id hashes used on every packet: <code>sha256(node-id)</code> for
+ * packet tags and <code>sha256(node-id || "WHOAREYOU")</code> for WHOAREYOU magic. Entries of peers
+ * without traffic expire together with their sessions, so steady-state packet encoding and
+ * classification do no hashing.
+ */
+public class NodeIdHashCache {
+  private static final int MAX_ENTRIES = 8192;
+  private static final int EXPIRATION_SECONDS = 180;
+
+  private static final Cache<Bytes, Bytes> NODE_ID_HASHES = createCache();
+  private static final Cache<Bytes, Bytes> WHOAREYOU_MAGICS = createCache();
+
+  private NodeIdHashCache() {}
+
+  private static Cache<Bytes, Bytes> createCache() {
+    return CacheBuilder.newBuilder()
+        .maximumSize(MAX_ENTRIES)
+        .expireAfterAccess(EXPIRATION_SECONDS, TimeUnit.SECONDS)
+        .build();
+  }
+
+  /** Returns <code>sha256(nodeId)</code> */
+  public static Bytes hash(Bytes nodeId) {
+    return getOrCompute(NODE_ID_HASHES, nodeId, Functions::hash);
+  }
+
+  /** Returns <code>sha256(nodeId || "WHOAREYOU")</code> */
+  public static Bytes whoAreYouMagic(Bytes nodeId) {
+    return getOrCompute(WHOAREYOU_MAGICS, nodeId, WhoAreYouPacket::computeStartMagic);
+  }
+
+  private static Bytes getOrCompute(
+      Cache<Bytes, Bytes> cache, Bytes nodeId, Function<Bytes, Bytes> function) {
+    Bytes result = cache.getIfPresent(nodeId);
+    if (result == null) {
+      // node id could be a view over mutable packet data, so it's copied before becoming a key
+      final Bytes key = nodeId.copy();
+      result = function.apply(key);
+      cache.put(key, result);
+    }
+    return result;
+  }
+}
@@ -6,7 +6,6 @@ package org.ethereum.beacon.discovery.packet;
 
 import org.apache.tuweni.bytes.Bytes;
 import org.apache.tuweni.bytes.MutableBytes;
-import org.ethereum.beacon.discovery.util.Functions;
 
 /**
  * Network packet as defined by discovery v5 specification. See <a
@@ -15,7 +14,7 @@ import org.ethereum.beacon.discovery.util.Functions;
 public interface Packet {
 
   static Bytes createTag(Bytes homeNodeId, Bytes destNodeId) {
-    return homeNodeId.xor(Functions.hash(destNodeId), MutableBytes.create(destNodeId.size()));
+    return homeNodeId.xor(NodeIdHashCache.hash(destNodeId), MutableBytes.create(destNodeId.size()));
   }
 
   Bytes getBytes();
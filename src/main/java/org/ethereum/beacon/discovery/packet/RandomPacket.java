@@ -7,7 +7,6 @@ package org.ethereum.beacon.discovery.packet;
 import com.google.common.base.Preconditions;
 import java.util.Random;
 import org.apache.tuweni.bytes.Bytes;
-import org.ethereum.beacon.discovery.util.Functions;
 import org.web3j.rlp.RlpDecoder;
 import org.web3j.rlp.RlpEncoder;
 import org.web3j.rlp.RlpString;
@@ -52,7 +51,7 @@ public class RandomPacket extends AbstractPacket {
 
   public Bytes getHomeNodeId(Bytes destNodeId) {
     decode();
-    return Functions.hash(destNodeId).xor(decoded.tag);
+    return NodeIdHashCache.hash(destNodeId).xor(decoded.tag);
   }
 
   public Bytes getAuthTag() {
@@ -12,6 +12,8 @@ import org.apache.tuweni.bytes.Bytes;
 public class UnknownPacket extends AbstractPacket {
   private static final int MAX_SIZE = 1280;
   private static final int START_MAGIC_LENGTH = 32;
+  /** Smallest first byte of RLP list encoding, auth header is the only list after the tag */
+  public static final int RLP_LIST_PREFIX = 0xc0;
 
   public UnknownPacket(Bytes bytes) {
     super(bytes);
@@ -25,6 +27,16 @@ public class UnknownPacket extends AbstractPacket {
     return new AuthHeaderMessagePacket(getBytes());
   }
 
+  /**
+   * Checks whether tagged packet carries auth header, which is an RLP list, while random and
+   * message packets have RLP string auth tag after the tag. Doesn't validate the header.
+   */
+  public boolean isAuthHeaderMessagePacket() {
+    final Bytes bytes = getBytes();
+    return bytes.size() > START_MAGIC_LENGTH
+        && (bytes.get(START_MAGIC_LENGTH) & 0xff) >= RLP_LIST_PREFIX;
+  }
+
   public RandomPacket getRandomPacket() {
     return new RandomPacket(getBytes());
   }
@@ -34,9 +46,18 @@ public class UnknownPacket extends AbstractPacket {
   }
 
   public boolean isWhoAreYouPacket(Bytes destNodeId) {
+    return hasStartMagic(WhoAreYouPacket.getStartMagic(destNodeId));
+  }
+
+  /**
+   * Checks whether packet starts with WHOAREYOU magic
+   *
+   * @param startMagic Magic of the destination node, see {@link WhoAreYouPacket#getStartMagic}
+   */
+  public boolean hasStartMagic(Bytes startMagic) {
     final Bytes bytes = getBytes();
     return bytes.size() >= START_MAGIC_LENGTH
-        && WhoAreYouPacket.getStartMagic(destNodeId).equals(bytes.slice(0, START_MAGIC_LENGTH));
+        && startMagic.equals(bytes.slice(0, START_MAGIC_LENGTH));
   }
 
   // tag              = xor(sha256(dest-node-id), src-node-id)
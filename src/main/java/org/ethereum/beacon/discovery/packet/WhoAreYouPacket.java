@@ -51,8 +51,13 @@ public class WhoAreYouPacket extends AbstractPacket {
     return new WhoAreYouPacket(Bytes.concatenate(magic, Bytes.wrap(rlpListEncoded)));
   }
 
-  /** Calculates first 32 bytes of WHOAREYOU packet */
+  /** Returns first 32 bytes of WHOAREYOU packet, cached per node id */
   public static Bytes getStartMagic(Bytes destNodeId) {
+    return NodeIdHashCache.whoAreYouMagic(destNodeId);
+  }
+
+  /** Calculates first 32 bytes of WHOAREYOU packet */
+  static Bytes computeStartMagic(Bytes destNodeId) {
     return Functions.hash(Bytes.concatenate(destNodeId, MAGIC_BYTES));
   }
 
@@ -73,7 +78,7 @@ public class WhoAreYouPacket extends AbstractPacket {
 
   public boolean isValid(Bytes destNodeId, Bytes expectedAuthTag) {
     decode();
-    return Functions.hash(Bytes.concatenate(destNodeId, MAGIC_BYTES)).equals(decoded.magic)
+    return getStartMagic(destNodeId).equals(decoded.magic)
         && expectedAuthTag.equals(getAuthTag());
   }
 
@@ -4,36 +4,78 @@
 
 package org.ethereum.beacon.discovery.pipeline;
 
-import java.util.HashMap;
-import java.util.Map;
-import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
 
-/** Container for any kind of objects used in packet-messages-tasks flow */
+/**
+ * Container for any kind of objects used in packet-messages-tasks flow.
+ *
+ * <p>Values are stored in a slot array indexed by {@link Field#ordinal()}, presence of every field
+ * is mirrored in a bit mask used by {@link PipelineImpl} to dispatch envelope only to handlers
+ * whose required fields are all present. Envelope is not synchronized: it's owned by one pipeline
+ * pass at a time and is only handed over to another thread through executors or reactive
+ * operators, which establish the required happens-before relation.
+ */
 public class Envelope {
-  private UUID id;
-  private Map<Field, Object> data = new HashMap<>();
+  private static final AtomicLong COUNTER = new AtomicLong();
+  private static final int FIELDS_COUNT = Field.values().length;
+
+  private final long id;
+  private final Object[] data = new Object[FIELDS_COUNT];
+  private long presentFields = 0;
+
+  static {
+    if (FIELDS_COUNT > Long.SIZE) {
+      throw new IllegalStateException("Fields presence couldn't be tracked in long mask");
+    }
+  }
 
   public Envelope() {
-    this.id = UUID.randomUUID();
+    this.id = COUNTER.incrementAndGet();
   }
 
-  public synchronized void put(Field key, Object value) {
-    data.put(key, value);
+  public void put(Field key, Object value) {
+    if (value == null) {
+      remove(key);
+      return;
+    }
+    data[key.ordinal()] = value;
+    presentFields |= mask(key);
   }
 
-  public synchronized Object get(Field key) {
-    return data.get(key);
+  public Object get(Field key) {
+    return data[key.ordinal()];
   }
 
-  public synchronized boolean remove(Field key) {
-    return data.remove(key) != null;
+  public boolean remove(Field key) {
+    final int index = key.ordinal();
+    final boolean existed = data[index] != null;
+    data[index] = null;
+    presentFields &= ~mask(key);
+    return existed;
   }
 
-  public synchronized boolean contains(Field key) {
-    return data.containsKey(key);
+  public boolean contains(Field key) {
+    return data[key.ordinal()] != null;
   }
 
-  public UUID getId() {
+  public long getId() {
     return id;
   }
+
+  /** Whether all fields from the mask built by {@link #mask(Iterable)} are present */
+  boolean containsAll(long fieldsMask) {
+    return (presentFields & fieldsMask) == fieldsMask;
+  }
+
+  static long mask(Field field) {
+    return 1L << field.ordinal();
+  }
+
+  static long mask(Iterable<Field> fields) {
+    long result = 0;
+    for (Field field : fields) {
+      result |= mask(field);
+    }
+    return result;
+  }
 }
@@ -0,0 +1,33 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.ethereum.beacon.discovery.pipeline;
+
+import java.util.List;
+
+/**
+ * Passes envelope through the ordered chain of handlers, invoking only those handlers whose {@link
+ * EnvelopeHandler#getRequiredFields()} are all present in the envelope at the moment it reaches
+ * them.
+ */
+class EnvelopeDispatcher {
+  private final EnvelopeHandler[] handlers;
+  private final long[] requiredFields;
+
+  EnvelopeDispatcher(List<EnvelopeHandler> envelopeHandlers) {
+    this.handlers = envelopeHandlers.toArray(new EnvelopeHandler[0]);
+    this.requiredFields = new long[handlers.length];
+    for (int i = 0; i < handlers.length; i++) {
+      requiredFields[i] = Envelope.mask(handlers[i].getRequiredFields());
+    }
+  }
+
+  void dispatch(Envelope envelope) {
+    for (int i = 0; i < handlers.length; i++) {
+      if (envelope.containsAll(requiredFields[i])) {
+        handlers[i].handle(envelope);
+      }
+    }
+  }
+}
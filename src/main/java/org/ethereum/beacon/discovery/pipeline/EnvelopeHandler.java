@@ -4,6 +4,18 @@
 
 package org.ethereum.beacon.discovery.pipeline;
 
+import java.util.Collections;
+import java.util.Set;
+
 public interface EnvelopeHandler {
   void handle(Envelope envelope);
+
+  /**
+   * Fields which should be all present in {@link Envelope} for this handler to act on it. Pipeline
+   * skips handler invocation for envelopes missing any of them. Handler may still check other
+   * conditions by itself. Empty set, the default, means handler is offered every envelope.
+   */
+  default Set<Field> getRequiredFields() {
+    return Collections.emptySet();
+  }
 }
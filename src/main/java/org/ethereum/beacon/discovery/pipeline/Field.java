@@ -21,4 +21,5 @@ public enum Field {
   TASK, // Task to perform
   TASK_OPTIONS, // Task options
   FUTURE, // Completable future
+  HANDSHAKE_RESULT, // Completed future of handshake cryptography run outside of the pipeline
 }
@@ -14,6 +14,11 @@ import reactor.core.publisher.Flux;
 import reactor.core.publisher.FluxSink;
 import reactor.core.publisher.ReplayProcessor;
 
+/**
+ * Pipeline which dispatches every envelope through handlers in the order of their addition, calling
+ * only those handlers whose {@link EnvelopeHandler#getRequiredFields()} are all present in the
+ * envelope at the moment it reaches them.
+ */
 public class PipelineImpl implements Pipeline {
   private final List<EnvelopeHandler> envelopeHandlers = new ArrayList<>();
   private final AtomicBoolean started = new AtomicBoolean(false);
@@ -23,9 +28,8 @@ public class PipelineImpl implements Pipeline {
   @Override
   public synchronized Pipeline build() {
     started.set(true);
-    for (EnvelopeHandler handler : envelopeHandlers) {
-      pipeline = pipeline.doOnNext(handler::handle);
-    }
+    final EnvelopeDispatcher dispatcher = new EnvelopeDispatcher(envelopeHandlers);
+    pipeline = pipeline.doOnNext(dispatcher::dispatch);
     Flux.from(pipeline).subscribe();
     return this;
   }
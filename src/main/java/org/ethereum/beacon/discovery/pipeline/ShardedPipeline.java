@@ -0,0 +1,95 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.ethereum.beacon.discovery.pipeline;
+
+import static org.ethereum.beacon.discovery.pipeline.Field.INCOMING;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.ethereum.beacon.discovery.scheduler.Scheduler;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.FluxSink;
+import reactor.core.publisher.ReplayProcessor;
+
+/**
+ * Pipeline which processes envelopes in parallel on several single-threaded lanes. Lane is chosen
+ * by the hash of {@link Field#REMOTE_SENDER}, so all packets of one session are handled by the same
+ * lane in their arrival order, while unrelated sessions do not wait for each other. Envelopes
+ * without sender go to the first lane.
+ */
+public class ShardedPipeline implements Pipeline {
+  private static final Logger logger = LogManager.getLogger(ShardedPipeline.class);
+  private final List<EnvelopeHandler> envelopeHandlers = new ArrayList<>();
+  private final AtomicBoolean started = new AtomicBoolean(false);
+  private final ReplayProcessor<Envelope> outgoingEnvelopes = ReplayProcessor.cacheLast();
+  private final FluxSink<Envelope> outgoingSink = outgoingEnvelopes.sink();
+  private final Scheduler[] lanes;
+  private volatile EnvelopeDispatcher dispatcher;
+
+  /** @param lanes single-threaded schedulers, one per lane */
+  public ShardedPipeline(List<Scheduler> lanes) {
+    if (lanes.isEmpty()) {
+      throw new IllegalArgumentException("At least one lane is required");
+    }
+    this.lanes = lanes.toArray(new Scheduler[0]);
+  }
+
+  @Override
+  public synchronized Pipeline build() {
+    dispatcher = new EnvelopeDispatcher(envelopeHandlers);
+    started.set(true);
+    return this;
+  }
+
+  @Override
+  public void push(Object object) {
+    if (!started.get()) {
+      throw new RuntimeException("You should build pipeline first");
+    }
+    final Envelope envelope;
+    if (!(object instanceof Envelope)) {
+      envelope = new Envelope();
+      envelope.put(INCOMING, object);
+    } else {
+      envelope = (Envelope) object;
+    }
+    selectLane(envelope)
+        .execute(
+            () -> {
+              dispatcher.dispatch(envelope);
+              outgoingSink.next(envelope);
+            })
+        .exceptionally(
+            ex -> {
+              logger.error(String.format("Failed to process envelope %s", envelope.getId()), ex);
+              return null;
+            });
+  }
+
+  private Scheduler selectLane(Envelope envelope) {
+    final Object sender = envelope.get(Field.REMOTE_SENDER);
+    if (sender == null || lanes.length == 1) {
+      return lanes[0];
+    }
+    return lanes[Math.floorMod(sender.hashCode(), lanes.length)];
+  }
+
+  @Override
+  public Pipeline addHandler(EnvelopeHandler envelopeHandler) {
+    if (started.get()) {
+      throw new RuntimeException("Pipeline already started, couldn't add any handlers");
+    }
+    envelopeHandlers.add(envelopeHandler);
+    return this;
+  }
+
+  @Override
+  public Publisher<Envelope> getOutgoingEnvelopes() {
+    return outgoingEnvelopes;
+  }
+}
@@ -6,6 +6,9 @@ package org.ethereum.beacon.discovery.pipeline.handler;
 
 import static org.ethereum.beacon.discovery.schema.NodeSession.SessionStatus.AUTHENTICATED;
 
+import java.net.InetSocketAddress;
+import java.util.Optional;
+import java.util.Set;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.apache.tuweni.bytes.Bytes;
@@ -23,18 +26,47 @@ import org.ethereum.beacon.discovery.schema.NodeRecordInfo;
 import org.ethereum.beacon.discovery.schema.NodeSession;
 import org.ethereum.beacon.discovery.util.Functions;
 
-/** Handles {@link AuthHeaderMessagePacket} in {@link Field#PACKET_AUTH_HEADER_MESSAGE} field */
+/**
+ * Handles {@link AuthHeaderMessagePacket} in {@link Field#PACKET_AUTH_HEADER_MESSAGE} field. Packet
+ * goes through {@link HandshakeAdmission} first, so only plausible attempts within budgets reach
+ * handshake cryptography.
+ */
 public class AuthHeaderMessagePacketHandler implements EnvelopeHandler {
   private static final Logger logger = LogManager.getLogger(AuthHeaderMessagePacketHandler.class);
+  private static final Set<Field> REQUIRED_FIELDS =
+      Set.of(Field.PACKET_AUTH_HEADER_MESSAGE, Field.SESSION);
   private final Pipeline outgoingPipeline;
   private final Scheduler scheduler;
   private final NodeRecordFactory nodeRecordFactory;
+  private final HandshakeCrypto handshakeCrypto;
+  private final HandshakeAdmission admission;
 
   public AuthHeaderMessagePacketHandler(
       Pipeline outgoingPipeline, Scheduler scheduler, NodeRecordFactory nodeRecordFactory) {
+    this(
+        outgoingPipeline,
+        scheduler,
+        nodeRecordFactory,
+        HandshakeCrypto.INLINE,
+        new HandshakeAdmission());
+  }
+
+  public AuthHeaderMessagePacketHandler(
+      Pipeline outgoingPipeline,
+      Scheduler scheduler,
+      NodeRecordFactory nodeRecordFactory,
+      HandshakeCrypto handshakeCrypto,
+      HandshakeAdmission admission) {
     this.outgoingPipeline = outgoingPipeline;
     this.scheduler = scheduler;
     this.nodeRecordFactory = nodeRecordFactory;
+    this.handshakeCrypto = handshakeCrypto;
+    this.admission = admission;
+  }
+
+  @Override
+  public Set<Field> getRequiredFields() {
+    return REQUIRED_FIELDS;
   }
 
   @Override
@@ -59,50 +91,59 @@ public class AuthHeaderMessagePacketHandler implements EnvelopeHandler {
     AuthHeaderMessagePacket packet =
         (AuthHeaderMessagePacket) envelope.get(Field.PACKET_AUTH_HEADER_MESSAGE);
     NodeSession session = (NodeSession) envelope.get(Field.SESSION);
-    try {
-      packet.decodeEphemeralPubKey();
-      Bytes ephemeralPubKey = packet.getEphemeralPubkey();
-      Functions.HKDFKeys keys =
-          Functions.hkdf_expand(
-              session.getNodeId(),
-              session.getHomeNodeId(),
-              session.getStaticNodeKey(),
-              ephemeralPubKey,
-              session.getIdNonce());
-      // Swap keys because we are not initiator, other side is
-      session.setInitiatorKey(keys.getRecipientKey());
-      session.setRecipientKey(keys.getInitiatorKey());
-      packet.decodeMessage(session.getRecipientKey(), keys.getAuthResponseKey(), nodeRecordFactory);
-      if (packet.getNodeRecord() != null && !packet.getNodeRecord().isValid()) {
-        logger.info(
-            String.format(
-                "Node record not valid for message [%s] from node %s in status %s",
-                packet, session.getNodeRecord(), session.getStatus()));
+    // Envelope returning with crypto result has been admitted already
+    if (!envelope.contains(Field.HANDSHAKE_RESULT)) {
+      Optional<HandshakeAdmission.Stage> rejection =
+          admission.admit(
+              packet, session, (InetSocketAddress) envelope.get(Field.REMOTE_SENDER));
+      if (rejection.isPresent()) {
+        logger.trace(
+            () ->
+                String.format(
+                    "Handshake attempt in envelope %s rejected at %s stage in session %s",
+                    envelope.getId(), rejection.get(), session));
         markHandshakeAsFailed(envelope, session);
         return;
       }
-      final NodeRecord nodeRecord = session.getNodeRecord().orElseGet(packet::getNodeRecord);
-      // Check the node record matches the ID we expect
-      if (nodeRecord == null || !nodeRecord.getNodeId().equals(session.getNodeId())) {
-        logger.info(
-            String.format(
-                "Incorrect node ID for message [%s] from node %s in status %s",
-                packet, session.getNodeRecord(), session.getStatus()));
-        markHandshakeAsFailed(envelope, session);
+    }
+    try {
+      final Bytes nodeId = session.getNodeId();
+      final Bytes homeNodeId = session.getHomeNodeId();
+      final Bytes idNonce = session.getIdNonce();
+      final Optional<NodeRecord> knownNodeRecord = session.getNodeRecord();
+      Optional<Verification> verificationOpt =
+          handshakeCrypto.run(
+              envelope,
+              session,
+              () ->
+                  verify(
+                      packet,
+                      nodeId,
+                      homeNodeId,
+                      session.getStaticNodeKey(),
+                      idNonce,
+                      knownNodeRecord));
+      if (verificationOpt.isEmpty()) {
+        // Verification is in progress, envelope comes back when it's done
         return;
       }
-      if (!packet.isValid(session.getIdNonce(), (Bytes) nodeRecord.get(EnrField.PKEY_SECP256K1))) {
+      Verification verification = verificationOpt.get();
+      if (verification.failure != null) {
+        admission.failedCrypto();
         logger.info(
             String.format(
-                "Packet verification not passed for message [%s] from node %s in status %s",
-                packet, session.getNodeRecord(), session.getStatus()));
+                "%s for message [%s] from node %s in status %s",
+                verification.failure, packet, session.getNodeRecord(), session.getStatus()));
         markHandshakeAsFailed(envelope, session);
         return;
       }
+      // Swap keys because we are not initiator, other side is
+      session.setInitiatorKey(verification.keys.getRecipientKey());
+      session.setRecipientKey(verification.keys.getInitiatorKey());
       envelope.put(Field.MESSAGE, packet.getMessage());
       if (packet.getNodeRecord() != null) {
         session.updateNodeRecord(packet.getNodeRecord());
-        session.getNodeTable().save(NodeRecordInfo.createDefault(nodeRecord));
+        session.getNodeTable().save(NodeRecordInfo.createDefault(verification.nodeRecord));
       }
     } catch (Exception ex) {
       logger.debug(
@@ -110,6 +151,7 @@ public class AuthHeaderMessagePacketHandler implements EnvelopeHandler {
               "Failed to read message [%s] from node %s in status %s",
               packet, session.getNodeRecord(), session.getStatus()),
           ex);
+      admission.failedCrypto();
       markHandshakeAsFailed(envelope, session);
       return;
     }
@@ -118,8 +160,52 @@ public class AuthHeaderMessagePacketHandler implements EnvelopeHandler {
     NextTaskHandler.tryToSendAwaitTaskIfAny(session, outgoingPipeline, scheduler);
   }
 
+  /** Derives session keys, decrypts packet and verifies it. Doesn't touch session */
+  private Verification verify(
+      AuthHeaderMessagePacket packet,
+      Bytes nodeId,
+      Bytes homeNodeId,
+      Bytes staticNodeKey,
+      Bytes idNonce,
+      Optional<NodeRecord> knownNodeRecord) {
+    packet.decodeEphemeralPubKey();
+    Bytes ephemeralPubKey = packet.getEphemeralPubkey();
+    Functions.HKDFKeys keys =
+        Functions.hkdf_expand(nodeId, homeNodeId, staticNodeKey, ephemeralPubKey, idNonce);
+    // Other side is initiator, so its initiator key is our recipient key
+    packet.decodeMessage(keys.getInitiatorKey(), keys.getAuthResponseKey(), nodeRecordFactory);
+    if (packet.getNodeRecord() != null && !packet.getNodeRecord().isValid()) {
+      return Verification.failed("Node record not valid");
+    }
+    final NodeRecord nodeRecord = knownNodeRecord.orElseGet(packet::getNodeRecord);
+    // Check the node record matches the ID we expect
+    if (nodeRecord == null || !nodeRecord.getNodeId().equals(nodeId)) {
+      return Verification.failed("Incorrect node ID");
+    }
+    if (!packet.isValid(idNonce, (Bytes) nodeRecord.get(EnrField.PKEY_SECP256K1))) {
+      return Verification.failed("Packet verification not passed");
+    }
+    return new Verification(keys, nodeRecord, null);
+  }
+
   private void markHandshakeAsFailed(final Envelope envelope, final NodeSession session) {
     envelope.remove(Field.PACKET_AUTH_HEADER_MESSAGE);
     session.cancelAllRequests("Failed to handshake");
   }
+
+  private static class Verification {
+    private final Functions.HKDFKeys keys;
+    private final NodeRecord nodeRecord;
+    private final String failure;
+
+    private Verification(Functions.HKDFKeys keys, NodeRecord nodeRecord, String failure) {
+      this.keys = keys;
+      this.nodeRecord = nodeRecord;
+      this.failure = failure;
+    }
+
+    private static Verification failed(String failure) {
+      return new Verification(null, null, failure);
+    }
+  }
 }
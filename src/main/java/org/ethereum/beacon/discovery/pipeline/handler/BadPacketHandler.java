@@ -4,6 +4,7 @@
 
 package org.ethereum.beacon.discovery.pipeline.handler;
 
+import java.util.Set;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.ethereum.beacon.discovery.pipeline.Envelope;
@@ -14,6 +15,12 @@ import org.ethereum.beacon.discovery.pipeline.HandlerUtil;
 /** Handles packet from {@link Field#BAD_PACKET}. Currently just logs it. */
 public class BadPacketHandler implements EnvelopeHandler {
   private static final Logger logger = LogManager.getLogger(BadPacketHandler.class);
+  private static final Set<Field> REQUIRED_FIELDS = Set.of(Field.BAD_PACKET);
+
+  @Override
+  public Set<Field> getRequiredFields() {
+    return REQUIRED_FIELDS;
+  }
 
   @Override
   public void handle(Envelope envelope) {
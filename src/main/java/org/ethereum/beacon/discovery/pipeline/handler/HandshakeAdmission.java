@@ -0,0 +1,146 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.ethereum.beacon.discovery.pipeline.handler;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static org.ethereum.beacon.discovery.schema.NodeSession.SessionStatus.WHOAREYOU_SENT;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import javax.annotation.Nullable;
+import org.ethereum.beacon.discovery.packet.AuthHeaderMessagePacket;
+import org.ethereum.beacon.discovery.schema.NodeSession;
+import org.ethereum.beacon.discovery.util.Functions;
+
+/**
+ * Decides whether {@link AuthHeaderMessagePacket} is worth handshake cryptography. Checks go from
+ * the cheapest to the most expensive, so a flood of replayed or corrupted handshakes is rejected
+ * before key agreement, key derivation and decryption:
+ *
+ * <ol>
+ *   <li>session status, header decoding, id nonce, auth scheme and field sizes, all compared with
+ *       the session and header values without any cryptography
+ *   <li>attempts budget of the session, reset by every new WHOAREYOU
+ *   <li>attempts budget of the sender IP address per second, shared by all its sessions
+ * </ol>
+ *
+ * Keeps count of admitted attempts and of rejected ones by {@link Stage}.
+ */
+public class HandshakeAdmission {
+  public static final int DEFAULT_ATTEMPTS_PER_SESSION = 3;
+  public static final int DEFAULT_ATTEMPTS_PER_ADDRESS_PER_SECOND = 32;
+  private static final int AUTH_TAG_SIZE = 12;
+  private static final int COMPRESSED_PUBKEY_SIZE = 33;
+  private static final int MAX_TRACKED_ADDRESSES = 65536;
+
+  /** Stage at which handshake attempt was rejected */
+  public enum Stage {
+    STATUS,
+    MALFORMED,
+    ID_NONCE,
+    AUTH_SCHEME,
+    SIZE,
+    SESSION_BUDGET,
+    ADDRESS_BUDGET,
+    CRYPTO
+  }
+
+  private final int attemptsPerSession;
+  private final int attemptsPerAddress;
+  // Counter lives for a second since the first attempt, giving fixed windows per address
+  private final Cache<InetAddress, AtomicInteger> addressAttempts =
+      CacheBuilder.newBuilder()
+          .maximumSize(MAX_TRACKED_ADDRESSES)
+          .expireAfterWrite(1, TimeUnit.SECONDS)
+          .build();
+  private final Map<Stage, LongAdder> rejected = new EnumMap<>(Stage.class);
+  private final LongAdder admitted = new LongAdder();
+
+  public HandshakeAdmission() {
+    this(DEFAULT_ATTEMPTS_PER_SESSION, DEFAULT_ATTEMPTS_PER_ADDRESS_PER_SECOND);
+  }
+
+  public HandshakeAdmission(int attemptsPerSession, int attemptsPerAddressPerSecond) {
+    checkArgument(attemptsPerSession > 0, "Attempts per session should be positive");
+    checkArgument(attemptsPerAddressPerSecond > 0, "Attempts per address should be positive");
+    this.attemptsPerSession = attemptsPerSession;
+    this.attemptsPerAddress = attemptsPerAddressPerSecond;
+    for (Stage stage : Stage.values()) {
+      rejected.put(stage, new LongAdder());
+    }
+  }
+
+  /**
+   * Runs cheap checks and spends budgets for the attempt
+   *
+   * @return stage rejecting the packet or empty if it should go on to cryptography
+   */
+  public Optional<Stage> admit(
+      AuthHeaderMessagePacket packet, NodeSession session, @Nullable InetSocketAddress sender) {
+    Optional<Stage> rejection = check(packet, session, sender);
+    if (rejection.isPresent()) {
+      rejected.get(rejection.get()).increment();
+    } else {
+      admitted.increment();
+    }
+    return rejection;
+  }
+
+  /** Counts admitted attempt which has failed verification */
+  public void failedCrypto() {
+    rejected.get(Stage.CRYPTO).increment();
+  }
+
+  private Optional<Stage> check(
+      AuthHeaderMessagePacket packet, NodeSession session, @Nullable InetSocketAddress sender) {
+    if (session.getStatus() != WHOAREYOU_SENT) {
+      return Optional.of(Stage.STATUS);
+    }
+    try {
+      packet.decodeEphemeralPubKey();
+    } catch (RuntimeException ex) {
+      return Optional.of(Stage.MALFORMED);
+    }
+    if (!packet.getIdNonce().equals(session.getIdNonce())) {
+      return Optional.of(Stage.ID_NONCE);
+    }
+    if (!AuthHeaderMessagePacket.AUTH_SCHEME_NAME.equals(packet.getAuthSchemeName())) {
+      return Optional.of(Stage.AUTH_SCHEME);
+    }
+    int pubKeySize = packet.getEphemeralPubkey().size();
+    if (packet.getAuthTag().size() != AUTH_TAG_SIZE
+        || (pubKeySize != Functions.PUBKEY_SIZE && pubKeySize != COMPRESSED_PUBKEY_SIZE)) {
+      return Optional.of(Stage.SIZE);
+    }
+    if (session.incrementHandshakeAttempts() > attemptsPerSession) {
+      return Optional.of(Stage.SESSION_BUDGET);
+    }
+    if (sender != null
+        && addressAttempts
+                .asMap()
+                .computeIfAbsent(sender.getAddress(), address -> new AtomicInteger())
+                .incrementAndGet()
+            > attemptsPerAddress) {
+      return Optional.of(Stage.ADDRESS_BUDGET);
+    }
+    return Optional.empty();
+  }
+
+  public long getAdmittedCount() {
+    return admitted.sum();
+  }
+
+  public long getRejectedCount(Stage stage) {
+    return rejected.get(stage).sum();
+  }
+}
@@ -0,0 +1,94 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.ethereum.beacon.discovery.pipeline.handler;
+
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.ethereum.beacon.discovery.pipeline.Envelope;
+import org.ethereum.beacon.discovery.pipeline.Field;
+import org.ethereum.beacon.discovery.pipeline.Pipeline;
+import org.ethereum.beacon.discovery.scheduler.Scheduler;
+import org.ethereum.beacon.discovery.schema.NodeSession;
+
+/**
+ * Runs cryptography of handshake handlers: key agreement, key derivation, signing and signature
+ * verification.
+ *
+ * <p>When created with a scheduler, the computation runs there and the pipeline thread is released
+ * immediately. The completed future is put into {@link Field#HANDSHAKE_RESULT} and the envelope is
+ * pushed to the incoming pipeline again from the crypto thread, so the same handler completes the
+ * handshake. Until then all packets of the session are held by {@link HandshakeInProgressHandler}
+ * and replayed afterwards.
+ *
+ * <p>Only {@link org.ethereum.beacon.discovery.pipeline.ShardedPipeline} hands the returning
+ * envelope to its lane. {@link org.ethereum.beacon.discovery.pipeline.PipelineImpl} runs handlers
+ * on the pushing thread, so there the handshake is completed and held packets are replayed on the
+ * crypto thread, one at a time with packets pushed by the network thread.
+ */
+public class HandshakeCrypto {
+  public static final HandshakeCrypto INLINE = new HandshakeCrypto(null, null);
+  private static final Logger logger = LogManager.getLogger(HandshakeCrypto.class);
+
+  private final Scheduler cryptoScheduler;
+  private final Pipeline incomingPipeline;
+
+  /**
+   * @param cryptoScheduler scheduler for cryptography, usually {@link
+   *     org.ethereum.beacon.discovery.scheduler.Schedulers#cpuHeavy()}
+   * @param incomingPipeline pipeline to return envelopes to
+   */
+  public HandshakeCrypto(Scheduler cryptoScheduler, Pipeline incomingPipeline) {
+    this.cryptoScheduler = cryptoScheduler;
+    this.incomingPipeline = incomingPipeline;
+  }
+
+  /**
+   * Returns result of `crypto` task for the envelope, running it when needed. Envelope returning
+   * with the result has been checked already, so `crypto` is not used and may be null then.
+   *
+   * @return result, or empty if the task was sent to the scheduler and the envelope will be back
+   *     with the result
+   * @throws Exception thrown by the task
+   */
+  @SuppressWarnings("unchecked")
+  public <T> Optional<T> run(Envelope envelope, NodeSession session, Callable<T> crypto)
+      throws Exception {
+    if (envelope.contains(Field.HANDSHAKE_RESULT)) {
+      CompletableFuture<T> result = (CompletableFuture<T>) envelope.get(Field.HANDSHAKE_RESULT);
+      envelope.remove(Field.HANDSHAKE_RESULT);
+      // Deferred envelopes are queued after the current one, so they see completed handshake
+      session.completeHandshake().forEach(incomingPipeline::push);
+      return Optional.of(result.join());
+    }
+    if (cryptoScheduler == null) {
+      return Optional.of(crypto.call());
+    }
+    session.startHandshake();
+    cryptoScheduler
+        .execute(crypto)
+        .handle(
+            (result, error) ->
+                error == null
+                    ? CompletableFuture.completedFuture(result)
+                    : CompletableFuture.<T>failedFuture(error))
+        .thenAccept(
+            result -> {
+              envelope.put(Field.HANDSHAKE_RESULT, result);
+              incomingPipeline.push(envelope);
+            })
+        .exceptionally(
+            ex -> {
+              logger.error(
+                  String.format("Failed to return envelope %s to pipeline", envelope.getId()), ex);
+              // Handshake is abandoned, envelopes held meanwhile are handled without it
+              session.completeHandshake().forEach(incomingPipeline::push);
+              return null;
+            });
+    return Optional.empty();
+  }
+}
@@ -0,0 +1,58 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.ethereum.beacon.discovery.pipeline.handler;
+
+import java.util.List;
+import java.util.Set;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.ethereum.beacon.discovery.pipeline.Envelope;
+import org.ethereum.beacon.discovery.pipeline.EnvelopeHandler;
+import org.ethereum.beacon.discovery.pipeline.Field;
+import org.ethereum.beacon.discovery.schema.NodeSession;
+
+/**
+ * Holds packets of a session, {@link Field#PACKET_UNKNOWN} and {@link Field#PACKET_WHOAREYOU},
+ * while its handshake cryptography runs in {@link HandshakeCrypto}. Packets are interpreted
+ * according to session status, so they should not be handled before handshake is completed, and
+ * WHOAREYOU would start another handshake. Held packets are replayed through the pipeline right
+ * after completion.
+ */
+public class HandshakeInProgressHandler implements EnvelopeHandler {
+  private static final Logger logger = LogManager.getLogger(HandshakeInProgressHandler.class);
+  private static final Set<Field> REQUIRED_FIELDS = Set.of(Field.SESSION);
+  private static final List<Field> PACKET_FIELDS =
+      List.of(Field.PACKET_UNKNOWN, Field.PACKET_WHOAREYOU);
+
+  @Override
+  public Set<Field> getRequiredFields() {
+    return REQUIRED_FIELDS;
+  }
+
+  @Override
+  public void handle(Envelope envelope) {
+    NodeSession session = (NodeSession) envelope.get(Field.SESSION);
+    // Envelope returning with crypto result completes the handshake
+    if (!session.isHandshakeInProgress() || envelope.contains(Field.HANDSHAKE_RESULT)) {
+      return;
+    }
+    for (Field packetField : PACKET_FIELDS) {
+      if (!envelope.contains(packetField)) {
+        continue;
+      }
+      Envelope deferred = new Envelope();
+      deferred.put(packetField, envelope.get(packetField));
+      deferred.put(Field.REMOTE_SENDER, envelope.get(Field.REMOTE_SENDER));
+      if (!session.deferUntilHandshake(deferred)) {
+        logger.trace(
+            () ->
+                String.format(
+                    "Dropping envelope %s, too many packets wait for handshake in session %s",
+                    envelope.getId(), session));
+      }
+      envelope.remove(packetField);
+    }
+  }
+}
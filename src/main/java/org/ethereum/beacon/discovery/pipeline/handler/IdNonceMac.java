@@ -0,0 +1,98 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.ethereum.beacon.discovery.pipeline.handler;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.net.InetSocketAddress;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.Random;
+import java.util.function.LongSupplier;
+import org.apache.tuweni.bytes.Bytes;
+import org.bouncycastle.crypto.digests.SHA256Digest;
+import org.bouncycastle.crypto.macs.HMac;
+import org.bouncycastle.crypto.params.KeyParameter;
+import org.ethereum.beacon.discovery.util.RandomSource;
+
+/**
+ * Derives WHOAREYOU id nonces from node id and address of the sender instead of remembering them:
+ *
+ * <p><code>id-nonce = HMAC-SHA256(secret, node-id || ip || port)</code>
+ *
+ * <p>Secret is random and replaced every rotation period, nonces made with the current or the
+ * previous secret are accepted. So answer to WHOAREYOU is verified without any state per sender
+ * and is accepted for one to two rotation periods after the challenge.
+ */
+public class IdNonceMac {
+  public static final Duration DEFAULT_ROTATION = Duration.ofSeconds(30);
+  private static final int SECRET_SIZE = 32;
+
+  private final long rotationNanos;
+  private final Random random;
+  private final LongSupplier nanoClock;
+  private Bytes currentSecret;
+  private Bytes previousSecret;
+  private long rotatedAt;
+
+  public IdNonceMac() {
+    this(DEFAULT_ROTATION, RandomSource.keys(), System::nanoTime);
+  }
+
+  IdNonceMac(Duration rotation, Random random, LongSupplier nanoClock) {
+    checkArgument(!rotation.isNegative() && !rotation.isZero(), "Rotation should be positive");
+    this.rotationNanos = rotation.toNanos();
+    this.random = random;
+    this.nanoClock = nanoClock;
+    this.currentSecret = newSecret();
+    this.previousSecret = newSecret();
+    this.rotatedAt = nanoClock.getAsLong();
+  }
+
+  /** Returns id nonce for WHOAREYOU sent to `nodeId` at `address` */
+  public Bytes create(Bytes nodeId, InetSocketAddress address) {
+    return mac(getSecrets()[0], nodeId, address);
+  }
+
+  /** Whether `idNonce` was created for `nodeId` at `address` recently */
+  public boolean verify(Bytes idNonce, Bytes nodeId, InetSocketAddress address) {
+    Bytes[] secrets = getSecrets();
+    // Constant time comparison, so timing doesn't reveal how much of a forged nonce matches
+    byte[] nonce = idNonce.toArrayUnsafe();
+    return MessageDigest.isEqual(nonce, mac(secrets[0], nodeId, address).toArrayUnsafe())
+        || MessageDigest.isEqual(nonce, mac(secrets[1], nodeId, address).toArrayUnsafe());
+  }
+
+  private synchronized Bytes[] getSecrets() {
+    long now = nanoClock.getAsLong();
+    long periods = (now - rotatedAt) / rotationNanos;
+    if (periods > 0) {
+      // Previous secret survives only if it's from the period just ended
+      previousSecret = periods == 1 ? currentSecret : newSecret();
+      currentSecret = newSecret();
+      rotatedAt += periods * rotationNanos;
+    }
+    return new Bytes[] {currentSecret, previousSecret};
+  }
+
+  private Bytes newSecret() {
+    byte[] secret = new byte[SECRET_SIZE];
+    random.nextBytes(secret);
+    return Bytes.wrap(secret);
+  }
+
+  private static Bytes mac(Bytes secret, Bytes nodeId, InetSocketAddress address) {
+    HMac hmac = new HMac(new SHA256Digest());
+    hmac.init(new KeyParameter(secret.toArrayUnsafe()));
+    hmac.update(nodeId.toArrayUnsafe(), 0, nodeId.size());
+    byte[] ip = address.getAddress().getAddress();
+    hmac.update(ip, 0, ip.length);
+    hmac.update((byte) (address.getPort() >>> 8));
+    hmac.update((byte) address.getPort());
+    byte[] result = new byte[hmac.getMacSize()];
+    hmac.doFinal(result, 0);
+    return Bytes.wrap(result);
+  }
+}
@@ -4,6 +4,7 @@
 
 package org.ethereum.beacon.discovery.pipeline.handler;
 
+import java.util.Set;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.apache.tuweni.bytes.Bytes;
@@ -16,6 +17,12 @@ import org.ethereum.beacon.discovery.pipeline.HandlerUtil;
 /** Handles raw BytesValue incoming data in {@link Field#INCOMING} */
 public class IncomingDataPacker implements EnvelopeHandler {
   private static final Logger logger = LogManager.getLogger(IncomingDataPacker.class);
+  private static final Set<Field> REQUIRED_FIELDS = Set.of(Field.INCOMING);
+
+  @Override
+  public Set<Field> getRequiredFields() {
+    return REQUIRED_FIELDS;
+  }
 
   @Override
   public void handle(Envelope envelope) {
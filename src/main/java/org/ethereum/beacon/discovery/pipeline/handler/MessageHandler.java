@@ -4,6 +4,7 @@
 
 package org.ethereum.beacon.discovery.pipeline.handler;
 
+import java.util.Set;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.ethereum.beacon.discovery.message.DiscoveryMessage;
@@ -19,6 +20,7 @@ import org.ethereum.beacon.discovery.storage.LocalNodeRecordStore;
 
 public class MessageHandler implements EnvelopeHandler {
   private static final Logger logger = LogManager.getLogger(MessageHandler.class);
+  private static final Set<Field> REQUIRED_FIELDS = Set.of(Field.MESSAGE, Field.SESSION);
   private final MessageProcessor messageProcessor;
 
   public MessageHandler(
@@ -28,6 +30,11 @@ public class MessageHandler implements EnvelopeHandler {
             new DiscoveryV5MessageProcessor(nodeRecordFactory, localNodeRecordStore));
   }
 
+  @Override
+  public Set<Field> getRequiredFields() {
+    return REQUIRED_FIELDS;
+  }
+
   @Override
   public void handle(Envelope envelope) {
     logger.trace(
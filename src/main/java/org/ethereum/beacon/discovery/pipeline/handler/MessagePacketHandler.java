@@ -4,6 +4,7 @@
 
 package org.ethereum.beacon.discovery.pipeline.handler;
 
+import java.util.Set;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.ethereum.beacon.discovery.packet.MessagePacket;
@@ -16,6 +17,12 @@ import org.ethereum.beacon.discovery.schema.NodeSession;
 /** Handles {@link MessagePacket} in {@link Field#PACKET_MESSAGE} field */
 public class MessagePacketHandler implements EnvelopeHandler {
   private static final Logger logger = LogManager.getLogger(MessagePacketHandler.class);
+  private static final Set<Field> REQUIRED_FIELDS = Set.of(Field.PACKET_MESSAGE, Field.SESSION);
+
+  @Override
+  public Set<Field> getRequiredFields() {
+    return REQUIRED_FIELDS;
+  }
 
   @Override
   public void handle(Envelope envelope) {
@@ -40,7 +47,7 @@ public class MessagePacketHandler implements EnvelopeHandler {
     NodeSession session = (NodeSession) envelope.get(Field.SESSION);
 
     try {
-      packet.decode(session.getRecipientKey());
+      packet.decode(session.getRecipientCipherKey());
       envelope.put(Field.MESSAGE, packet.getMessage());
     } catch (Exception ex) {
       String error =
@@ -4,6 +4,7 @@
 
 package org.ethereum.beacon.discovery.pipeline.handler;
 
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -18,6 +19,13 @@ import org.ethereum.beacon.discovery.task.TaskType;
 /** Enqueues task in session for any task found in {@link Field#TASK} */
 public class NewTaskHandler implements EnvelopeHandler {
   private static final Logger logger = LogManager.getLogger(NewTaskHandler.class);
+  private static final Set<Field> REQUIRED_FIELDS =
+      Set.of(Field.TASK, Field.TASK_OPTIONS, Field.SESSION, Field.FUTURE);
+
+  @Override
+  public Set<Field> getRequiredFields() {
+    return REQUIRED_FIELDS;
+  }
 
   @Override
   @SuppressWarnings({"unchecked", "rawtypes"})
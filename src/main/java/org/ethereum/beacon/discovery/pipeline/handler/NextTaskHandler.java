@@ -4,9 +4,9 @@
 
 package org.ethereum.beacon.discovery.pipeline.handler;
 
-import java.security.SecureRandom;
 import java.time.Duration;
 import java.util.Optional;
+import java.util.Set;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.apache.tuweni.bytes.Bytes;
@@ -25,10 +25,12 @@ import org.ethereum.beacon.discovery.schema.NodeSession;
 import org.ethereum.beacon.discovery.task.TaskMessageFactory;
 import org.ethereum.beacon.discovery.task.TaskOptions;
 import org.ethereum.beacon.discovery.task.TaskStatus;
+import org.ethereum.beacon.discovery.util.RandomSource;
 
 /** Gets next request task in session and processes it */
 public class NextTaskHandler implements EnvelopeHandler {
   private static final Logger logger = LogManager.getLogger(NextTaskHandler.class);
+  private static final Set<Field> REQUIRED_FIELDS = Set.of(Field.SESSION);
   private static final int DEFAULT_DELAY_MS = 1000;
   private final Pipeline outgoingPipeline;
   private final Scheduler scheduler;
@@ -48,6 +50,11 @@ public class NextTaskHandler implements EnvelopeHandler {
     }
   }
 
+  @Override
+  public Set<Field> getRequiredFields() {
+    return REQUIRED_FIELDS;
+  }
+
   @Override
   public void handle(Envelope envelope) {
     logger.trace(
@@ -80,7 +87,7 @@ public class NextTaskHandler implements EnvelopeHandler {
     if (session.getStatus().equals(NodeSession.SessionStatus.INITIAL)) {
       RandomPacket randomPacket =
           RandomPacket.create(
-              session.getHomeNodeId(), session.getNodeId(), authTag, new SecureRandom());
+              session.getHomeNodeId(), session.getNodeId(), authTag, RandomSource.nonces());
       session.setAuthTag(authTag);
       session.sendOutgoing(randomPacket);
       session.setStatus(NodeSession.SessionStatus.RANDOM_PACKET_SENT);
@@ -4,18 +4,19 @@
 
 package org.ethereum.beacon.discovery.pipeline.handler;
 
-import static com.google.common.base.Preconditions.checkNotNull;
-
 import java.net.InetSocketAddress;
-import java.security.SecureRandom;
-import java.util.Map;
-import java.util.Objects;
 import java.util.Optional;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.apache.tuweni.bytes.Bytes;
+import org.apache.tuweni.units.bigints.UInt64;
+import org.ethereum.beacon.discovery.network.IncomingRateLimiter;
+import org.ethereum.beacon.discovery.network.NetworkParcelV5;
+import org.ethereum.beacon.discovery.packet.AuthHeaderMessagePacket;
+import org.ethereum.beacon.discovery.packet.UnknownPacket;
+import org.ethereum.beacon.discovery.packet.WhoAreYouPacket;
 import org.ethereum.beacon.discovery.pipeline.Envelope;
 import org.ethereum.beacon.discovery.pipeline.EnvelopeHandler;
 import org.ethereum.beacon.discovery.pipeline.Field;
@@ -30,24 +31,34 @@ import org.ethereum.beacon.discovery.storage.AuthTagRepository;
 import org.ethereum.beacon.discovery.storage.LocalNodeRecordStore;
 import org.ethereum.beacon.discovery.storage.NodeBucketStorage;
 import org.ethereum.beacon.discovery.storage.NodeTable;
+import org.ethereum.beacon.discovery.util.RandomSource;
 
 /**
  * Performs {@link Field#SESSION_LOOKUP} request. Looks up for Node session based on NodeId, which
  * should be in request field and stores it in {@link Field#SESSION} field.
+ *
+ * <p>With {@link IdNonceMac} given, unknown packets from senders without session are answered with
+ * WHOAREYOU carrying MAC derived id nonce and no session is created. Session is created only for an
+ * auth header answering such a challenge, so sessions are kept for peers which completed, or at
+ * least properly started, the handshake. Such WHOAREYOU takes a handshake token of {@link
+ * IncomingRateLimiter} if it's given.
  */
 public class NodeIdToSession implements EnvelopeHandler {
   private static final int SESSION_CLEANUP_DELAY_SECONDS = 180;
   private static final int REQUEST_CLEANUP_DELAY_SECONDS = 60;
   private static final Logger logger = LogManager.getLogger(NodeIdToSession.class);
+  private static final Set<Field> REQUIRED_FIELDS = Set.of(Field.SESSION_LOOKUP);
   private final LocalNodeRecordStore localNodeRecordStore;
   private final Bytes staticNodeKey;
   private final NodeBucketStorage nodeBucketStorage;
   private final AuthTagRepository authTagRepo;
-  private final Map<SessionKey, NodeSession> recentSessions = new ConcurrentHashMap<>();
+  private final SessionTable sessionTable;
   private final NodeTable nodeTable;
   private final Pipeline outgoingPipeline;
-  private final ExpirationScheduler<SessionKey> sessionExpirationScheduler;
+  private final ExpirationScheduler<NodeSession> sessionExpirationScheduler;
   private final ExpirationScheduler<Bytes> requestExpirationScheduler;
+  private final Optional<IdNonceMac> idNonceMac;
+  private final Optional<IncomingRateLimiter> rateLimiter;
 
   public NodeIdToSession(
       LocalNodeRecordStore localNodeRecordStore,
@@ -57,6 +68,33 @@ public class NodeIdToSession implements EnvelopeHandler {
       NodeTable nodeTable,
       Pipeline outgoingPipeline,
       ExpirationSchedulerFactory expirationSchedulerFactory) {
+    this(
+        localNodeRecordStore,
+        staticNodeKey,
+        nodeBucketStorage,
+        authTagRepo,
+        nodeTable,
+        outgoingPipeline,
+        expirationSchedulerFactory,
+        Optional.empty(),
+        new SessionTable(),
+        Optional.empty());
+  }
+
+  public NodeIdToSession(
+      LocalNodeRecordStore localNodeRecordStore,
+      Bytes staticNodeKey,
+      NodeBucketStorage nodeBucketStorage,
+      AuthTagRepository authTagRepo,
+      NodeTable nodeTable,
+      Pipeline outgoingPipeline,
+      ExpirationSchedulerFactory expirationSchedulerFactory,
+      Optional<IdNonceMac> idNonceMac,
+      SessionTable sessionTable,
+      Optional<IncomingRateLimiter> rateLimiter) {
+    this.idNonceMac = idNonceMac;
+    this.rateLimiter = rateLimiter;
+    this.sessionTable = sessionTable;
     this.localNodeRecordStore = localNodeRecordStore;
     this.staticNodeKey = staticNodeKey;
     this.nodeBucketStorage = nodeBucketStorage;
@@ -69,6 +107,11 @@ public class NodeIdToSession implements EnvelopeHandler {
         expirationSchedulerFactory.create(REQUEST_CLEANUP_DELAY_SECONDS, TimeUnit.SECONDS);
   }
 
+  @Override
+  public Set<Field> getRequiredFields() {
+    return REQUIRED_FIELDS;
+  }
+
   @Override
   public void handle(Envelope envelope) {
     logger.trace(
@@ -97,36 +140,118 @@ public class NodeIdToSession implements EnvelopeHandler {
 
   private Optional<NodeSession> getOrCreateSession(Bytes nodeId, Envelope envelope) {
     return getRemoteSocketAddress(envelope)
-        .map(
+        .flatMap(
             remoteSocketAddress -> {
-              SessionKey sessionKey = new SessionKey(nodeId, remoteSocketAddress);
-              NodeSession context =
-                  recentSessions.computeIfAbsent(sessionKey, this::createNodeSession);
-
-              sessionExpirationScheduler.put(
-                  sessionKey,
-                  () -> {
-                    recentSessions.remove(sessionKey);
-                    context.cleanup();
+              Optional<NodeSession> context =
+                  idNonceMac.isPresent()
+                          && envelope.contains(Field.PACKET_UNKNOWN)
+                          && !sessionTable.contains(nodeId, remoteSocketAddress)
+                      ? getChallengedSession(
+                          nodeId, remoteSocketAddress, envelope, idNonceMac.get())
+                      : Optional.of(getOrCreateSession(nodeId, remoteSocketAddress));
+              context.ifPresent(
+                  session -> {
+                    sessionExpirationScheduler.put(
+                        session,
+                        () -> {
+                          sessionTable.remove(session);
+                          session.cleanup();
+                        });
+                    // Session may be evicted concurrently before its expiration is scheduled
+                    if (!sessionTable.contains(session)) {
+                      sessionExpirationScheduler.cancel(session);
+                    }
                   });
               return context;
             });
   }
 
-  private NodeSession createNodeSession(final SessionKey key) {
-    Optional<NodeRecord> nodeRecord = nodeTable.getNode(key.nodeId).map(NodeRecordInfo::getNode);
-    SecureRandom random = new SecureRandom();
+  /**
+   * Answers packet from unknown sender with stateless WHOAREYOU or, if it's an auth header with
+   * valid id nonce, creates session awaiting it
+   */
+  private Optional<NodeSession> getChallengedSession(
+      final Bytes nodeId,
+      final InetSocketAddress remoteSocketAddress,
+      final Envelope envelope,
+      final IdNonceMac idNonceMac) {
+    final UnknownPacket unknownPacket = (UnknownPacket) envelope.get(Field.PACKET_UNKNOWN);
+    try {
+      if (!unknownPacket.isAuthHeaderMessagePacket()) {
+        envelope.remove(Field.PACKET_UNKNOWN);
+        if (!rateLimiter
+            .map(limiter -> limiter.tryAcquireChallenge(remoteSocketAddress.getAddress(), nodeId))
+            .orElse(true)) {
+          logger.trace(
+              "Envelope {}: handshake rate limit exceeded for {}", envelope.getId(), nodeId);
+          return Optional.empty();
+        }
+        final Bytes authTag = NotExpectedIncomingPacketHandler.getAuthTag(unknownPacket);
+        final WhoAreYouPacket whoAreYouPacket =
+            WhoAreYouPacket.createFromNodeId(
+                nodeId,
+                authTag,
+                idNonceMac.create(nodeId, remoteSocketAddress),
+                nodeTable
+                    .getNode(nodeId)
+                    .map(nodeRecordInfo -> nodeRecordInfo.getNode().getSeq())
+                    .orElse(UInt64.ZERO));
+        outgoingPipeline.push(new NetworkParcelV5(whoAreYouPacket, remoteSocketAddress));
+        return Optional.empty();
+      }
+      final AuthHeaderMessagePacket authHeaderPacket = unknownPacket.getAuthHeaderMessagePacket();
+      authHeaderPacket.decodeEphemeralPubKey();
+      final Bytes idNonce = authHeaderPacket.getIdNonce();
+      if (!idNonceMac.verify(idNonce, nodeId, remoteSocketAddress)) {
+        logger.trace(
+            "Envelope {}: auth header from {} doesn't answer our WHOAREYOU",
+            envelope.getId(),
+            nodeId);
+        envelope.remove(Field.PACKET_UNKNOWN);
+        return Optional.empty();
+      }
+      final NodeSession session = getOrCreateSession(nodeId, remoteSocketAddress);
+      // Auth tag of the challenged packet is not known, responses use the one of auth header
+      session.setAuthTag(authHeaderPacket.getAuthTag());
+      session.setIdNonce(idNonce);
+      session.setStatus(NodeSession.SessionStatus.WHOAREYOU_SENT);
+      return Optional.of(session);
+    } catch (Exception ex) {
+      logger.debug(
+          String.format("Failed to read packet [%s] from node %s", unknownPacket, nodeId), ex);
+      envelope.put(Field.BAD_PACKET, unknownPacket);
+      envelope.put(Field.BAD_EXCEPTION, ex);
+      envelope.remove(Field.PACKET_UNKNOWN);
+      return Optional.empty();
+    }
+  }
+
+  private NodeSession getOrCreateSession(
+      final Bytes nodeId, final InetSocketAddress remoteSocketAddress) {
+    return sessionTable.getOrCreate(
+        nodeId,
+        remoteSocketAddress,
+        () -> createNodeSession(nodeId, remoteSocketAddress),
+        evicted -> {
+          sessionExpirationScheduler.cancel(evicted);
+          evicted.cleanup();
+        });
+  }
+
+  private NodeSession createNodeSession(
+      final Bytes nodeId, final InetSocketAddress remoteSocketAddress) {
+    Optional<NodeRecord> nodeRecord = nodeTable.getNode(nodeId).map(NodeRecordInfo::getNode);
     return new NodeSession(
-        key.nodeId,
+        nodeId,
         nodeRecord,
-        key.remoteSocketAddress,
+        remoteSocketAddress,
         localNodeRecordStore,
         staticNodeKey,
         nodeTable,
         nodeBucketStorage,
         authTagRepo,
         outgoingPipeline::push,
-        random,
+        RandomSource.nonces(),
         requestExpirationScheduler);
   }
 
@@ -134,33 +259,4 @@ public class NodeIdToSession implements EnvelopeHandler {
     return Optional.ofNullable((InetSocketAddress) envelope.get(Field.REMOTE_SENDER))
         .or(() -> ((NodeRecord) envelope.get(Field.NODE)).getUdpAddress());
   }
-
-  private static class SessionKey {
-    private final Bytes nodeId;
-    private final InetSocketAddress remoteSocketAddress;
-
-    private SessionKey(final Bytes nodeId, final InetSocketAddress remoteSocketAddress) {
-      checkNotNull(remoteSocketAddress);
-      this.nodeId = nodeId;
-      this.remoteSocketAddress = remoteSocketAddress;
-    }
-
-    @Override
-    public boolean equals(final Object o) {
-      if (this == o) {
-        return true;
-      }
-      if (o == null || getClass() != o.getClass()) {
-        return false;
-      }
-      final SessionKey that = (SessionKey) o;
-      return Objects.equals(nodeId, that.nodeId)
-          && Objects.equals(remoteSocketAddress, that.remoteSocketAddress);
-    }
-
-    @Override
-    public int hashCode() {
-      return Objects.hash(nodeId, remoteSocketAddress);
-    }
-  }
 }
@@ -4,6 +4,7 @@
 
 package org.ethereum.beacon.discovery.pipeline.handler;
 
+import java.util.Set;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.ethereum.beacon.discovery.pipeline.Envelope;
@@ -18,6 +19,12 @@ import org.ethereum.beacon.discovery.schema.NodeRecord;
  */
 public class NodeSessionRequestHandler implements EnvelopeHandler {
   private static final Logger logger = LogManager.getLogger(NodeSessionRequestHandler.class);
+  private static final Set<Field> REQUIRED_FIELDS = Set.of(Field.NODE);
+
+  @Override
+  public Set<Field> getRequiredFields() {
+    return REQUIRED_FIELDS;
+  }
 
   @Override
   public void handle(Envelope envelope) {
@@ -4,10 +4,13 @@
 
 package org.ethereum.beacon.discovery.pipeline.handler;
 
+import java.util.Optional;
+import java.util.Set;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.apache.tuweni.bytes.Bytes;
 import org.apache.tuweni.units.bigints.UInt64;
+import org.ethereum.beacon.discovery.network.IncomingRateLimiter;
 import org.ethereum.beacon.discovery.packet.MessagePacket;
 import org.ethereum.beacon.discovery.packet.RandomPacket;
 import org.ethereum.beacon.discovery.packet.UnknownPacket;
@@ -18,11 +21,29 @@ import org.ethereum.beacon.discovery.pipeline.Field;
 import org.ethereum.beacon.discovery.pipeline.HandlerUtil;
 import org.ethereum.beacon.discovery.schema.NodeRecord;
 import org.ethereum.beacon.discovery.schema.NodeSession;
-import org.ethereum.beacon.discovery.util.Functions;
+import org.ethereum.beacon.discovery.util.RandomSource;
 
-/** Handles {@link UnknownPacket} from node, which is not on any stage of the handshake with us */
+/**
+ * Handles {@link UnknownPacket} from node, which is not on any stage of the handshake with us. With
+ * {@link IncomingRateLimiter} given, WHOAREYOU is sent only within the handshake budget of sender.
+ */
 public class NotExpectedIncomingPacketHandler implements EnvelopeHandler {
   private static final Logger logger = LogManager.getLogger(NotExpectedIncomingPacketHandler.class);
+  private static final Set<Field> REQUIRED_FIELDS = Set.of(Field.PACKET_UNKNOWN, Field.SESSION);
+  private final Optional<IncomingRateLimiter> rateLimiter;
+
+  public NotExpectedIncomingPacketHandler() {
+    this(Optional.empty());
+  }
+
+  public NotExpectedIncomingPacketHandler(Optional<IncomingRateLimiter> rateLimiter) {
+    this.rateLimiter = rateLimiter;
+  }
+
+  @Override
+  public Set<Field> getRequiredFields() {
+    return REQUIRED_FIELDS;
+  }
 
   @Override
   public void handle(Envelope envelope) {
@@ -45,23 +66,25 @@ public class NotExpectedIncomingPacketHandler implements EnvelopeHandler {
 
     UnknownPacket unknownPacket = (UnknownPacket) envelope.get(Field.PACKET_UNKNOWN);
     NodeSession session = (NodeSession) envelope.get(Field.SESSION);
+    if (!rateLimiter
+        .map(
+            limiter ->
+                limiter.tryAcquireChallenge(
+                    session.getRemoteAddress().getAddress(), session.getNodeId()))
+        .orElse(true)) {
+      logger.trace(
+          () ->
+              String.format(
+                  "Handshake rate limit exceeded, not answering packet in envelope %s from %s",
+                  envelope.getId(), session.getRemoteAddress()));
+      envelope.remove(Field.PACKET_UNKNOWN);
+      return;
+    }
     try {
-      // packet it either random or message packet if session is expired
-      Bytes authTag = null;
-      try {
-        RandomPacket randomPacket = unknownPacket.getRandomPacket();
-        authTag = randomPacket.getAuthTag();
-      } catch (Exception ex) {
-        // Not fatal, 1st attempt
-      }
-      // 2nd attempt
-      if (authTag == null) {
-        MessagePacket messagePacket = unknownPacket.getMessagePacket();
-        authTag = messagePacket.getAuthTag();
-      }
+      Bytes authTag = getAuthTag(unknownPacket);
       session.setAuthTag(authTag);
       byte[] idNonceBytes = new byte[32];
-      Functions.getRandom().nextBytes(idNonceBytes);
+      RandomSource.nonces().nextBytes(idNonceBytes);
       Bytes idNonce = Bytes.wrap(idNonceBytes);
       session.setIdNonce(idNonce);
       WhoAreYouPacket whoAreYouPacket =
@@ -85,4 +108,18 @@ public class NotExpectedIncomingPacketHandler implements EnvelopeHandler {
     session.setStatus(NodeSession.SessionStatus.WHOAREYOU_SENT);
     envelope.remove(Field.PACKET_UNKNOWN);
   }
+
+  /** Reads auth tag to answer with WHOAREYOU from unknown packet */
+  static Bytes getAuthTag(UnknownPacket unknownPacket) {
+    // packet it either random or message packet if session is expired
+    try {
+      RandomPacket randomPacket = unknownPacket.getRandomPacket();
+      return randomPacket.getAuthTag();
+    } catch (Exception ex) {
+      // Not fatal, 1st attempt
+    }
+    // 2nd attempt
+    MessagePacket messagePacket = unknownPacket.getMessagePacket();
+    return messagePacket.getAuthTag();
+  }
 }
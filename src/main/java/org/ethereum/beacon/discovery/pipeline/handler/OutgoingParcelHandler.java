@@ -4,6 +4,7 @@
 
 package org.ethereum.beacon.discovery.pipeline.handler;
 
+import java.util.Set;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.ethereum.beacon.discovery.network.NetworkParcel;
@@ -20,6 +21,7 @@ import reactor.core.publisher.FluxSink;
  */
 public class OutgoingParcelHandler implements EnvelopeHandler {
   private static final Logger logger = LogManager.getLogger(OutgoingParcelHandler.class);
+  private static final Set<Field> REQUIRED_FIELDS = Set.of(Field.INCOMING);
 
   private final FluxSink<NetworkParcel> outgoingSink;
 
@@ -27,6 +29,11 @@ public class OutgoingParcelHandler implements EnvelopeHandler {
     this.outgoingSink = outgoingSink;
   }
 
+  @Override
+  public Set<Field> getRequiredFields() {
+    return REQUIRED_FIELDS;
+  }
+
   @Override
   public void handle(Envelope envelope) {
     logger.trace(
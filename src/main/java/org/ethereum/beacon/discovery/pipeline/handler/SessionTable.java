@@ -0,0 +1,221 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.ethereum.beacon.discovery.pipeline.handler;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.tuweni.bytes.Bytes;
+import org.ethereum.beacon.discovery.schema.NodeSession;
+
+/**
+ * Capacity bounded table of {@link NodeSession}s keyed by remote node id and address.
+ *
+ * <p>Sessions are kept in two least recently used orders: authenticated ones and ones still doing
+ * handshake. When table is full, the least recently used unauthenticated session is evicted, and
+ * only if there is none the least recently used authenticated one. Session just created is never
+ * evicted by its own creation. So a flood of handshake attempts with fresh node ids or addresses
+ * evicts other pending handshakes rather than established sessions. Session is moved between
+ * orders when it's looked up or considered for eviction, as its status changes outside of the
+ * table.
+ */
+public class SessionTable {
+  /** About 130 MB with {@link NodeSession#getApproximateSize()} estimate of idle session */
+  public static final int DEFAULT_CAPACITY = 65536;
+
+  private static final Logger logger = LogManager.getLogger(SessionTable.class);
+  private final int capacity;
+  private final LinkedHashMap<Key, NodeSession> pending = new LinkedHashMap<>(16, 0.75f, true);
+  private final LinkedHashMap<Key, NodeSession> authenticated =
+      new LinkedHashMap<>(16, 0.75f, true);
+  private long evictedCount = 0;
+  private long evictedAuthenticatedCount = 0;
+
+  public SessionTable() {
+    this(DEFAULT_CAPACITY);
+  }
+
+  public SessionTable(int capacity) {
+    checkArgument(capacity > 0, "Capacity should be positive");
+    this.capacity = capacity;
+  }
+
+  public synchronized boolean contains(Bytes nodeId, InetSocketAddress address) {
+    final Key key = new Key(nodeId, address);
+    return pending.containsKey(key) || authenticated.containsKey(key);
+  }
+
+  /** Whether `session` is the one stored for its node id and address */
+  public synchronized boolean contains(NodeSession session) {
+    final Key key = new Key(session.getNodeId(), session.getRemoteAddress());
+    return pending.get(key) == session || authenticated.get(key) == session;
+  }
+
+  /**
+   * Returns session, creating it with `factory` if missing. If table is over capacity after that,
+   * evicts sessions passing them to `evictionListener`.
+   */
+  public NodeSession getOrCreate(
+      Bytes nodeId,
+      InetSocketAddress address,
+      Supplier<NodeSession> factory,
+      Consumer<NodeSession> evictionListener) {
+    final Key key = new Key(nodeId, address);
+    synchronized (this) {
+      final NodeSession existing = touch(key);
+      if (existing != null) {
+        return existing;
+      }
+    }
+    // Creation may read node table, so it's done outside of the lock
+    final NodeSession created = factory.get();
+    final List<NodeSession> evicted = new ArrayList<>();
+    synchronized (this) {
+      final NodeSession existing = touch(key);
+      if (existing != null) {
+        return existing;
+      }
+      (created.isAuthenticated() ? authenticated : pending).put(key, created);
+      while (pending.size() + authenticated.size() > capacity) {
+        evicted.add(evictOne(key));
+      }
+    }
+    for (NodeSession evictedSession : evicted) {
+      logger.trace("Session evicted: {}", evictedSession);
+      evictionListener.accept(evictedSession);
+    }
+    return created;
+  }
+
+  /** Removes `session` if it's still the one stored for its node id and address */
+  public synchronized boolean remove(NodeSession session) {
+    final Key key = new Key(session.getNodeId(), session.getRemoteAddress());
+    return pending.remove(key, session) || authenticated.remove(key, session);
+  }
+
+  private NodeSession touch(Key key) {
+    NodeSession session = authenticated.get(key);
+    if (session != null) {
+      if (!session.isAuthenticated()) {
+        authenticated.remove(key);
+        pending.put(key, session);
+      }
+      return session;
+    }
+    session = pending.get(key);
+    if (session != null && session.isAuthenticated()) {
+      pending.remove(key);
+      authenticated.put(key, session);
+    }
+    return session;
+  }
+
+  /** Evicts one session other than the one stored for `keep` */
+  private NodeSession evictOne(Key keep) {
+    final Iterator<Map.Entry<Key, NodeSession>> pendingIterator = pending.entrySet().iterator();
+    while (pendingIterator.hasNext()) {
+      final Map.Entry<Key, NodeSession> eldest = pendingIterator.next();
+      if (eldest.getKey().equals(keep)) {
+        continue;
+      }
+      pendingIterator.remove();
+      if (eldest.getValue().isAuthenticated()) {
+        // Completed handshake since last lookup
+        authenticated.put(eldest.getKey(), eldest.getValue());
+        continue;
+      }
+      evictedCount++;
+      return eldest.getValue();
+    }
+    final Iterator<Map.Entry<Key, NodeSession>> authenticatedIterator =
+        authenticated.entrySet().iterator();
+    Map.Entry<Key, NodeSession> eldest = authenticatedIterator.next();
+    if (eldest.getKey().equals(keep)) {
+      eldest = authenticatedIterator.next();
+    }
+    authenticatedIterator.remove();
+    evictedCount++;
+    evictedAuthenticatedCount++;
+    return eldest.getValue();
+  }
+
+  public int getCapacity() {
+    return capacity;
+  }
+
+  /** Number of sessions in the table */
+  public synchronized int getLiveCount() {
+    return pending.size() + authenticated.size();
+  }
+
+  /** Number of authenticated sessions in the table, iterates over all of them */
+  public synchronized int getAuthenticatedCount() {
+    return (int)
+        (authenticated.values().stream().filter(NodeSession::isAuthenticated).count()
+            + pending.values().stream().filter(NodeSession::isAuthenticated).count());
+  }
+
+  /** Total number of sessions evicted due to capacity */
+  public synchronized long getEvictedCount() {
+    return evictedCount;
+  }
+
+  /** Number of evicted sessions which were authenticated, included in {@link #getEvictedCount()} */
+  public synchronized long getEvictedAuthenticatedCount() {
+    return evictedAuthenticatedCount;
+  }
+
+  /** Approximate heap size retained by all sessions, iterates over all of them */
+  public synchronized long getApproximateBytes() {
+    long bytes = 0;
+    for (NodeSession session : pending.values()) {
+      bytes += session.getApproximateSize();
+    }
+    for (NodeSession session : authenticated.values()) {
+      bytes += session.getApproximateSize();
+    }
+    return bytes;
+  }
+
+  private static class Key {
+    private final Bytes nodeId;
+    private final InetSocketAddress remoteSocketAddress;
+
+    private Key(final Bytes nodeId, final InetSocketAddress remoteSocketAddress) {
+      checkNotNull(remoteSocketAddress);
+      this.nodeId = nodeId;
+      this.remoteSocketAddress = remoteSocketAddress;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      final Key that = (Key) o;
+      return Objects.equals(nodeId, that.nodeId)
+          && Objects.equals(remoteSocketAddress, that.remoteSocketAddress);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(nodeId, remoteSocketAddress);
+    }
+  }
+}
@@ -4,6 +4,7 @@
 
 package org.ethereum.beacon.discovery.pipeline.handler;
 
+import java.util.Set;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.apache.tuweni.bytes.Bytes;
@@ -21,6 +22,7 @@ import org.ethereum.beacon.discovery.type.Hashes;
  */
 public class UnknownPacketTagToSender implements EnvelopeHandler {
   private static final Logger logger = LogManager.getLogger(UnknownPacketTagToSender.class);
+  private static final Set<Field> REQUIRED_FIELDS = Set.of(Field.PACKET_UNKNOWN);
   private final Bytes homeNodeId;
   private final Bytes homeNodeIdHash;
 
@@ -29,6 +31,11 @@ public class UnknownPacketTagToSender implements EnvelopeHandler {
     this.homeNodeIdHash = Hashes.sha256(nodeId);
   }
 
+  @Override
+  public Set<Field> getRequiredFields() {
+    return REQUIRED_FIELDS;
+  }
+
   @Override
   public void handle(Envelope envelope) {
     logger.trace(
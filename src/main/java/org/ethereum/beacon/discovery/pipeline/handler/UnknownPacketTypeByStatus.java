@@ -4,6 +4,7 @@
 
 package org.ethereum.beacon.discovery.pipeline.handler;
 
+import java.util.Set;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.ethereum.beacon.discovery.packet.AuthHeaderMessagePacket;
@@ -21,6 +22,12 @@ import org.ethereum.beacon.discovery.schema.NodeSession;
  */
 public class UnknownPacketTypeByStatus implements EnvelopeHandler {
   private static final Logger logger = LogManager.getLogger(UnknownPacketTypeByStatus.class);
+  private static final Set<Field> REQUIRED_FIELDS = Set.of(Field.SESSION, Field.PACKET_UNKNOWN);
+
+  @Override
+  public Set<Field> getRequiredFields() {
+    return REQUIRED_FIELDS;
+  }
 
   @Override
   public void handle(Envelope envelope) {
@@ -4,10 +4,12 @@
 
 package org.ethereum.beacon.discovery.pipeline.handler;
 
+import java.util.Set;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.apache.tuweni.bytes.Bytes;
 import org.ethereum.beacon.discovery.packet.UnknownPacket;
+import org.ethereum.beacon.discovery.packet.WhoAreYouPacket;
 import org.ethereum.beacon.discovery.pipeline.Envelope;
 import org.ethereum.beacon.discovery.pipeline.EnvelopeHandler;
 import org.ethereum.beacon.discovery.pipeline.Field;
@@ -19,10 +21,16 @@ import org.ethereum.beacon.discovery.pipeline.HandlerUtil;
  */
 public class WhoAreYouAttempt implements EnvelopeHandler {
   private static final Logger logger = LogManager.getLogger(WhoAreYouAttempt.class);
-  private final Bytes homeNodeId;
+  private static final Set<Field> REQUIRED_FIELDS = Set.of(Field.PACKET_UNKNOWN);
+  private final Bytes homeNodeMagic;
 
   public WhoAreYouAttempt(Bytes homeNodeId) {
-    this.homeNodeId = homeNodeId;
+    this.homeNodeMagic = WhoAreYouPacket.getStartMagic(homeNodeId);
+  }
+
+  @Override
+  public Set<Field> getRequiredFields() {
+    return REQUIRED_FIELDS;
   }
 
   @Override
@@ -37,7 +45,7 @@ public class WhoAreYouAttempt implements EnvelopeHandler {
     }
     if (!HandlerUtil.requireCondition(
         envelope1 ->
-            ((UnknownPacket) envelope1.get(Field.PACKET_UNKNOWN)).isWhoAreYouPacket(homeNodeId),
+            ((UnknownPacket) envelope1.get(Field.PACKET_UNKNOWN)).hasStartMagic(homeNodeMagic),
         envelope)) {
       return;
     }
@@ -7,8 +7,9 @@ package org.ethereum.beacon.discovery.pipeline.handler;
 import static org.ethereum.beacon.discovery.util.Functions.PUBKEY_SIZE;
 
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Callable;
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.function.Supplier;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.apache.tuweni.bytes.Bytes;
@@ -32,18 +33,32 @@ import org.ethereum.beacon.discovery.task.TaskOptions;
 import org.ethereum.beacon.discovery.task.TaskStatus;
 import org.ethereum.beacon.discovery.task.TaskType;
 import org.ethereum.beacon.discovery.util.Functions;
+import org.ethereum.beacon.discovery.util.RandomSource;
 import org.ethereum.beacon.discovery.util.Utils;
 import org.web3j.crypto.ECKeyPair;
 
 /** Handles {@link WhoAreYouPacket} in {@link Field#PACKET_WHOAREYOU} field */
 public class WhoAreYouPacketHandler implements EnvelopeHandler {
   private static final Logger logger = LogManager.getLogger(WhoAreYouPacketHandler.class);
+  private static final Set<Field> REQUIRED_FIELDS = Set.of(Field.SESSION, Field.PACKET_WHOAREYOU);
   private final Pipeline outgoingPipeline;
   private final Scheduler scheduler;
+  private final HandshakeCrypto handshakeCrypto;
 
   public WhoAreYouPacketHandler(Pipeline outgoingPipeline, Scheduler scheduler) {
+    this(outgoingPipeline, scheduler, HandshakeCrypto.INLINE);
+  }
+
+  public WhoAreYouPacketHandler(
+      Pipeline outgoingPipeline, Scheduler scheduler, HandshakeCrypto handshakeCrypto) {
     this.outgoingPipeline = outgoingPipeline;
     this.scheduler = scheduler;
+    this.handshakeCrypto = handshakeCrypto;
+  }
+
+  @Override
+  public Set<Field> getRequiredFields() {
+    return REQUIRED_FIELDS;
   }
 
   @Override
@@ -69,62 +84,51 @@ public class WhoAreYouPacketHandler implements EnvelopeHandler {
     NodeSession session = (NodeSession) envelope.get(Field.SESSION);
     final NodeRecord nodeRecord = session.getNodeRecord().orElseThrow();
     try {
-      if (!packet.isValid(session.getHomeNodeId(), session.getAuthTag().orElseThrow())) {
-        logger.error(
-                "Verification not passed for message [{}] from node {} in status {}",
-                packet,
-                nodeRecord,
-                session.getStatus());
-        envelope.remove(Field.PACKET_WHOAREYOU);
-        session.cancelAllRequests("Bad WHOAREYOU received from node");
-        return;
+      final Callable<Handshake> crypto;
+      if (envelope.contains(Field.HANDSHAKE_RESULT)) {
+        // Envelope returning with crypto result has been checked already
+        crypto = null;
+      } else {
+        if (!packet.isValid(session.getHomeNodeId(), session.getAuthTag().orElseThrow())) {
+          logger.error(
+              "Verification not passed for message [{}] from node {} in status {}",
+              packet,
+              nodeRecord,
+              session.getStatus());
+          envelope.remove(Field.PACKET_WHOAREYOU);
+          session.cancelAllRequests("Bad WHOAREYOU received from node");
+          return;
+        }
+        final NodeRecord respRecord =
+            packet.getEnrSeq().compareTo(session.getHomeNodeRecord().getSeq()) < 0
+                ? session.getHomeNodeRecord()
+                : null;
+        final Bytes remotePubKey = (Bytes) nodeRecord.get(EnrField.PKEY_SECP256K1);
+        final V5Message message =
+            session
+                .getFirstAwaitRequestInfo()
+                .map(
+                    requestInfo ->
+                        TaskMessageFactory.createMessageFromRequest(requestInfo, session))
+                .orElseThrow(
+                    () ->
+                        new RuntimeException(
+                            String.format(
+                                "Received WHOAREYOU in envelope #%s but no requests await in %s"
+                                    + " session",
+                                envelope.getId(), session)));
+        crypto =
+            () -> createHandshake(session, nodeRecord, remotePubKey, packet, respRecord, message);
       }
-      NodeRecord respRecord = null;
-      if (packet.getEnrSeq().compareTo(session.getHomeNodeRecord().getSeq()) < 0) {
-        respRecord = session.getHomeNodeRecord();
+      Optional<Handshake> handshakeOpt = handshakeCrypto.run(envelope, session, crypto);
+      if (handshakeOpt.isEmpty()) {
+        // Handshake is being created, envelope comes back when it's done
+        return;
       }
-      Bytes remotePubKey = (Bytes) nodeRecord.get(EnrField.PKEY_SECP256K1);
-      byte[] ephemeralKeyBytes = new byte[32];
-      Functions.getRandom().nextBytes(ephemeralKeyBytes);
-      ECKeyPair ephemeralKey = ECKeyPair.create(ephemeralKeyBytes);
-
-      Functions.HKDFKeys hkdfKeys =
-              Functions.hkdf_expand(
-                      session.getHomeNodeId(),
-                      nodeRecord.getNodeId(),
-                      Bytes.wrap(ephemeralKeyBytes),
-                      remotePubKey,
-                      packet.getIdNonce());
+      Functions.HKDFKeys hkdfKeys = handshakeOpt.get().keys;
+      AuthHeaderMessagePacket response = handshakeOpt.get().response;
       session.setInitiatorKey(hkdfKeys.getInitiatorKey());
       session.setRecipientKey(hkdfKeys.getRecipientKey());
-      Bytes authResponseKey = hkdfKeys.getAuthResponseKey();
-      Optional<RequestInfo> requestInfoOpt = session.getFirstAwaitRequestInfo();
-      final V5Message message =
-              requestInfoOpt
-                      .map(requestInfo -> TaskMessageFactory.createMessageFromRequest(requestInfo, session))
-                      .orElseThrow(
-                              (Supplier<Throwable>)
-                                      () ->
-                                              new RuntimeException(
-                                                      String.format(
-                                                              "Received WHOAREYOU in envelope #%s but no requests await in %s session",
-                                                              envelope.getId(), session)));
-
-      Bytes ephemeralPubKey =
-              Bytes.wrap(
-                      Utils.extractBytesFromUnsignedBigInt(ephemeralKey.getPublicKey(), PUBKEY_SIZE));
-      AuthHeaderMessagePacket response =
-              AuthHeaderMessagePacket.create(
-                      session.getHomeNodeId(),
-                      nodeRecord.getNodeId(),
-                      authResponseKey,
-                      packet.getIdNonce(),
-                      session.getStaticNodeKey(),
-                      respRecord,
-                      ephemeralPubKey,
-                      session.generateNonce(),
-                      hkdfKeys.getInitiatorKey(),
-                      DiscoveryV5Message.from(message));
 
       Optional<RequestInfo> sentRequestInfoOpt = session.getFirstAwaitRequestInfo();
       AtomicBoolean halfAuth = new AtomicBoolean(false);
@@ -164,4 +168,50 @@ public class WhoAreYouPacketHandler implements EnvelopeHandler {
     envelope.remove(Field.PACKET_WHOAREYOU);
     NextTaskHandler.tryToSendAwaitTaskIfAny(session, outgoingPipeline, scheduler);
   }
+
+  /** Generates ephemeral key, derives session keys and creates signed handshake response */
+  private static Handshake createHandshake(
+      NodeSession session,
+      NodeRecord nodeRecord,
+      Bytes remotePubKey,
+      WhoAreYouPacket packet,
+      NodeRecord respRecord,
+      V5Message message) {
+    byte[] ephemeralKeyBytes = new byte[32];
+    RandomSource.keys().nextBytes(ephemeralKeyBytes);
+    ECKeyPair ephemeralKey = ECKeyPair.create(ephemeralKeyBytes);
+
+    Functions.HKDFKeys hkdfKeys =
+        Functions.hkdf_expand(
+            session.getHomeNodeId(),
+            nodeRecord.getNodeId(),
+            Bytes.wrap(ephemeralKeyBytes),
+            remotePubKey,
+            packet.getIdNonce());
+    Bytes ephemeralPubKey =
+        Bytes.wrap(Utils.extractBytesFromUnsignedBigInt(ephemeralKey.getPublicKey(), PUBKEY_SIZE));
+    AuthHeaderMessagePacket response =
+        AuthHeaderMessagePacket.create(
+            session.getHomeNodeId(),
+            nodeRecord.getNodeId(),
+            hkdfKeys.getAuthResponseKey(),
+            packet.getIdNonce(),
+            session.getStaticNodeKey(),
+            respRecord,
+            ephemeralPubKey,
+            session.generateNonce(),
+            hkdfKeys.getInitiatorKey(),
+            DiscoveryV5Message.from(message));
+    return new Handshake(hkdfKeys, response);
+  }
+
+  private static class Handshake {
+    private final Functions.HKDFKeys keys;
+    private final AuthHeaderMessagePacket response;
+
+    private Handshake(Functions.HKDFKeys keys, AuthHeaderMessagePacket response) {
+      this.keys = keys;
+      this.response = response;
+    }
+  }
 }
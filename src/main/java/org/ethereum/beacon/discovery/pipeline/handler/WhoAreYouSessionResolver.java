@@ -5,6 +5,7 @@
 package org.ethereum.beacon.discovery.pipeline.handler;
 
 import java.util.Optional;
+import java.util.Set;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.ethereum.beacon.discovery.packet.WhoAreYouPacket;
@@ -21,12 +22,18 @@ import org.ethereum.beacon.discovery.storage.AuthTagRepository;
  */
 public class WhoAreYouSessionResolver implements EnvelopeHandler {
   private static final Logger logger = LogManager.getLogger(WhoAreYouSessionResolver.class);
+  private static final Set<Field> REQUIRED_FIELDS = Set.of(Field.PACKET_WHOAREYOU);
   private final AuthTagRepository authTagRepo;
 
   public WhoAreYouSessionResolver(AuthTagRepository authTagRepo) {
     this.authTagRepo = authTagRepo;
   }
 
+  @Override
+  public Set<Field> getRequiredFields() {
+    return REQUIRED_FIELDS;
+  }
+
   @Override
   public void handle(Envelope envelope) {
     logger.trace(
@@ -4,27 +4,55 @@
 
 package org.ethereum.beacon.discovery.scheduler;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 
 /**
  * Schedules `runnable` in delay which is set by constructor. When runnable is renewed by putting it
  * in map again, old task is cancelled and removed. Task are equalled by the <Key>
+ *
+ * <p>Tasks are kept in a timing wheel: a ring of slots one tick wide, spanning the delay. Put,
+ * renewal and cancel move a task between slots in constant time, and a single periodic job on the
+ * shared executor runs the tasks of elapsed slots. Tasks run up to one tick late.
  */
 public class ExpirationScheduler<Key> {
-  private final ScheduledExecutorService scheduler;
-  private final long delay;
-  private final TimeUnit timeUnit;
+  private static final Logger logger = LogManager.getLogger(ExpirationScheduler.class);
 
-  private final Map<Key, ScheduledFuture<?>> expirationTasks = new ConcurrentHashMap<>();
+  private final long tickNanos;
+  private final long delayTicks;
+  private final long startNanos;
+  private final LongSupplier nanoClock;
+  private final List<Map<Key, Task>> wheel;
+  private final Map<Key, Task> tasks = new HashMap<>();
+  private long expiredTick = 0;
 
-  ExpirationScheduler(long delay, TimeUnit timeUnit, final ScheduledExecutorService scheduler) {
-    this.delay = delay;
-    this.timeUnit = timeUnit;
-    this.scheduler = scheduler;
+  ExpirationScheduler(
+      long delay,
+      TimeUnit timeUnit,
+      final ScheduledExecutorService scheduler,
+      long tickMillis) {
+    this(delay, timeUnit, TimeUnit.MILLISECONDS.toNanos(tickMillis), System::nanoTime);
+    scheduler.scheduleAtFixedRate(this::expire, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+  }
+
+  ExpirationScheduler(long delay, TimeUnit timeUnit, long tickNanos, LongSupplier nanoClock) {
+    this.tickNanos = tickNanos;
+    this.delayTicks = Math.max(1, (timeUnit.toNanos(delay) + tickNanos - 1) / tickNanos);
+    this.nanoClock = nanoClock;
+    this.startNanos = nanoClock.getAsLong();
+    // One extra slot, so renewed task never lands in the slot being expired
+    int slots = (int) delayTicks + 1;
+    this.wheel = new ArrayList<>(slots);
+    for (int i = 0; i < slots; i++) {
+      wheel.add(new HashMap<>());
+    }
   }
 
   /**
@@ -33,24 +61,78 @@ public class ExpirationScheduler<Key> {
    * @param key Task key
    * @param runnable Task
    */
-  public void put(Key key, Runnable runnable) {
-    cancel(key);
-    ScheduledFuture<?> future =
-        scheduler.schedule(
-            () -> {
-              runnable.run();
-              expirationTasks.remove(key);
-            },
-            delay,
-            timeUnit);
-    expirationTasks.put(key, future);
+  public synchronized void put(Key key, Runnable runnable) {
+    final Task task = new Task(runnable, currentTick() + delayTicks);
+    final Task old = tasks.put(key, task);
+    if (old != null) {
+      slot(old.deadlineTick).remove(key);
+    }
+    slot(task.deadlineTick).put(key, task);
   }
 
   /** Cancels task for key and removes it from storage */
-  public void cancel(Key key) {
-    final ScheduledFuture<?> task = expirationTasks.remove(key);
+  public synchronized void cancel(Key key) {
+    final Task task = tasks.remove(key);
     if (task != null) {
-      task.cancel(true);
+      slot(task.deadlineTick).remove(key);
+    }
+  }
+
+  /** Number of scheduled tasks */
+  public synchronized int size() {
+    return tasks.size();
+  }
+
+  /** Runs tasks of all slots elapsed since previous call */
+  void expire() {
+    final List<Runnable> expired = new ArrayList<>();
+    synchronized (this) {
+      final long tick = currentTick();
+      // After a long pause every slot is visited once, tasks placed after it stay in their slot
+      final long firstTick = Math.max(expiredTick + 1, tick - wheel.size() + 1);
+      for (long t = firstTick; t <= tick; t++) {
+        final Map<Key, Task> slot = slot(t);
+        if (slot.isEmpty()) {
+          continue;
+        }
+        slot.entrySet()
+            .removeIf(
+                entry -> {
+                  if (entry.getValue().deadlineTick > tick) {
+                    return false;
+                  }
+                  tasks.remove(entry.getKey());
+                  expired.add(entry.getValue().runnable);
+                  return true;
+                });
+      }
+      expiredTick = Math.max(expiredTick, tick);
+    }
+    // Tasks run outside of the lock, they often renew or cancel other tasks
+    for (Runnable runnable : expired) {
+      try {
+        runnable.run();
+      } catch (RuntimeException ex) {
+        logger.error("Expiration task failed", ex);
+      }
+    }
+  }
+
+  private long currentTick() {
+    return (nanoClock.getAsLong() - startNanos) / tickNanos;
+  }
+
+  private Map<Key, Task> slot(long tick) {
+    return wheel.get((int) (tick % wheel.size()));
+  }
+
+  private static class Task {
+    private final Runnable runnable;
+    private final long deadlineTick;
+
+    private Task(Runnable runnable, long deadlineTick) {
+      this.runnable = runnable;
+      this.deadlineTick = deadlineTick;
     }
   }
 }
@@ -4,18 +4,30 @@
 
 package org.ethereum.beacon.discovery.scheduler;
 
+import static com.google.common.base.Preconditions.checkArgument;
+
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 
 public class ExpirationSchedulerFactory {
+  /** Expiration precision, all delays used are seconds or longer */
+  public static final long DEFAULT_TICK_MILLIS = 100;
+
   private final ScheduledExecutorService scheduler;
+  private final long tickMillis;
 
   public ExpirationSchedulerFactory(final ScheduledExecutorService scheduler) {
+    this(scheduler, DEFAULT_TICK_MILLIS);
+  }
+
+  public ExpirationSchedulerFactory(final ScheduledExecutorService scheduler, long tickMillis) {
+    checkArgument(tickMillis > 0, "Tick should be positive");
     this.scheduler = scheduler;
+    this.tickMillis = tickMillis;
   }
 
   public <Key> ExpirationScheduler<Key> create(long delay, TimeUnit timeUnit) {
-    return new ExpirationScheduler<>(delay, timeUnit, scheduler);
+    return new ExpirationScheduler<>(delay, timeUnit, scheduler, tickMillis);
   }
 
   public void stop() {
@@ -43,8 +43,18 @@ public class IdentitySchemaV4Interpreter implements IdentitySchemaInterpreter {
       return false;
     }
     Bytes pubKey = (Bytes) nodeRecord.get(EnrField.PKEY_SECP256K1); // compressed
-    return Functions.verifyECDSASignature(
-        nodeRecord.getSignature(), Functions.hashKeccak(nodeRecord.serializeNoSignature()), pubKey);
+    Bytes contentHash = Functions.hashKeccak(nodeRecord.serializeNoSignature());
+    Bytes cacheKey =
+        VerifiedNodeRecordCache.createKey(pubKey, nodeRecord.getSignature(), contentHash);
+    if (VerifiedNodeRecordCache.isVerified(cacheKey)) {
+      return true;
+    }
+    boolean verified =
+        Functions.verifyECDSASignature(nodeRecord.getSignature(), contentHash, pubKey);
+    if (verified) {
+      VerifiedNodeRecordCache.markVerified(cacheKey);
+    }
+    return verified;
   }
 
   @Override
@@ -42,8 +42,15 @@ public class NodeRecord {
   // Signature
   private Bytes signature;
   // optional fields
-  private Map<String, Object> fields = new HashMap<>();
-  private IdentitySchemaInterpreter identitySchemaInterpreter;
+  private final Map<String, Object> fields = new HashMap<>();
+  private final IdentitySchemaInterpreter identitySchemaInterpreter;
+
+  // Derived values, computed lazily on first access. Fields are only modified while the record is
+  // being built or signed, and every modification drops the values which depend on it.
+  private volatile Bytes nodeId;
+  private volatile Optional<InetSocketAddress> udpAddress;
+  private volatile Optional<InetSocketAddress> tcpAddress;
+  private volatile Bytes serialized;
 
   private NodeRecord(
       IdentitySchemaInterpreter identitySchemaInterpreter, UInt64 seq, Bytes signature) {
@@ -93,8 +100,12 @@ public class NodeRecord {
     return identitySchemaInterpreter.getScheme();
   }
 
-  public void set(String key, Object value) {
+  void set(String key, Object value) {
     fields.put(key, value);
+    nodeId = null;
+    udpAddress = null;
+    tcpAddress = null;
+    serialized = null;
   }
 
   public Object get(String key) {
@@ -119,6 +130,7 @@ public class NodeRecord {
 
   public void setSignature(Bytes signature) {
     this.signature = signature;
+    serialized = null;
   }
 
   @Override
@@ -179,7 +191,12 @@ public class NodeRecord {
   }
 
   public Bytes serialize() {
-    return serializeImpl(true);
+    Bytes result = serialized;
+    if (result == null) {
+      result = serializeImpl(true);
+      serialized = result;
+    }
+    return result;
   }
 
   public Bytes serializeNoSignature() {
@@ -195,15 +212,30 @@ public class NodeRecord {
   }
 
   public Bytes getNodeId() {
-    return identitySchemaInterpreter.getNodeId(this);
+    Bytes result = nodeId;
+    if (result == null) {
+      result = identitySchemaInterpreter.getNodeId(this);
+      nodeId = result;
+    }
+    return result;
   }
 
   public Optional<InetSocketAddress> getTcpAddress() {
-    return identitySchemaInterpreter.getTcpAddress(this);
+    Optional<InetSocketAddress> result = tcpAddress;
+    if (result == null) {
+      result = identitySchemaInterpreter.getTcpAddress(this);
+      tcpAddress = result;
+    }
+    return result;
   }
 
   public Optional<InetSocketAddress> getUdpAddress() {
-    return identitySchemaInterpreter.getUdpAddress(this);
+    Optional<InetSocketAddress> result = udpAddress;
+    if (result == null) {
+      result = identitySchemaInterpreter.getUdpAddress(this);
+      udpAddress = result;
+    }
+    return result;
   }
 
   public NodeRecord withNewAddress(final InetSocketAddress newAddress, final Bytes privateKey) {
@@ -10,7 +10,10 @@ import static org.ethereum.beacon.discovery.task.TaskStatus.AWAIT;
 import static org.ethereum.beacon.discovery.task.TaskStatus.SENT;
 
 import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Random;
@@ -18,12 +21,14 @@ import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Consumer;
+import javax.crypto.SecretKey;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.apache.tuweni.bytes.Bytes;
 import org.ethereum.beacon.discovery.network.NetworkParcel;
 import org.ethereum.beacon.discovery.network.NetworkParcelV5;
 import org.ethereum.beacon.discovery.packet.Packet;
+import org.ethereum.beacon.discovery.pipeline.Envelope;
 import org.ethereum.beacon.discovery.pipeline.info.RequestInfo;
 import org.ethereum.beacon.discovery.pipeline.info.RequestInfoFactory;
 import org.ethereum.beacon.discovery.scheduler.ExpirationScheduler;
@@ -43,6 +48,12 @@ import org.ethereum.beacon.discovery.util.Functions;
 public class NodeSession {
   public static final int NONCE_SIZE = 12;
   public static final int REQUEST_ID_SIZE = 8;
+  private static final int MAX_DEFERRED_ENVELOPES = 16;
+  // Rough heap estimates: session with its random, keys and record, one pending request, one
+  // deferred envelope holding a packet of up to 1280 bytes
+  private static final int BASE_SIZE_BYTES = 2048;
+  private static final int REQUEST_SIZE_BYTES = 256;
+  private static final int DEFERRED_ENVELOPE_SIZE_BYTES = 1536;
   private static final Logger logger = LogManager.getLogger(NodeSession.class);
   private final Bytes homeNodeId;
   private final LocalNodeRecordStore localNodeRecordStore;
@@ -56,8 +67,13 @@ public class NodeSession {
   private Optional<NodeRecord> nodeRecord;
   private SessionStatus status = SessionStatus.INITIAL;
   private Bytes idNonce;
+  private int handshakeAttempts = 0;
   private Bytes initiatorKey;
   private Bytes recipientKey;
+  private SecretKey initiatorCipherKey;
+  private SecretKey recipientCipherKey;
+  private boolean handshakeInProgress = false;
+  private final List<Envelope> deferredEnvelopes = new ArrayList<>();
   private final Map<Bytes, RequestInfo> requestIdStatuses = new ConcurrentHashMap<>();
   private final ExpirationScheduler<Bytes> requestExpirationScheduler;
   private final Bytes staticNodeKey;
@@ -240,6 +256,12 @@ public class NodeSession {
 
   public void setInitiatorKey(Bytes initiatorKey) {
     this.initiatorKey = initiatorKey;
+    this.initiatorCipherKey = initiatorKey == null ? null : Functions.aesgcm_key(initiatorKey);
+  }
+
+  /** @return initiator key prepared for AES-GCM, reused for every outgoing message */
+  public SecretKey getInitiatorCipherKey() {
+    return initiatorCipherKey;
   }
 
   /** @return recipient key, also known as read key */
@@ -249,6 +271,12 @@ public class NodeSession {
 
   public void setRecipientKey(Bytes recipientKey) {
     this.recipientKey = recipientKey;
+    this.recipientCipherKey = recipientKey == null ? null : Functions.aesgcm_key(recipientKey);
+  }
+
+  /** @return recipient key prepared for AES-GCM, reused for every incoming message */
+  public SecretKey getRecipientCipherKey() {
+    return recipientCipherKey;
   }
 
   public Optional<InetSocketAddress> getReportedExternalAddress() {
@@ -323,6 +351,12 @@ public class NodeSession {
 
   public synchronized void setIdNonce(Bytes idNonce) {
     this.idNonce = idNonce;
+    this.handshakeAttempts = 0;
+  }
+
+  /** Counts handshake attempt answering current id nonce, returns attempts made so far */
+  public synchronized int incrementHandshakeAttempts() {
+    return ++handshakeAttempts;
   }
 
   public NodeRecord getHomeNodeRecord() {
@@ -349,6 +383,46 @@ public class NodeSession {
     return staticNodeKey;
   }
 
+  /** Marks that handshake cryptography of this session is running outside of the pipeline */
+  public synchronized void startHandshake() {
+    handshakeInProgress = true;
+  }
+
+  public synchronized boolean isHandshakeInProgress() {
+    return handshakeInProgress;
+  }
+
+  /**
+   * Holds incoming envelope of this session until handshake is completed
+   *
+   * @return false if too many envelopes are already waiting and this one was not accepted
+   */
+  public synchronized boolean deferUntilHandshake(Envelope envelope) {
+    if (deferredEnvelopes.size() >= MAX_DEFERRED_ENVELOPES) {
+      return false;
+    }
+    deferredEnvelopes.add(envelope);
+    return true;
+  }
+
+  /** Marks handshake as completed, returning envelopes deferred meanwhile in arrival order */
+  public synchronized List<Envelope> completeHandshake() {
+    handshakeInProgress = false;
+    if (deferredEnvelopes.isEmpty()) {
+      return Collections.emptyList();
+    }
+    List<Envelope> deferred = new ArrayList<>(deferredEnvelopes);
+    deferredEnvelopes.clear();
+    return deferred;
+  }
+
+  /** Approximate heap size retained by this session, for memory accounting only */
+  public synchronized int getApproximateSize() {
+    return BASE_SIZE_BYTES
+        + requestIdStatuses.size() * REQUEST_SIZE_BYTES
+        + deferredEnvelopes.size() * DEFERRED_ENVELOPE_SIZE_BYTES;
+  }
+
   public enum SessionStatus {
     INITIAL, // other side is trying to connect, or we are initiating (before random packet is sent
     WHOAREYOU_SENT, // other side is initiator, we've sent whoareyou in response
@@ -0,0 +1,63 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.ethereum.beacon.discovery.schema;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import java.util.concurrent.TimeUnit;
+import org.apache.tuweni.bytes.Bytes;
+
+/**
+ * Bounded cache of node records with already verified signatures. Popular nodes are returned in
+ * NODES responses of many peers with the same sequence number and signature, so every copy after
+ * the first one is accepted without signature verification.
+ *
+ * <p>Entry key binds public key (and so node id), signature and hash of the signed content (and so
+ * sequence number and every field), thus a record which differs in any of these is verified again.
+ * Only successful verifications are stored.
+ */
+public class VerifiedNodeRecordCache {
+  private static final int MAX_ENTRIES = 16384;
+  private static final int EXPIRATION_MINUTES = 30;
+
+  private static final Cache<Bytes, Boolean> VERIFIED =
+      CacheBuilder.newBuilder()
+          .maximumSize(MAX_ENTRIES)
+          .expireAfterAccess(EXPIRATION_MINUTES, TimeUnit.MINUTES)
+          .recordStats()
+          .build();
+
+  private VerifiedNodeRecordCache() {}
+
+  static Bytes createKey(Bytes publicKey, Bytes signature, Bytes contentHash) {
+    return Bytes.concatenate(publicKey, signature, contentHash);
+  }
+
+  static boolean isVerified(Bytes key) {
+    return VERIFIED.getIfPresent(key) != null;
+  }
+
+  static void markVerified(Bytes key) {
+    // key parts could be views over mutable data, so it's copied before being stored
+    VERIFIED.put(key.copy(), Boolean.TRUE);
+  }
+
+  public static long getHitCount() {
+    return VERIFIED.stats().hitCount();
+  }
+
+  public static long getMissCount() {
+    return VERIFIED.stats().missCount();
+  }
+
+  /** Share of {@link NodeRecord#isValid()} checks served from cache, 1.0 when none were made */
+  public static double getHitRate() {
+    return VERIFIED.stats().hitRate();
+  }
+
+  public static long getSize() {
+    return VERIFIED.size();
+  }
+}
@@ -6,13 +6,16 @@ package org.ethereum.beacon.discovery.storage;
 
 import java.util.Optional;
 import org.apache.tuweni.bytes.Bytes;
+import org.ethereum.beacon.discovery.database.CodecSource;
 import org.ethereum.beacon.discovery.database.DataSource;
 import org.ethereum.beacon.discovery.database.DataSourceList;
 import org.ethereum.beacon.discovery.database.Database;
 import org.ethereum.beacon.discovery.database.HoleyList;
+import org.ethereum.beacon.discovery.database.WriteBehindFlusher;
 import org.ethereum.beacon.discovery.format.SerializerFactory;
 import org.ethereum.beacon.discovery.schema.NodeRecord;
 import org.ethereum.beacon.discovery.schema.NodeRecordInfo;
+import org.ethereum.beacon.discovery.type.NodeId;
 import org.ethereum.beacon.discovery.util.Functions;
 
 /**
@@ -23,18 +26,34 @@ import org.ethereum.beacon.discovery.util.Functions;
 public class NodeBucketStorageImpl implements NodeBucketStorage {
   public static final String NODE_BUCKET_STORAGE_NAME = "node-bucket-table";
   public static final int MAXIMUM_BUCKET = 256;
+  private final DataSource<Bytes, NodeBucket> nodeBucketsSource;
   private final HoleyList<NodeBucket> nodeBucketsTable;
-  private final Bytes homeNodeId;
+  private final NodeId homeNodeId;
 
   public NodeBucketStorageImpl(
       Database database, SerializerFactory serializerFactory, NodeRecord homeNode) {
-    DataSource<Bytes, Bytes> nodeBucketsSource = database.createStorage(NODE_BUCKET_STORAGE_NAME);
-    this.nodeBucketsTable =
-        new DataSourceList<>(
-            nodeBucketsSource,
+    this(database, serializerFactory, homeNode, Optional.empty());
+  }
+
+  /** @param writeBehind if present, buckets are kept in memory and written by the flusher */
+  public NodeBucketStorageImpl(
+      Database database,
+      SerializerFactory serializerFactory,
+      NodeRecord homeNode,
+      Optional<WriteBehindFlusher> writeBehind) {
+    DataSource<Bytes, Bytes> rawNodeBucketsSource =
+        database.createStorage(NODE_BUCKET_STORAGE_NAME);
+    DataSource<Bytes, NodeBucket> nodeBucketsSource =
+        new CodecSource.ValueOnly<>(
+            rawNodeBucketsSource,
             serializerFactory.getSerializer(NodeBucket.class),
             serializerFactory.getDeserializer(NodeBucket.class));
-    this.homeNodeId = homeNode.getNodeId();
+    if (writeBehind.isPresent()) {
+      nodeBucketsSource = writeBehind.get().writeBehind(nodeBucketsSource);
+    }
+    this.nodeBucketsSource = nodeBucketsSource;
+    this.nodeBucketsTable = new DataSourceList<>(rawNodeBucketsSource, nodeBucketsSource);
+    this.homeNodeId = NodeId.fromBytes(homeNode.getNodeId());
     // Empty storage, saving home node
     if (!nodeBucketsTable.get(0).isPresent()) {
       NodeBucket zero = new NodeBucket();
@@ -50,7 +69,7 @@ public class NodeBucketStorageImpl implements NodeBucketStorage {
 
   @Override
   public void put(NodeRecordInfo nodeRecordInfo) {
-    int logDistance = Functions.logDistance(homeNodeId, nodeRecordInfo.getNode().getNodeId());
+    int logDistance = homeNodeId.logDistance(nodeRecordInfo.getNode().getNodeId());
     if (logDistance <= MAXIMUM_BUCKET) {
       Optional<NodeBucket> nodeBucketOpt = nodeBucketsTable.get(logDistance);
       if (nodeBucketOpt.isPresent()) {
@@ -68,5 +87,7 @@ public class NodeBucketStorageImpl implements NodeBucketStorage {
   }
 
   @Override
-  public void commit() {}
+  public void commit() {
+    nodeBucketsSource.flush();
+  }
 }
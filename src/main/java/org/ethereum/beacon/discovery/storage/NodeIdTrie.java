@@ -0,0 +1,207 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.ethereum.beacon.discovery.storage;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import org.ethereum.beacon.discovery.type.NodeId;
+
+/**
+ * Binary trie of node ids, used as XOR metric routing table.
+ *
+ * <p>Branch at depth `d` splits ids by their bit `d`, leaves keep up to {@link #LEAF_CAPACITY} ids.
+ * For random ids the depth is about log2(n / {@link #LEAF_CAPACITY}), which bounds add, remove and
+ * contains. All ids in the subtree matching a bit of the target are closer to it than any id in the
+ * other subtree, so depth first walk taking the matching child first lists ids exactly by XOR
+ * distance, sorting only one leaf at a time.
+ */
+class NodeIdTrie {
+  static final int LEAF_CAPACITY = 16;
+  private static final int MAX_DEPTH = NodeId.SIZE * Byte.SIZE;
+
+  private Node root = new Leaf(0, new ArrayList<>());
+  private int size = 0;
+
+  /** @return false if id was already present */
+  public synchronized boolean add(NodeId id) {
+    final int sizeBefore = size;
+    root = add(root, id);
+    return size > sizeBefore;
+  }
+
+  /** @return false if id was not present */
+  public synchronized boolean remove(NodeId id) {
+    final int sizeBefore = size;
+    root = remove(root, id);
+    return size < sizeBefore;
+  }
+
+  public synchronized boolean contains(NodeId id) {
+    Node node = root;
+    while (node instanceof Branch) {
+      node = ((Branch) node).child(id);
+    }
+    return ((Leaf) node).ids.contains(id);
+  }
+
+  public synchronized int size() {
+    return size;
+  }
+
+  /**
+   * Iterates over all ids, closest to `target` first. Iteration is lazy and weakly consistent: ids
+   * added or removed meanwhile may or may not be seen.
+   */
+  public Iterator<NodeId> closest(NodeId target) {
+    return new ClosestIterator(target);
+  }
+
+  private Node add(Node node, NodeId id) {
+    if (node instanceof Branch) {
+      final Branch branch = (Branch) node;
+      if (id.bit(branch.depth) == 0) {
+        branch.zero = add(branch.zero, id);
+      } else {
+        branch.one = add(branch.one, id);
+      }
+      return branch;
+    }
+    final Leaf leaf = (Leaf) node;
+    if (leaf.ids.contains(id)) {
+      return leaf;
+    }
+    size++;
+    // Leaves are copied on change, so iterators keep reading consistent snapshots
+    final List<NodeId> ids = new ArrayList<>(leaf.ids.size() + 1);
+    ids.addAll(leaf.ids);
+    ids.add(id);
+    return split(new Leaf(leaf.depth, ids));
+  }
+
+  private Node split(Leaf leaf) {
+    if (leaf.ids.size() <= LEAF_CAPACITY || leaf.depth == MAX_DEPTH) {
+      return leaf;
+    }
+    final List<NodeId> zero = new ArrayList<>();
+    final List<NodeId> one = new ArrayList<>();
+    for (NodeId id : leaf.ids) {
+      (id.bit(leaf.depth) == 0 ? zero : one).add(id);
+    }
+    final int depth = leaf.depth + 1;
+    return new Branch(leaf.depth, split(new Leaf(depth, zero)), split(new Leaf(depth, one)));
+  }
+
+  private Node remove(Node node, NodeId id) {
+    if (node instanceof Leaf) {
+      final Leaf leaf = (Leaf) node;
+      if (!leaf.ids.contains(id)) {
+        return leaf;
+      }
+      size--;
+      final List<NodeId> ids = new ArrayList<>(leaf.ids);
+      ids.remove(id);
+      return new Leaf(leaf.depth, ids);
+    }
+    final Branch branch = (Branch) node;
+    if (id.bit(branch.depth) == 0) {
+      branch.zero = remove(branch.zero, id);
+    } else {
+      branch.one = remove(branch.one, id);
+    }
+    if (branch.zero instanceof Leaf && branch.one instanceof Leaf) {
+      final List<NodeId> zero = ((Leaf) branch.zero).ids;
+      final List<NodeId> one = ((Leaf) branch.one).ids;
+      // Merge at half capacity, so add and remove around the limit don't split and merge each time
+      if (zero.size() + one.size() <= LEAF_CAPACITY / 2) {
+        final List<NodeId> ids = new ArrayList<>(zero);
+        ids.addAll(one);
+        return new Leaf(branch.depth, ids);
+      }
+    }
+    return branch;
+  }
+
+  private abstract static class Node {
+    final int depth;
+
+    private Node(int depth) {
+      this.depth = depth;
+    }
+  }
+
+  private static class Branch extends Node {
+    private Node zero;
+    private Node one;
+
+    private Branch(int depth, Node zero, Node one) {
+      super(depth);
+      this.zero = zero;
+      this.one = one;
+    }
+
+    private Node child(NodeId id) {
+      return id.bit(depth) == 0 ? zero : one;
+    }
+  }
+
+  /** Never modified after creation */
+  private static class Leaf extends Node {
+    private final List<NodeId> ids;
+
+    private Leaf(int depth, List<NodeId> ids) {
+      super(depth);
+      this.ids = ids;
+    }
+  }
+
+  private class ClosestIterator implements Iterator<NodeId> {
+    private final NodeId target;
+    private final Deque<Node> pending = new ArrayDeque<>();
+    private Iterator<NodeId> batch = Collections.emptyIterator();
+
+    private ClosestIterator(NodeId target) {
+      this.target = target;
+      synchronized (NodeIdTrie.this) {
+        pending.push(root);
+      }
+    }
+
+    @Override
+    public boolean hasNext() {
+      while (!batch.hasNext() && !pending.isEmpty()) {
+        batch = nextLeaf().iterator();
+      }
+      return batch.hasNext();
+    }
+
+    @Override
+    public NodeId next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      return batch.next();
+    }
+
+    private List<NodeId> nextLeaf() {
+      synchronized (NodeIdTrie.this) {
+        Node node = pending.pop();
+        while (node instanceof Branch) {
+          final Branch branch = (Branch) node;
+          final boolean zeroFirst = target.bit(branch.depth) == 0;
+          pending.push(zeroFirst ? branch.one : branch.zero);
+          node = zeroFirst ? branch.zero : branch.one;
+        }
+        final List<NodeId> ids = new ArrayList<>(((Leaf) node).ids);
+        ids.sort(target.distanceComparator());
+        return ids;
+      }
+    }
+  }
+}
@@ -5,15 +5,12 @@
 package org.ethereum.beacon.discovery.storage;
 
 import com.google.common.annotations.VisibleForTesting;
-import java.math.BigInteger;
-import java.util.Collections;
-import java.util.HashSet;
-import java.util.Iterator;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
-import java.util.Set;
 import java.util.Spliterator;
 import java.util.Spliterators;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
@@ -23,19 +20,24 @@ import org.ethereum.beacon.discovery.database.HoleyList;
 import org.ethereum.beacon.discovery.database.SingleValueSource;
 import org.ethereum.beacon.discovery.schema.NodeRecord;
 import org.ethereum.beacon.discovery.schema.NodeRecordInfo;
+import org.ethereum.beacon.discovery.type.NodeId;
 import org.ethereum.beacon.discovery.util.Functions;
 
 /**
  * Stores Ethereum Node Records in {@link NodeRecordInfo} containers. Also stores home node as node
- * record. Uses indexes, {@link NodeIndex} for quick access to nodes that are close to others.
+ * record.
+ *
+ * <p>Known node ids are kept in memory in {@link NodeIdTrie}, which answers closest nodes queries
+ * by XOR distance. Ids are also persisted in {@link NodeIndex} lists keyed by the first byte of
+ * id, only to restore the trie on start, so a list is rewritten only when a node is added or
+ * removed.
  */
 public class NodeTableImpl implements NodeTable {
   static final long NUMBER_OF_INDEXES = 256;
-  private static final int MAXIMUM_INFO_IN_ONE_BYTE = 256;
-  private static final boolean START_FROM_BEGINNING = true;
   private final DataSource<Bytes, NodeRecordInfo> nodeTable;
   private final HoleyList<NodeIndex> indexTable;
   private final SingleValueSource<NodeRecordInfo> homeNodeSource;
+  private final NodeIdTrie routingTable = new NodeIdTrie();
 
   public NodeTableImpl(
       DataSource<Bytes, NodeRecordInfo> nodeTable,
@@ -44,42 +46,26 @@ public class NodeTableImpl implements NodeTable {
     this.nodeTable = nodeTable;
     this.indexTable = indexTable;
     this.homeNodeSource = homeNodeSource;
+    for (long i = 0; i < NUMBER_OF_INDEXES; i++) {
+      indexTable
+          .get(i)
+          .ifPresent(
+              index -> index.getEntries().forEach(id -> routingTable.add(NodeId.fromBytes(id))));
+    }
   }
 
   @VisibleForTesting
   static long getNodeIndex(Bytes nodeKey) {
-    int activeBytes = 1;
-    long required = NUMBER_OF_INDEXES;
-    while (required > 0) {
-      if (required == MAXIMUM_INFO_IN_ONE_BYTE) {
-        required = 0;
-      } else {
-        required = required / MAXIMUM_INFO_IN_ONE_BYTE;
-      }
-
-      if (required > 0) {
-        activeBytes++;
-      }
-    }
-
-    int start = START_FROM_BEGINNING ? 0 : nodeKey.size() - activeBytes;
-    Bytes active = nodeKey.slice(start, activeBytes);
-    BigInteger activeNumber = new BigInteger(1, active.toArray());
-    // XXX: could be optimized for small NUMBER_OF_INDEXES
-    BigInteger index = activeNumber.mod(BigInteger.valueOf(NUMBER_OF_INDEXES));
-
-    return index.longValue();
+    // NUMBER_OF_INDEXES fits into the leading byte of the key
+    return (nodeKey.get(0) & 0xFF) % NUMBER_OF_INDEXES;
   }
 
   @Override
   public void save(NodeRecordInfo node) {
     Bytes nodeKey = node.getNode().getNodeId();
     nodeTable.put(nodeKey, node);
-    NodeIndex activeIndex = indexTable.get(getNodeIndex(nodeKey)).orElseGet(NodeIndex::new);
-    List<Bytes> nodes = activeIndex.getEntries();
-    if (!nodes.contains(nodeKey)) {
-      nodes.add(nodeKey);
-      indexTable.put(getNodeIndex(nodeKey), activeIndex);
+    if (routingTable.add(NodeId.fromBytes(nodeKey))) {
+      updateIndex(nodeKey, nodes -> nodes.add(nodeKey));
     }
   }
 
@@ -87,25 +73,43 @@ public class NodeTableImpl implements NodeTable {
   public void remove(NodeRecordInfo node) {
     Bytes nodeKey = node.getNode().getNodeId();
     nodeTable.remove(nodeKey);
-    NodeIndex activeIndex = indexTable.get(getNodeIndex(nodeKey)).orElseGet(NodeIndex::new);
-    List<Bytes> nodes = activeIndex.getEntries();
-    if (nodes.contains(nodeKey)) {
-      nodes.remove(nodeKey);
-      indexTable.put(getNodeIndex(nodeKey), activeIndex);
+    if (routingTable.remove(NodeId.fromBytes(nodeKey))) {
+      updateIndex(nodeKey, nodes -> nodes.remove(nodeKey));
     }
   }
 
+  private synchronized void updateIndex(Bytes nodeKey, Consumer<List<Bytes>> update) {
+    NodeIndex activeIndex = indexTable.get(getNodeIndex(nodeKey)).orElseGet(NodeIndex::new);
+    // Stored index may be serialized by the storage thread meanwhile, so it's replaced, not changed
+    List<Bytes> entries = new ArrayList<>(activeIndex.getEntries());
+    update.accept(entries);
+    NodeIndex updatedIndex = new NodeIndex();
+    updatedIndex.setEntries(entries);
+    indexTable.put(getNodeIndex(nodeKey), updatedIndex);
+  }
+
   @Override
   public Optional<NodeRecordInfo> getNode(Bytes nodeId) {
     return nodeTable.get(nodeId);
   }
 
+  /**
+   * Returns nodes ordered by XOR distance from `nodeId`, closest first, including `nodeId` (if
+   * it's found), in logLimit distance from it. A logLimit of zero implies all nodes. Nodes are
+   * looked up lazily, as the stream is consumed.
+   */
   @Override
   public Stream<NodeRecordInfo> streamClosestNodes(Bytes nodeId, int logLimit) {
-    return StreamSupport.stream(
-        Spliterators.spliteratorUnknownSize(
-            new ClosestNodeIterator(nodeId, logLimit), Spliterator.ORDERED),
-        false);
+    final NodeId target = NodeId.fromBytes(nodeId);
+    Stream<NodeId> ids =
+        StreamSupport.stream(
+            Spliterators.spliteratorUnknownSize(
+                routingTable.closest(target), Spliterator.ORDERED | Spliterator.DISTINCT),
+            false);
+    if (logLimit != 0) {
+      ids = ids.takeWhile(id -> target.logDistance(id) < logLimit);
+    }
+    return ids.map(id -> getNode(id.toBytes())).flatMap(Optional::stream);
   }
 
   /**
@@ -122,76 +126,4 @@ public class NodeTableImpl implements NodeTable {
   public NodeRecord getHomeNode() {
     return homeNodeSource.get().map(NodeRecordInfo::getNode).orElse(null);
   }
-
-  private class ClosestNodeIterator implements Iterator<NodeRecordInfo> {
-    private final Bytes nodeId;
-    private final int logLimit;
-    private boolean limitReached = false;
-    private long currentIndexUp;
-    private long currentIndexDown;
-    private Iterator<NodeRecordInfo> currentBatch = Collections.emptyIterator();
-
-    public ClosestNodeIterator(final Bytes nodeId, final int logLimit) {
-      this.nodeId = nodeId;
-      this.logLimit = logLimit;
-      final long start = getNodeIndex(nodeId);
-      this.currentIndexUp = start;
-      this.currentIndexDown = start;
-    }
-
-    @Override
-    public boolean hasNext() {
-      if (!currentBatch.hasNext()) {
-        loadNextBatch();
-      }
-      return currentBatch.hasNext();
-    }
-
-    @Override
-    public NodeRecordInfo next() {
-      return currentBatch.next();
-    }
-
-    private void loadNextBatch() {
-      Set<NodeRecordInfo> res = new HashSet<>();
-      while (!limitReached && res.isEmpty()) {
-        Optional<NodeIndex> upNodesOptional =
-            currentIndexUp >= NUMBER_OF_INDEXES ? Optional.empty() : indexTable.get(currentIndexUp);
-        Optional<NodeIndex> downNodesOptional =
-            currentIndexDown < 0 ? Optional.empty() : indexTable.get(currentIndexDown);
-        if (currentIndexUp >= NUMBER_OF_INDEXES && currentIndexDown < 0) {
-          // Bounds are reached from both top and bottom
-          break;
-        }
-        upNodesOptional.ifPresent(
-            upNodes -> {
-              for (Bytes currentNodeId : upNodes.getEntries()) {
-                if (logLimit != 0 && Functions.logDistance(currentNodeId, nodeId) >= logLimit) {
-                  limitReached = true;
-                  break;
-                } else {
-                  getNode(currentNodeId).ifPresent(res::add);
-                }
-              }
-            });
-        downNodesOptional.ifPresent(
-            downNodes -> {
-              List<Bytes> entries = downNodes.getEntries();
-              // XXX: iterate in reverse order to reach logDistance limit from the right side
-              for (int i = entries.size() - 1; i >= 0; i--) {
-                Bytes currentNodeId = entries.get(i);
-                if (logLimit != 0 && Functions.logDistance(currentNodeId, nodeId) >= logLimit) {
-                  limitReached = true;
-                  break;
-                } else {
-                  getNode(currentNodeId).ifPresent(res::add);
-                }
-              }
-            });
-        currentIndexUp++;
-        currentIndexDown--;
-      }
-      this.currentBatch = res.iterator();
-    }
-  }
 }
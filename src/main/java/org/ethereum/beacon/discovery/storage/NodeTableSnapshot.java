@@ -0,0 +1,241 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.ethereum.beacon.discovery.storage;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.tuweni.bytes.Bytes;
+import org.apache.tuweni.bytes.Bytes32;
+import org.ethereum.beacon.discovery.scheduler.Scheduler;
+import org.ethereum.beacon.discovery.schema.NodeRecord;
+import org.ethereum.beacon.discovery.schema.NodeRecordFactory;
+import org.ethereum.beacon.discovery.schema.NodeRecordInfo;
+import org.ethereum.beacon.discovery.schema.NodeStatus;
+import org.ethereum.beacon.discovery.util.Functions;
+
+/**
+ * Snapshot of {@link NodeTable} with liveness state of nodes and their membership in {@link
+ * NodeBucketStorage} in a single file, so a restarted node has its routing table back without
+ * waiting for lookups, even with in-memory database.
+ *
+ * <p>File is header (magic, save time, nodes count), then for each node flags, status, last retry,
+ * retry count and node record, then CRC32 of all of it. It's saved every {@link #DEFAULT_INTERVAL}
+ * after {@link #start()} and on {@link #stop()}, replacing previous snapshot atomically, and loaded
+ * with one read. On load, ACTIVE nodes last checked more than {@link #STALE_AFTER_SECONDS} ago are
+ * demoted to SLEEP, so they are checked again before being used in lookups and answers. DEAD nodes
+ * are not saved.
+ */
+public class NodeTableSnapshot {
+  public static final Duration DEFAULT_INTERVAL = Duration.ofMinutes(5);
+  /** Same as expiration of ACTIVE status by live checks */
+  public static final long STALE_AFTER_SECONDS = 600;
+
+  private static final Logger logger = LogManager.getLogger(NodeTableSnapshot.class);
+  private static final int MAGIC = 0x6e747331;
+  private static final int HEADER_SIZE = Integer.BYTES + Long.BYTES + Integer.BYTES;
+  private static final byte IN_BUCKET = 0x01;
+
+  private final Path path;
+  private final NodeTable nodeTable;
+  private final NodeBucketStorage nodeBucketStorage;
+  private final NodeRecordFactory nodeRecordFactory;
+  private final Scheduler scheduler;
+  private final Duration interval;
+  private CompletableFuture<Void> saveSchedule;
+  private int lastSavedCount = 0;
+  private int loadedCount = 0;
+  private int demotedCount = 0;
+
+  public NodeTableSnapshot(
+      Path path,
+      NodeTable nodeTable,
+      NodeBucketStorage nodeBucketStorage,
+      NodeRecordFactory nodeRecordFactory,
+      Scheduler scheduler) {
+    this(path, nodeTable, nodeBucketStorage, nodeRecordFactory, scheduler, DEFAULT_INTERVAL);
+  }
+
+  public NodeTableSnapshot(
+      Path path,
+      NodeTable nodeTable,
+      NodeBucketStorage nodeBucketStorage,
+      NodeRecordFactory nodeRecordFactory,
+      Scheduler scheduler,
+      Duration interval) {
+    checkArgument(!interval.isNegative() && !interval.isZero(), "Interval should be positive");
+    this.path = path;
+    this.nodeTable = nodeTable;
+    this.nodeBucketStorage = nodeBucketStorage;
+    this.nodeRecordFactory = nodeRecordFactory;
+    this.scheduler = scheduler;
+    this.interval = interval;
+  }
+
+  public synchronized void start() {
+    saveSchedule = scheduler.executeAtFixedRate(interval, interval, this::save);
+  }
+
+  /** Stops periodic saving and saves the snapshot */
+  public synchronized void stop() {
+    if (saveSchedule != null) {
+      saveSchedule.cancel(true);
+      saveSchedule = null;
+    }
+    save();
+  }
+
+  /**
+   * Restores nodes from snapshot, if there is one. Nodes already in the table are left as they are,
+   * as the table has their latest state.
+   *
+   * @return number of nodes restored
+   */
+  public synchronized int load() {
+    if (!Files.exists(path)) {
+      return 0;
+    }
+    final ByteBuffer buffer;
+    try {
+      buffer = ByteBuffer.wrap(Files.readAllBytes(path));
+    } catch (IOException e) {
+      logger.warn("Failed to read node table snapshot " + path, e);
+      return 0;
+    }
+    final CRC32 crc = new CRC32();
+    if (buffer.remaining() < HEADER_SIZE + Long.BYTES) {
+      logger.warn("Node table snapshot {} is truncated", path);
+      return 0;
+    }
+    crc.update(buffer.array(), 0, buffer.remaining() - Long.BYTES);
+    if (buffer.getLong(buffer.remaining() - Long.BYTES) != crc.getValue()
+        || buffer.getInt() != MAGIC) {
+      logger.warn("Node table snapshot {} is corrupted", path);
+      return 0;
+    }
+    final long savedAt = buffer.getLong();
+    final int count = buffer.getInt();
+    final Bytes homeNodeId = nodeTable.getHomeNode().getNodeId();
+    final long staleBefore = Functions.getTime() - STALE_AFTER_SECONDS;
+    int loaded = 0;
+    int demoted = 0;
+    try {
+      for (int i = 0; i < count; i++) {
+        final byte flags = buffer.get();
+        NodeStatus status = NodeStatus.fromNumber(buffer.get());
+        final long lastRetry = buffer.getLong();
+        final int retry = buffer.getInt();
+        final byte[] record = new byte[buffer.getInt()];
+        buffer.get(record);
+        final NodeRecord node = nodeRecordFactory.fromBytes(record);
+        if (status == null
+            || node.getNodeId().equals(homeNodeId)
+            || nodeTable.getNode(node.getNodeId()).isPresent()) {
+          continue;
+        }
+        if (status == NodeStatus.ACTIVE && lastRetry < staleBefore) {
+          status = NodeStatus.SLEEP;
+          demoted++;
+        }
+        final NodeRecordInfo nodeRecordInfo = new NodeRecordInfo(node, lastRetry, status, retry);
+        nodeTable.save(nodeRecordInfo);
+        if ((flags & IN_BUCKET) != 0 && status == NodeStatus.ACTIVE) {
+          nodeBucketStorage.put(nodeRecordInfo);
+        }
+        loaded++;
+      }
+    } catch (RuntimeException e) {
+      logger.warn("Failed to decode node table snapshot " + path, e);
+    }
+    loadedCount = loaded;
+    demotedCount = demoted;
+    logger.info(
+        "Restored {} nodes, {} of them demoted as stale, from node table snapshot saved {} seconds"
+            + " ago",
+        loaded,
+        demoted,
+        Functions.getTime() - savedAt);
+    return loaded;
+  }
+
+  /** @return number of nodes saved, 0 if saving failed */
+  public synchronized int save() {
+    final Set<Bytes> bucketNodeIds = new HashSet<>();
+    for (int i = 0; i <= NodeBucketStorageImpl.MAXIMUM_BUCKET; i++) {
+      nodeBucketStorage
+          .get(i)
+          .ifPresent(
+              bucket ->
+                  bucket
+                      .getNodeRecords()
+                      .forEach(node -> bucketNodeIds.add(node.getNode().getNodeId())));
+    }
+    final List<NodeRecordInfo> nodes =
+        nodeTable
+            .streamClosestNodes(Bytes32.ZERO, 0)
+            .filter(node -> node.getStatus() != NodeStatus.DEAD)
+            .collect(Collectors.toList());
+    final Path tempPath = path.resolveSibling(path.getFileName() + ".tmp");
+    final CRC32 crc = new CRC32();
+    try {
+      try (DataOutputStream out =
+          new DataOutputStream(
+              new CheckedOutputStream(
+                  new BufferedOutputStream(Files.newOutputStream(tempPath)), crc))) {
+        out.writeInt(MAGIC);
+        out.writeLong(Functions.getTime());
+        out.writeInt(nodes.size());
+        for (NodeRecordInfo node : nodes) {
+          final Bytes record = node.getNode().serialize();
+          out.writeByte(bucketNodeIds.contains(node.getNode().getNodeId()) ? IN_BUCKET : 0);
+          out.writeByte(node.getStatus().byteCode());
+          out.writeLong(node.getLastRetry());
+          out.writeInt(node.getRetry());
+          out.writeInt(record.size());
+          out.write(record.toArrayUnsafe());
+        }
+        out.writeLong(crc.getValue());
+      }
+      Files.move(
+          tempPath, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    } catch (IOException e) {
+      logger.error("Failed to save node table snapshot " + path, e);
+      return 0;
+    }
+    lastSavedCount = nodes.size();
+    return nodes.size();
+  }
+
+  /** Number of nodes in the last saved snapshot */
+  public synchronized int getLastSavedCount() {
+    return lastSavedCount;
+  }
+
+  /** Number of nodes restored on load */
+  public synchronized int getLoadedCount() {
+    return loadedCount;
+  }
+
+  /** Number of restored ACTIVE nodes demoted to SLEEP as stale */
+  public synchronized int getDemotedCount() {
+    return demotedCount;
+  }
+}
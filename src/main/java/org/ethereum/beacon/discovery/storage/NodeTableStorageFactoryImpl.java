@@ -7,15 +7,27 @@ package org.ethereum.beacon.discovery.storage;
 import static com.google.common.base.Preconditions.checkArgument;
 
 import java.util.List;
+import java.util.Optional;
 import java.util.function.Function;
 import java.util.function.Supplier;
 import org.apache.tuweni.units.bigints.UInt64;
 import org.ethereum.beacon.discovery.database.Database;
+import org.ethereum.beacon.discovery.database.WriteBehindFlusher;
 import org.ethereum.beacon.discovery.format.SerializerFactory;
 import org.ethereum.beacon.discovery.schema.NodeRecord;
 import org.ethereum.beacon.discovery.schema.NodeRecordInfo;
 
 public class NodeTableStorageFactoryImpl implements NodeTableStorageFactory {
+  private final Optional<WriteBehindFlusher> writeBehind;
+
+  public NodeTableStorageFactoryImpl() {
+    this.writeBehind = Optional.empty();
+  }
+
+  /** Created storages keep updates in memory, which are written to database by `flusher` */
+  public NodeTableStorageFactoryImpl(WriteBehindFlusher flusher) {
+    this.writeBehind = Optional.of(flusher);
+  }
 
   private boolean isStorageEmpty(NodeTableStorage nodeTableStorage) {
     return nodeTableStorage.get().getHomeNode() == null;
@@ -40,7 +52,8 @@ public class NodeTableStorageFactoryImpl implements NodeTableStorageFactory {
       SerializerFactory serializerFactory,
       Function<UInt64, NodeRecord> homeNodeProvider,
       Supplier<List<NodeRecord>> bootNodesSupplier) {
-    NodeTableStorage nodeTableStorage = new NodeTableStorageImpl(database, serializerFactory);
+    NodeTableStorage nodeTableStorage =
+        new NodeTableStorageImpl(database, serializerFactory, writeBehind);
 
     // Init storage with boot nodes if its empty
     if (isStorageEmpty(nodeTableStorage)) {
@@ -70,6 +83,6 @@ public class NodeTableStorageFactoryImpl implements NodeTableStorageFactory {
   @Override
   public NodeBucketStorage createBucketStorage(
       Database database, SerializerFactory serializerFactory, NodeRecord homeNode) {
-    return new NodeBucketStorageImpl(database, serializerFactory, homeNode);
+    return new NodeBucketStorageImpl(database, serializerFactory, homeNode, writeBehind);
   }
 }
@@ -6,13 +6,16 @@ package org.ethereum.beacon.discovery.storage;
 
 import static org.ethereum.beacon.discovery.util.CryptoUtil.sha256;
 
+import java.util.Optional;
 import org.apache.tuweni.bytes.Bytes;
+import org.ethereum.beacon.discovery.database.CachingDataSource;
 import org.ethereum.beacon.discovery.database.CodecSource;
 import org.ethereum.beacon.discovery.database.DataSource;
 import org.ethereum.beacon.discovery.database.DataSourceList;
 import org.ethereum.beacon.discovery.database.Database;
 import org.ethereum.beacon.discovery.database.HoleyList;
 import org.ethereum.beacon.discovery.database.SingleValueSource;
+import org.ethereum.beacon.discovery.database.WriteBehindFlusher;
 import org.ethereum.beacon.discovery.format.SerializerFactory;
 import org.ethereum.beacon.discovery.schema.NodeRecordInfo;
 
@@ -21,34 +24,59 @@ public class NodeTableStorageImpl implements NodeTableStorage {
 
   public static final String NODE_TABLE_STORAGE_NAME = "node-table";
   public static final String INDEXES_STORAGE_NAME = "node-table-index";
+  /** Number of decoded node records kept in memory */
+  public static final int NODE_CACHE_CAPACITY = 4096;
 
   @SuppressWarnings({"DefaultCharset"})
   private static final Bytes HOME_NODE_KEY = sha256(Bytes.wrap("HOME_NODE".getBytes()));
 
-  private final DataSource<Bytes, Bytes> nodeTableSource;
-  private final DataSource<Bytes, Bytes> nodeIndexesSource;
+  private final CachingDataSource<Bytes, NodeRecordInfo> nodeTableSource;
+  private final DataSource<Bytes, NodeIndex> nodeIndexesSource;
   private final SingleValueSource<NodeRecordInfo> homeNodeSource;
   private final NodeTable nodeTable;
 
   public NodeTableStorageImpl(Database database, SerializerFactory serializerFactory) {
-    DataSource<Bytes, Bytes> nodeTableSource = database.createStorage(NODE_TABLE_STORAGE_NAME);
-    this.nodeTableSource = nodeTableSource;
-    DataSource<Bytes, Bytes> nodeIndexesSource = database.createStorage(INDEXES_STORAGE_NAME);
-    this.nodeIndexesSource = nodeIndexesSource;
+    this(database, serializerFactory, Optional.empty());
+  }
+
+  /**
+   * @param writeBehind if present, node records and indexes are kept in memory and written to
+   *     `database` by the flusher, records before indexes
+   */
+  public NodeTableStorageImpl(
+      Database database,
+      SerializerFactory serializerFactory,
+      Optional<WriteBehindFlusher> writeBehind) {
+    DataSource<Bytes, Bytes> rawNodeTableSource = database.createStorage(NODE_TABLE_STORAGE_NAME);
+    DataSource<Bytes, Bytes> rawNodeIndexesSource = database.createStorage(INDEXES_STORAGE_NAME);
 
     DataSource<Bytes, NodeRecordInfo> nodeTable =
         new CodecSource<>(
-            nodeTableSource,
+            rawNodeTableSource,
             key -> key,
             serializerFactory.getSerializer(NodeRecordInfo.class),
             serializerFactory.getDeserializer(NodeRecordInfo.class));
-    HoleyList<NodeIndex> nodeIndexesTable =
-        new DataSourceList<>(
-            nodeIndexesSource,
+    DataSource<Bytes, NodeIndex> nodeIndexes =
+        new CodecSource.ValueOnly<>(
+            rawNodeIndexesSource,
             serializerFactory.getSerializer(NodeIndex.class),
             serializerFactory.getDeserializer(NodeIndex.class));
-    this.homeNodeSource = SingleValueSource.fromDataSource(nodeTable, HOME_NODE_KEY);
-    this.nodeTable = new NodeTableImpl(nodeTable, nodeIndexesTable, homeNodeSource);
+    if (writeBehind.isPresent()) {
+      // Order matters: flusher writes sources in creation order
+      nodeTable = writeBehind.get().writeBehind(nodeTable);
+      nodeIndexes = writeBehind.get().writeBehind(nodeIndexes);
+    }
+    // Closest nodes queries read records one by one, decoding each of them is costly
+    this.nodeTableSource = new CachingDataSource<>(nodeTable, NODE_CACHE_CAPACITY);
+    this.nodeIndexesSource = nodeIndexes;
+    HoleyList<NodeIndex> nodeIndexesTable = new DataSourceList<>(rawNodeIndexesSource, nodeIndexes);
+    this.homeNodeSource = SingleValueSource.fromDataSource(nodeTableSource, HOME_NODE_KEY);
+    this.nodeTable = new NodeTableImpl(nodeTableSource, nodeIndexesTable, homeNodeSource);
+  }
+
+  /** Cache of decoded node records exposing hit and miss counters */
+  public CachingDataSource<Bytes, NodeRecordInfo> getNodeCache() {
+    return nodeTableSource;
   }
 
   @Override
@@ -14,7 +14,7 @@ import org.apache.logging.log4j.Logger;
 import org.apache.tuweni.bytes.Bytes;
 import org.ethereum.beacon.discovery.schema.NodeRecordInfo;
 import org.ethereum.beacon.discovery.storage.NodeTable;
-import org.ethereum.beacon.discovery.util.Functions;
+import org.ethereum.beacon.discovery.type.NodeId;
 
 public class RecursiveLookupTask {
   private static final Logger LOG = LogManager.getLogger();
@@ -22,6 +22,7 @@ public class RecursiveLookupTask {
   private final NodeTable nodeTable;
   private final FindNodesAction sendFindNodesRequest;
   private final Bytes targetNodeId;
+  private final NodeId target;
   private final Set<Bytes> queriedNodeIds = new HashSet<>();
   private int availableQuerySlots = MAX_CONCURRENT_QUERIES;
   private int remainingTotalQueryLimit;
@@ -36,6 +37,7 @@ public class RecursiveLookupTask {
     this.sendFindNodesRequest = sendFindNodesRequest;
     this.remainingTotalQueryLimit = totalQueryLimit;
     this.targetNodeId = targetNodeId;
+    this.target = NodeId.fromBytes(targetNodeId);
   }
 
   public CompletableFuture<Void> execute() {
@@ -70,7 +72,7 @@ public class RecursiveLookupTask {
     availableQuerySlots--;
     remainingTotalQueryLimit--;
     sendFindNodesRequest
-        .findNodes(peer, Functions.logDistance(peer.getNode().getNodeId(), targetNodeId))
+        .findNodes(peer, target.logDistance(peer.getNode().getNodeId()))
         .whenComplete(
             (__, error) -> {
               if (error != null) {
@@ -58,7 +58,7 @@ public class TaskMessageFactory {
                 session.getHomeNodeId(),
                 session.getNodeId(),
                 authTag,
-                session.getInitiatorKey(),
+                session.getInitiatorCipherKey(),
                 DiscoveryV5Message.from(createPing(session, requestId)));
     }
 
@@ -73,7 +73,7 @@ public class TaskMessageFactory {
                 session.getHomeNodeId(),
                 session.getNodeId(),
                 authTag,
-                session.getInitiatorKey(),
+                session.getInitiatorCipherKey(),
                 DiscoveryV5Message.from(findNodeMessage));
     }
 
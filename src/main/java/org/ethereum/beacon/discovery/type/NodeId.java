@@ -0,0 +1,185 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.ethereum.beacon.discovery.type;
+
+import com.google.common.base.Preconditions;
+import java.util.Comparator;
+import org.apache.tuweni.bytes.Bytes;
+
+/**
+ * 256-bit node id kept as four big-endian words, most significant word first.
+ *
+ * <p>XOR distance, log distance and distance ordering are computed word by word, without
+ * allocating intermediate {@link Bytes}. Methods accepting {@link Bytes} read the other id in
+ * place, so a single {@link NodeId} for the target is enough to rank any number of raw ids.
+ */
+public final class NodeId {
+  public static final int SIZE = 32;
+
+  private final long w0;
+  private final long w1;
+  private final long w2;
+  private final long w3;
+
+  private NodeId(long w0, long w1, long w2, long w3) {
+    this.w0 = w0;
+    this.w1 = w1;
+    this.w2 = w2;
+    this.w3 = w3;
+  }
+
+  public static NodeId fromBytes(Bytes nodeId) {
+    checkSize(nodeId);
+    return new NodeId(
+        nodeId.getLong(0), nodeId.getLong(8), nodeId.getLong(16), nodeId.getLong(24));
+  }
+
+  /**
+   * Log distance between two ids as used by discovery v5: the index of the highest differing bit,
+   * counting from 1, or 0 for equal ids. Ids of {@link #SIZE} bytes are compared word by word, ids
+   * of other sizes are right-aligned and compared byte by byte.
+   */
+  public static int logDistance(Bytes nodeId1, Bytes nodeId2) {
+    if (nodeId1.size() == SIZE && nodeId2.size() == SIZE) {
+      return logDistance(
+          nodeId1.getLong(0) ^ nodeId2.getLong(0),
+          nodeId1.getLong(8) ^ nodeId2.getLong(8),
+          nodeId1.getLong(16) ^ nodeId2.getLong(16),
+          nodeId1.getLong(24) ^ nodeId2.getLong(24));
+    }
+    Bytes distance = nodeId1.xor(nodeId2);
+    for (int i = 0; i < distance.size(); i++) {
+      int diff = distance.get(i) & 0xFF;
+      if (diff != 0) {
+        return (distance.size() - i) * Byte.SIZE - Integer.numberOfLeadingZeros(diff) + 24;
+      }
+    }
+    return 0;
+  }
+
+  /** Bit of this id at `index`, counting from 0 for the most significant bit */
+  public int bit(int index) {
+    Preconditions.checkElementIndex(index, SIZE * Byte.SIZE);
+    final long word = index < 64 ? w0 : index < 128 ? w1 : index < 192 ? w2 : w3;
+    return (int) (word >>> (Long.SIZE - 1 - index % Long.SIZE)) & 1;
+  }
+
+  public NodeId xor(NodeId other) {
+    return new NodeId(w0 ^ other.w0, w1 ^ other.w1, w2 ^ other.w2, w3 ^ other.w3);
+  }
+
+  public int logDistance(NodeId other) {
+    return logDistance(w0 ^ other.w0, w1 ^ other.w1, w2 ^ other.w2, w3 ^ other.w3);
+  }
+
+  public int logDistance(Bytes other) {
+    checkSize(other);
+    return logDistance(
+        w0 ^ other.getLong(0),
+        w1 ^ other.getLong(8),
+        w2 ^ other.getLong(16),
+        w3 ^ other.getLong(24));
+  }
+
+  /**
+   * Compares XOR distances from this id to {@code a} and {@code b}. Negative when {@code a} is
+   * closer, positive when {@code b} is closer.
+   */
+  public int compareDistance(NodeId a, NodeId b) {
+    int res = Long.compareUnsigned(w0 ^ a.w0, w0 ^ b.w0);
+    if (res != 0) {
+      return res;
+    }
+    res = Long.compareUnsigned(w1 ^ a.w1, w1 ^ b.w1);
+    if (res != 0) {
+      return res;
+    }
+    res = Long.compareUnsigned(w2 ^ a.w2, w2 ^ b.w2);
+    if (res != 0) {
+      return res;
+    }
+    return Long.compareUnsigned(w3 ^ a.w3, w3 ^ b.w3);
+  }
+
+  /** Same as {@link #compareDistance(NodeId, NodeId)} for raw ids. */
+  public int compareDistance(Bytes a, Bytes b) {
+    checkSize(a);
+    checkSize(b);
+    int res = Long.compareUnsigned(w0 ^ a.getLong(0), w0 ^ b.getLong(0));
+    if (res != 0) {
+      return res;
+    }
+    res = Long.compareUnsigned(w1 ^ a.getLong(8), w1 ^ b.getLong(8));
+    if (res != 0) {
+      return res;
+    }
+    res = Long.compareUnsigned(w2 ^ a.getLong(16), w2 ^ b.getLong(16));
+    if (res != 0) {
+      return res;
+    }
+    return Long.compareUnsigned(w3 ^ a.getLong(24), w3 ^ b.getLong(24));
+  }
+
+  /** Orders ids by XOR distance to this id, closest first. */
+  public Comparator<NodeId> distanceComparator() {
+    return this::compareDistance;
+  }
+
+  public Bytes toBytes() {
+    byte[] bytes = new byte[SIZE];
+    putLong(bytes, 0, w0);
+    putLong(bytes, 8, w1);
+    putLong(bytes, 16, w2);
+    putLong(bytes, 24, w3);
+    return Bytes.wrap(bytes);
+  }
+
+  private static int logDistance(long x0, long x1, long x2, long x3) {
+    if (x0 != 0) {
+      return 4 * Long.SIZE - Long.numberOfLeadingZeros(x0);
+    }
+    if (x1 != 0) {
+      return 3 * Long.SIZE - Long.numberOfLeadingZeros(x1);
+    }
+    if (x2 != 0) {
+      return 2 * Long.SIZE - Long.numberOfLeadingZeros(x2);
+    }
+    return Long.SIZE - Long.numberOfLeadingZeros(x3);
+  }
+
+  private static void checkSize(Bytes nodeId) {
+    Preconditions.checkArgument(
+        nodeId.size() == SIZE, "Node id should be %s bytes, got %s", SIZE, nodeId.size());
+  }
+
+  private static void putLong(byte[] bytes, int offset, long value) {
+    for (int i = Long.BYTES - 1; i >= 0; i--) {
+      bytes[offset + i] = (byte) value;
+      value >>>= Byte.SIZE;
+    }
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    NodeId that = (NodeId) o;
+    return w0 == that.w0 && w1 == that.w1 && w2 == that.w2 && w3 == that.w3;
+  }
+
+  @Override
+  public int hashCode() {
+    return Long.hashCode(w0 ^ w1 ^ w2 ^ w3);
+  }
+
+  @Override
+  public String toString() {
+    return toBytes().toHexString();
+  }
+}
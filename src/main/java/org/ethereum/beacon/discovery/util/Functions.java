@@ -10,16 +10,19 @@ import static org.web3j.crypto.Sign.CURVE_PARAMS;
 import com.google.common.base.MoreObjects;
 import com.google.common.base.Objects;
 import com.google.common.base.Preconditions;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import java.math.BigInteger;
+import java.security.GeneralSecurityException;
 import java.security.InvalidAlgorithmParameterException;
 import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
-import java.security.SecureRandom;
+import java.util.Arrays;
 import java.util.Random;
-import javax.crypto.BadPaddingException;
+import java.util.concurrent.TimeUnit;
 import javax.crypto.Cipher;
-import javax.crypto.IllegalBlockSizeException;
 import javax.crypto.NoSuchPaddingException;
+import javax.crypto.SecretKey;
 import javax.crypto.spec.GCMParameterSpec;
 import javax.crypto.spec.SecretKeySpec;
 import org.apache.logging.log4j.LogManager;
@@ -29,11 +32,12 @@ import org.bouncycastle.crypto.Digest;
 import org.bouncycastle.crypto.digests.SHA256Digest;
 import org.bouncycastle.crypto.generators.HKDFBytesGenerator;
 import org.bouncycastle.crypto.params.ECDomainParameters;
+import org.bouncycastle.crypto.params.ECPublicKeyParameters;
 import org.bouncycastle.crypto.params.HKDFParameters;
+import org.bouncycastle.crypto.signers.ECDSASigner;
 import org.bouncycastle.math.ec.ECPoint;
-import org.bouncycastle.util.Arrays;
 import org.ethereum.beacon.discovery.type.Hashes;
-import org.web3j.crypto.ECDSASignature;
+import org.ethereum.beacon.discovery.type.NodeId;
 import org.web3j.crypto.ECKeyPair;
 import org.web3j.crypto.Hash;
 import org.web3j.crypto.Sign;
@@ -50,6 +54,11 @@ public class Functions {
   private static final int INITIATOR_KEY_LENGTH = 16;
   private static final int AUTH_RESP_KEY_LENGTH = 16;
   private static final int MS_IN_SECOND = 1000;
+  public static final int AESGCM_TAG_SIZE = 16;
+  private static final ThreadLocal<ThreadCipher> AESGCM_CIPHERS =
+      ThreadLocal.withInitial(ThreadCipher::new);
+  private static final Cache<Bytes, ECPoint> PUBLIC_KEY_POINTS =
+      CacheBuilder.newBuilder().maximumSize(1024).expireAfterAccess(3, TimeUnit.MINUTES).build();
 
   /** SHA2 (SHA256) */
   public static Bytes hash(Bytes value) {
@@ -86,29 +95,56 @@ public class Functions {
    */
   public static boolean verifyECDSASignature(Bytes signature, Bytes x, Bytes pubKey) {
     Preconditions.checkArgument(pubKey.size() == 33, "Invalid public key size");
-    ECPoint ecPoint = Functions.publicKeyToPoint(pubKey);
-    Bytes pubKeyUncompressed = Bytes.wrap(ecPoint.getEncoded(false)).slice(1);
-    ECDSASignature ecdsaSignature =
-        new ECDSASignature(
-            new BigInteger(1, signature.slice(0, 32).toArray()),
-            new BigInteger(1, signature.slice(32).toArray()));
+    final ECPoint ecPoint;
     try {
-      for (int recId = 0; recId < 4; ++recId) {
-        BigInteger calculatedPubKey = Sign.recoverFromSignature(recId, ecdsaSignature, x.toArray());
-        if (calculatedPubKey == null) {
-          continue;
-        }
-        if (Arrays.areEqual(
-            pubKeyUncompressed.toArray(),
-            extractBytesFromUnsignedBigInt(calculatedPubKey, PUBKEY_SIZE))) {
-          return true;
-        }
-      }
+      ecPoint = getPublicKeyPoint(pubKey);
     } catch (final IllegalArgumentException e) {
-      logger.trace("Failed to verify ECDSA signature", e);
+      logger.trace("Failed to decode public key", e);
+      return false;
+    }
+    return verifyECDSASignature(signature, x, ecPoint);
+  }
+
+  /**
+   * Verifies that signature is made by signer with a single ECDSA verification against the known
+   * key instead of recovering candidate keys from the signature.
+   *
+   * @param signature Signature, ECDSA, r || s
+   * @param x message, hashed
+   * @param pubKey Public key of supposed signer, decoded
+   * @return whether `signature` reflects message `x` signed with `pubkey`
+   */
+  public static boolean verifyECDSASignature(Bytes signature, Bytes x, ECPoint pubKey) {
+    if (signature.size() != 64) {
+      logger.trace("Invalid ECDSA signature size {}", signature.size());
       return false;
     }
-    return false;
+    ECDSASigner signer = new ECDSASigner();
+    signer.init(false, new ECPublicKeyParameters(pubKey, SECP256K1_CURVE));
+    return signer.verifySignature(
+        x.toArrayUnsafe(),
+        new BigInteger(1, signature.slice(0, 32).toArrayUnsafe()),
+        new BigInteger(1, signature.slice(32).toArrayUnsafe()));
+  }
+
+  /**
+   * Decoded public keys are kept for a while: the curve stores multiplication tables on the point
+   * object, so signatures of repeating signers, including the home node, are verified faster.
+   */
+  private static ECPoint getPublicKeyPoint(Bytes pubKey) {
+    ECPoint point = PUBLIC_KEY_POINTS.getIfPresent(pubKey);
+    if (point == null) {
+      // key could be a view over mutable packet data, so it's copied before becoming a key
+      final Bytes key = pubKey.copy();
+      point = publicKeyToPoint(key);
+      PUBLIC_KEY_POINTS.put(key, point);
+    }
+    return point;
+  }
+
+  /** Wraps raw AES-128 `key` for repeated use with AES-GCM functions */
+  public static SecretKey aesgcm_key(Bytes key) {
+    return new SecretKeySpec(key.toArrayUnsafe(), "AES");
   }
 
   /**
@@ -116,16 +152,30 @@ public class Functions {
    * data `ad`. Size of `key` is 16 bytes (AES-128), size of `nonce` 12 bytes.
    */
   public static Bytes aesgcm_encrypt(Bytes privateKey, Bytes nonce, Bytes message, Bytes aad) {
+    return aesgcm_encrypt(aesgcm_key(privateKey), nonce, message, aad);
+  }
+
+  /** Same as {@link #aesgcm_encrypt(Bytes, Bytes, Bytes, Bytes)} with a prepared key */
+  public static Bytes aesgcm_encrypt(SecretKey key, Bytes nonce, Bytes message, Bytes aad) {
+    byte[] output = new byte[message.size() + AESGCM_TAG_SIZE];
+    aesgcm_encrypt(key, nonce, message, aad, output, 0);
+    return Bytes.wrap(output);
+  }
+
+  /**
+   * AES-GCM encryption of `message` straight into `output` starting at `outputOffset`, which
+   * should have room for `message.size() + 16` bytes.
+   *
+   * @return number of bytes written
+   */
+  public static int aesgcm_encrypt(
+      SecretKey key, Bytes nonce, Bytes message, Bytes aad, byte[] output, int outputOffset) {
     try {
-      Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
-      cipher.init(
-          Cipher.ENCRYPT_MODE,
-          new SecretKeySpec(privateKey.toArray(), "AES"),
-          new GCMParameterSpec(128, nonce.toArray()));
-      cipher.updateAAD(aad.toArray());
-      return Bytes.wrap(cipher.doFinal(message.toArray()));
-    } catch (Exception e) {
-      throw new RuntimeException("No AES/GCM cipher provider", e);
+      Cipher cipher = initAesGcm(Cipher.ENCRYPT_MODE, key, nonce);
+      cipher.updateAAD(aad.toArrayUnsafe());
+      return cipher.doFinal(message.toArrayUnsafe(), 0, message.size(), output, outputOffset);
+    } catch (GeneralSecurityException e) {
+      throw new RuntimeException("Failed to encrypt message: " + e, e);
     }
   }
 
@@ -134,23 +184,56 @@ public class Functions {
    * data `ad`. Size of `key` is 16 bytes (AES-128), size of `nonce` 12 bytes.
    */
   public static Bytes aesgcm_decrypt(Bytes privateKey, Bytes nonce, Bytes encoded, Bytes aad) {
+    return aesgcm_decrypt(aesgcm_key(privateKey), nonce, encoded, aad);
+  }
+
+  /** Same as {@link #aesgcm_decrypt(Bytes, Bytes, Bytes, Bytes)} with a prepared key */
+  public static Bytes aesgcm_decrypt(SecretKey key, Bytes nonce, Bytes encoded, Bytes aad) {
     try {
-      Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
-      cipher.init(
-          Cipher.DECRYPT_MODE,
-          new SecretKeySpec(privateKey.toArray(), "AES"),
-          new GCMParameterSpec(128, nonce.toArray()));
-      cipher.updateAAD(aad.toArray());
-      return Bytes.wrap(cipher.doFinal(encoded.toArray()));
-    } catch (NoSuchAlgorithmException e) {
-      throw new RuntimeException("No AES/GCM cipher provider", e);
-    } catch (InvalidKeyException
-        | InvalidAlgorithmParameterException
-        | NoSuchPaddingException
-        | BadPaddingException
-        | IllegalBlockSizeException e) {
-      throw new RuntimeException("Failed to decrypt message", e);
+      Cipher cipher = initAesGcm(Cipher.DECRYPT_MODE, key, nonce);
+      cipher.updateAAD(aad.toArrayUnsafe());
+      return Bytes.wrap(cipher.doFinal(encoded.toArrayUnsafe(), 0, encoded.size()));
+    } catch (GeneralSecurityException e) {
+      throw new RuntimeException("Failed to decrypt message: " + e, e);
+    }
+  }
+
+  /**
+   * Initializes cipher of the current thread. Ciphers are reused to skip provider lookup, and the
+   * provider skips AES key expansion when consecutive calls use the same key.
+   *
+   * <p>Reused cipher refuses to encrypt with key and nonce of its previous encryption. Packets
+   * never repeat a nonce, but deterministic encodings like test vectors do, so such encryption
+   * gets a cipher of its own instead.
+   */
+  private static Cipher initAesGcm(int mode, SecretKey key, Bytes nonce)
+      throws NoSuchAlgorithmException, NoSuchPaddingException, InvalidKeyException,
+          InvalidAlgorithmParameterException {
+    byte[] nonceBytes = nonce.toArrayUnsafe();
+    GCMParameterSpec parameterSpec = new GCMParameterSpec(128, nonceBytes);
+    ThreadCipher threadCipher = AESGCM_CIPHERS.get();
+    if (threadCipher.cipher == null) {
+      threadCipher.cipher = Cipher.getInstance("AES/GCM/NoPadding");
+    }
+    Cipher cipher = threadCipher.cipher;
+    if (mode == Cipher.ENCRYPT_MODE) {
+      if (key.equals(threadCipher.encryptionKey)
+          && Arrays.equals(nonceBytes, threadCipher.encryptionNonce)) {
+        cipher = Cipher.getInstance("AES/GCM/NoPadding");
+      } else {
+        threadCipher.encryptionKey = key;
+        threadCipher.encryptionNonce = nonceBytes.clone();
+      }
     }
+    cipher.init(mode, key, parameterSpec);
+    return cipher;
+  }
+
+  /** AES-GCM cipher of a thread with key and nonce of its previous encryption */
+  private static class ThreadCipher {
+    private Cipher cipher;
+    private SecretKey encryptionKey;
+    private byte[] encryptionNonce;
   }
 
   public static ECKeyPair generateECKeyPair() {
@@ -243,9 +326,9 @@ public class Functions {
     return System.currentTimeMillis() / MS_IN_SECOND;
   }
 
-  /** Random provider */
+  /** Random provider for key material, see {@link RandomSource} */
   public static Random getRandom() {
-    return new SecureRandom();
+    return RandomSource.keys();
   }
 
   /**
@@ -257,18 +340,7 @@ public class Functions {
    * in XOR)
    */
   public static int logDistance(Bytes nodeId1, Bytes nodeId2) {
-    Bytes distance = nodeId1.xor(nodeId2);
-    int logDistance = Byte.SIZE * distance.size(); // 256
-    final int maxLogDistance = logDistance;
-    for (int i = 0; i < maxLogDistance; ++i) {
-      boolean highBit = ((distance.get(i / 8) >> (7 - (i % 8))) & 1) == 1;
-      if (highBit) {
-        break;
-      } else {
-        logDistance--;
-      }
-    }
-    return logDistance;
+    return NodeId.logDistance(nodeId1, nodeId2);
   }
 
   /**
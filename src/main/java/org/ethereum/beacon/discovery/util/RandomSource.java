@@ -0,0 +1,102 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.ethereum.beacon.discovery.util;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.primitives.Ints;
+import java.security.SecureRandom;
+import java.util.Random;
+import org.bouncycastle.crypto.digests.SHA256Digest;
+import org.bouncycastle.crypto.prng.EntropySource;
+import org.bouncycastle.crypto.prng.EntropySourceProvider;
+import org.bouncycastle.crypto.prng.SP800SecureRandomBuilder;
+
+/**
+ * Randomness shared by all discovery components instead of seeding new {@link SecureRandom} for
+ * each session, packet or key.
+ *
+ * <ul>
+ *   <li>{@link #keys()} is a single system {@link SecureRandom}, used for private keys and secrets
+ *   <li>{@link #nonces()} uses SHA-256 Hash DRBG (NIST SP 800-90A) per thread, seeded from {@link
+ *       #keys()} on first use, for nonces, request ids, auth tags and random packets. Threads don't
+ *       contend on it and it never waits for system entropy after seeding.
+ * </ul>
+ */
+public final class RandomSource {
+  private static final SecureRandom KEYS = new SecureRandom();
+  private static final ThreadLocal<SecureRandom> THREAD_NONCES =
+      ThreadLocal.withInitial(RandomSource::createNonceRandom);
+  private static final Random NONCES = new ThreadNonceRandom();
+
+  private RandomSource() {}
+
+  /** Source of key material, shared and thread safe */
+  public static SecureRandom keys() {
+    return KEYS;
+  }
+
+  /**
+   * Source of nonces and identifiers, every call goes to the generator of the calling thread, so
+   * instance may be kept and shared freely
+   */
+  public static Random nonces() {
+    return NONCES;
+  }
+
+  /** Generator behind {@link #nonces()} on the calling thread */
+  @VisibleForTesting
+  static SecureRandom getThreadNonceRandom() {
+    return THREAD_NONCES.get();
+  }
+
+  private static SecureRandom createNonceRandom() {
+    final byte[] nonce = new byte[16];
+    KEYS.nextBytes(nonce);
+    return new SP800SecureRandomBuilder(new KeysEntropySourceProvider())
+        .setPersonalizationString(Thread.currentThread().getName().getBytes(UTF_8))
+        .buildHash(new SHA256Digest(), nonce, false);
+  }
+
+  private static class ThreadNonceRandom extends Random {
+    @Override
+    public void nextBytes(byte[] bytes) {
+      THREAD_NONCES.get().nextBytes(bytes);
+    }
+
+    @Override
+    protected int next(int bits) {
+      final byte[] bytes = new byte[Integer.BYTES];
+      THREAD_NONCES.get().nextBytes(bytes);
+      return Ints.fromByteArray(bytes) >>> (Integer.SIZE - bits);
+    }
+  }
+
+  /** Entropy for DRBG seeding and reseeding, read without blocking unlike generateSeed() */
+  private static class KeysEntropySourceProvider implements EntropySourceProvider {
+    @Override
+    public EntropySource get(int bitsRequired) {
+      return new EntropySource() {
+        @Override
+        public boolean isPredictionResistant() {
+          return false;
+        }
+
+        @Override
+        public byte[] getEntropy() {
+          final byte[] entropy = new byte[(bitsRequired + 7) / 8];
+          KEYS.nextBytes(entropy);
+          return entropy;
+        }
+
+        @Override
+        public int entropySize() {
+          return bitsRequired;
+        }
+      };
+    }
+  }
+}
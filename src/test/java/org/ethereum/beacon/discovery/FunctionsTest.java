@@ -20,7 +20,12 @@ import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.web3j.crypto.ECKeyPair;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 public class FunctionsTest {
   private final Bytes testKey1 =
@@ -142,6 +147,70 @@ public class FunctionsTest {
     System.out.println("Total time: " + counter/1_000_000L + "ms");
   }
 
+  @Test
+  public void testGcmCipherOfThreadIsReusedWithDifferentKeys() {
+    Bytes key1 = Bytes.fromHexString("0x00112233445566778899aabbccddeeff");
+    Bytes key2 = Bytes.fromHexString("0xffeeddccbbaa99887766554433221100");
+    Bytes nonce = Bytes.fromHexString("0x000102030405060708090a0b");
+    Bytes pt = Bytes.fromHexString("0x01c20101");
+    Bytes ad =
+        Bytes.fromHexString("0x93a7400fa0d6a694ebc24d5cf570f65d04215b6ac00757875e3f3a5f42107903");
+    Bytes encrypted1 = Functions.aesgcm_encrypt(key1, nonce, pt, ad);
+    Bytes encrypted2 = Functions.aesgcm_encrypt(key2, nonce, pt, ad);
+    Assertions.assertNotEquals(encrypted1, encrypted2);
+    assertEquals(pt, Functions.aesgcm_decrypt(key1, nonce, encrypted1, ad));
+    assertEquals(pt, Functions.aesgcm_decrypt(key2, nonce, encrypted2, ad));
+    // Decryption with the wrong key is detected, and the cipher is usable after it
+    Assertions.assertThrows(
+        RuntimeException.class, () -> Functions.aesgcm_decrypt(key1, nonce, encrypted2, ad));
+    assertEquals(pt, Functions.aesgcm_decrypt(key1, nonce, encrypted1, ad));
+  }
+
+  @Test
+  public void testGcmRepeatedKeyAndNonceGiveSameCiphertext() {
+    Bytes key = Bytes.fromHexString("0x00112233445566778899aabbccddeeff");
+    Bytes nonce = Bytes.fromHexString("0x000102030405060708090a0b");
+    Bytes otherNonce = Bytes.fromHexString("0x000102030405060708090a0c");
+    Bytes pt = Bytes.fromHexString("0x01c20101");
+    Bytes encrypted = Functions.aesgcm_encrypt(key, nonce, pt, Bytes.EMPTY);
+    assertEquals(encrypted, Functions.aesgcm_encrypt(key, nonce, pt, Bytes.EMPTY));
+    Bytes otherEncrypted = Functions.aesgcm_encrypt(key, otherNonce, pt, Bytes.EMPTY);
+    assertEquals(encrypted, Functions.aesgcm_encrypt(key, nonce, pt, Bytes.EMPTY));
+    assertEquals(pt, Functions.aesgcm_decrypt(key, otherNonce, otherEncrypted, Bytes.EMPTY));
+  }
+
+  @Test
+  public void testGcmCiphersOfThreadsAreIndependent() throws Exception {
+    Bytes key = Bytes.fromHexString("0x00112233445566778899aabbccddeeff");
+    Bytes pt = Bytes.fromHexString("0x01c20101");
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<Boolean>> results = new ArrayList<>();
+      for (int thread = 0; thread < 4; thread++) {
+        final int threadNumber = thread;
+        results.add(
+            executor.submit(
+                () -> {
+                  for (int i = 0; i < 1000; i++) {
+                    Bytes nonce =
+                        Bytes.concatenate(
+                            Bytes.ofUnsignedInt(threadNumber), Bytes.ofUnsignedLong(i));
+                    Bytes encrypted = Functions.aesgcm_encrypt(key, nonce, pt, Bytes.EMPTY);
+                    if (!pt.equals(Functions.aesgcm_decrypt(key, nonce, encrypted, Bytes.EMPTY))) {
+                      return false;
+                    }
+                  }
+                  return true;
+                }));
+      }
+      for (Future<Boolean> result : results) {
+        assertTrue(result.get());
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
   @Test
   @SuppressWarnings({"DefaultCharset"})
   public void testRecoverFromSignature() throws Exception {
@@ -11,6 +11,7 @@ import static org.ethereum.beacon.discovery.pipeline.Field.MESSAGE;
 import static org.ethereum.beacon.discovery.pipeline.Field.PACKET_AUTH_HEADER_MESSAGE;
 import static org.ethereum.beacon.discovery.pipeline.Field.PACKET_MESSAGE;
 import static org.ethereum.beacon.discovery.pipeline.Field.SESSION;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
@@ -39,6 +40,8 @@ import org.ethereum.beacon.discovery.pipeline.Field;
 import org.ethereum.beacon.discovery.pipeline.Pipeline;
 import org.ethereum.beacon.discovery.pipeline.PipelineImpl;
 import org.ethereum.beacon.discovery.pipeline.handler.AuthHeaderMessagePacketHandler;
+import org.ethereum.beacon.discovery.pipeline.handler.HandshakeAdmission;
+import org.ethereum.beacon.discovery.pipeline.handler.HandshakeCrypto;
 import org.ethereum.beacon.discovery.pipeline.handler.MessageHandler;
 import org.ethereum.beacon.discovery.pipeline.handler.MessagePacketHandler;
 import org.ethereum.beacon.discovery.pipeline.handler.WhoAreYouPacketHandler;
@@ -165,6 +168,7 @@ public class HandshakeHandlersTest {
     Functions.getRandom().nextBytes(idNonceBytes);
     Bytes idNonce = Bytes.wrap(idNonceBytes);
     nodeSessionAt2For1.setIdNonce(idNonce);
+    nodeSessionAt2For1.setStatus(NodeSession.SessionStatus.WHOAREYOU_SENT);
     Bytes authTag = nodeSessionAt2For1.generateNonce();
     authTagRepository1.put(authTag, nodeSessionAt1For2);
     envelopeAt1From2.put(
@@ -179,9 +183,14 @@ public class HandshakeHandlersTest {
     outgoing1PacketsSemaphore.release();
 
     // Node2 handle AuthHeaderPacket and finish handshake
+    HandshakeAdmission admission = new HandshakeAdmission();
     AuthHeaderMessagePacketHandler authHeaderMessagePacketHandlerNode2 =
         new AuthHeaderMessagePacketHandler(
-            outgoingPipeline, taskScheduler, NODE_RECORD_FACTORY_NO_VERIFICATION);
+            outgoingPipeline,
+            taskScheduler,
+            NODE_RECORD_FACTORY_NO_VERIFICATION,
+            HandshakeCrypto.INLINE,
+            admission);
     Envelope envelopeAt2From1 = new Envelope();
     AuthHeaderMessagePacket original = (AuthHeaderMessagePacket) outgoing1Packets[0];
 //    assertFalse(nodeSessionAt2For1.isAuthenticated());
@@ -221,6 +230,10 @@ public class HandshakeHandlersTest {
     envelopeAt2From1Correct.put(SESSION, nodeSessionAt2For1);
     authHeaderMessagePacketHandlerNode2.handle(envelopeAt2From1Correct);
     assertTrue(nodeSessionAt2For1.isAuthenticated());
+    // Corrupted id nonce is rejected before any cryptography
+    assertEquals(1000, admission.getRejectedCount(HandshakeAdmission.Stage.ID_NONCE));
+    assertEquals(0, admission.getRejectedCount(HandshakeAdmission.Stage.CRYPTO));
+    assertEquals(1, admission.getAdmittedCount());
 
     // Node 1 handles message from Node 2
     MessagePacketHandler messagePacketHandler1 = new MessagePacketHandler();
@@ -13,6 +13,7 @@ import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.net.InetAddress;
+import java.util.List;
 import java.util.Random;
 import org.apache.tuweni.bytes.Bytes;
 import org.apache.tuweni.units.bigints.UInt64;
@@ -22,6 +23,7 @@ import org.ethereum.beacon.discovery.schema.IdentitySchemaV4Interpreter;
 import org.ethereum.beacon.discovery.schema.NodeRecord;
 import org.ethereum.beacon.discovery.schema.NodeRecordBuilder;
 import org.ethereum.beacon.discovery.schema.NodeRecordFactory;
+import org.ethereum.beacon.discovery.schema.VerifiedNodeRecordCache;
 import org.ethereum.beacon.discovery.util.Functions;
 import org.junit.jupiter.api.Test;
 
@@ -188,4 +190,54 @@ public class NodeRecordTest {
     assertEquals(Bytes.fromHexString("0x7F000001"), nodeRecord.get(EnrField.IP_V4));
     assertEquals(30303, nodeRecord.get(EnrField.UDP));
   }
+
+  @Test
+  public void shouldReserializeAfterSignatureChange() {
+    Random rnd = new Random(SEED);
+    byte[] privKey = new byte[32];
+    rnd.nextBytes(privKey);
+    NodeRecord nodeRecord =
+        new NodeRecordBuilder()
+            .seq(1)
+            .address("127.0.0.1", 30303)
+            .privateKey(Bytes.wrap(privKey))
+            .build();
+    Bytes signed = nodeRecord.serialize();
+    assertThat(nodeRecord.serialize()).isSameAs(signed);
+    nodeRecord.setSignature(Bytes.wrap(new byte[64]));
+    assertNotEquals(signed, nodeRecord.serialize());
+    assertEquals(
+        nodeRecord.getNodeId(),
+        NODE_RECORD_FACTORY.fromBytes(nodeRecord.serialize()).getNodeId());
+  }
+
+  @Test
+  public void shouldServeRepeatedVerificationFromCache() {
+    Random rnd = new Random(SEED);
+    byte[] privKey = new byte[32];
+    rnd.nextBytes(privKey);
+    NodeRecord nodeRecord =
+        new NodeRecordBuilder()
+            .seq(7)
+            .address("127.0.0.2", 30303)
+            .privateKey(Bytes.wrap(privKey))
+            .build();
+    assertTrue(NODE_RECORD_FACTORY.fromBytes(nodeRecord.serialize()).isValid());
+    long hits = VerifiedNodeRecordCache.getHitCount();
+    assertTrue(NODE_RECORD_FACTORY.fromBytes(nodeRecord.serialize()).isValid());
+    assertThat(VerifiedNodeRecordCache.getHitCount()).isGreaterThan(hits);
+
+    // Same key, sequence number and signature, but different content
+    NodeRecord tampered =
+        NodeRecord.fromValues(
+            new IdentitySchemaV4Interpreter(),
+            nodeRecord.getSeq(),
+            List.of(
+                new EnrField(EnrField.ID, IdentitySchema.V4),
+                new EnrField(EnrField.IP_V4, Bytes.fromHexString("0x7F000002")),
+                new EnrField(EnrField.UDP, 30304),
+                new EnrField(EnrField.PKEY_SECP256K1, nodeRecord.get(EnrField.PKEY_SECP256K1))));
+    tampered.setSignature(nodeRecord.getSignature());
+    assertFalse(tampered.isValid());
+  }
 }
@@ -0,0 +1,61 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.ethereum.beacon.discovery.database;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import org.junit.jupiter.api.Test;
+
+public class CachingDataSourceTest {
+  private final HashMapDataSource<String, String> upstream = spy(new HashMapDataSource<>());
+  private final CachingDataSource<String, String> cache = new CachingDataSource<>(upstream, 2);
+
+  @Test
+  void testReadsUpstreamOnlyOnMiss() {
+    upstream.put("a", "1");
+    assertThat(cache.get("a")).contains("1");
+    assertThat(cache.get("a")).contains("1");
+    assertThat(cache.get("missing")).isEmpty();
+    assertThat(cache.get("missing")).isEmpty();
+
+    verify(upstream, times(1)).get("a");
+    // Absence is not cached
+    verify(upstream, times(2)).get("missing");
+    assertThat(cache.getSize()).isEqualTo(1);
+    assertThat(cache.getHitCount()).isEqualTo(1);
+    assertThat(cache.getMissCount()).isEqualTo(3);
+  }
+
+  @Test
+  void testUpdatesAreWrittenThrough() {
+    assertThat(cache.get("a")).isEmpty();
+    cache.put("a", "1");
+    assertThat(cache.get("a")).contains("1");
+    verify(upstream, times(1)).get("a");
+    verify(upstream).put("a", "1");
+
+    cache.remove("a");
+    assertThat(cache.getSize()).isZero();
+    assertThat(cache.get("a")).isEmpty();
+    verify(upstream, times(2)).get("a");
+    verify(upstream).remove("a");
+  }
+
+  @Test
+  void testEvictsLeastRecentlyUsed() {
+    cache.put("a", "1");
+    cache.put("b", "2");
+    cache.get("a");
+    cache.put("c", "3");
+
+    assertThat(cache.getSize()).isEqualTo(2);
+    assertThat(cache.getEvictionCount()).isEqualTo(1);
+    assertThat(cache.get("b")).contains("2");
+    verify(upstream, times(1)).get("b");
+    verify(upstream, times(0)).get("a");
+  }
+}
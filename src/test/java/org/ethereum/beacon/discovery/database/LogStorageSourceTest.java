@@ -0,0 +1,126 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.ethereum.beacon.discovery.database;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.apache.tuweni.bytes.Bytes;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class LogStorageSourceTest {
+  @TempDir Path directory;
+
+  @Test
+  void testUpdatesSurviveReopen() {
+    LogStorageSource source = new LogStorageSource(directory);
+    source.open();
+    source.put(key(1), Bytes.fromHexString("0x01"));
+    source.put(key(2), Bytes.fromHexString("0x02"));
+    source.put(key(1), Bytes.fromHexString("0x0101"));
+    source.remove(key(2));
+    source.remove(key(3));
+    assertThat(source.get(key(1))).contains(Bytes.fromHexString("0x0101"));
+    assertThat(source.get(key(2))).isEmpty();
+    source.close();
+
+    source.open();
+    assertThat(source.get(key(1))).contains(Bytes.fromHexString("0x0101"));
+    assertThat(source.get(key(2))).isEmpty();
+    source.put(key(3), Bytes.fromHexString("0x03"));
+    source.close();
+
+    source.open();
+    assertThat(source.get(key(1))).contains(Bytes.fromHexString("0x0101"));
+    assertThat(source.get(key(3))).contains(Bytes.fromHexString("0x03"));
+    source.close();
+  }
+
+  @Test
+  void testReadsWholeLogWithoutSnapshot() throws IOException {
+    LogStorageSource source = new LogStorageSource(directory);
+    source.open();
+    Map<Bytes, Bytes> batch = new HashMap<>();
+    for (int i = 0; i < 100; i++) {
+      batch.put(key(i), Bytes.ofUnsignedInt(i));
+    }
+    source.batchUpdate(batch);
+    source.remove(key(7));
+    source.close();
+    Files.delete(directory.resolve("index.snapshot"));
+
+    source.open();
+    assertThat(source.get(key(7))).isEmpty();
+    assertThat(source.get(key(99))).contains(Bytes.ofUnsignedInt(99));
+    assertThat(source.getLiveSize()).isLessThan(source.getLogSize());
+    source.close();
+  }
+
+  @Test
+  void testIncompleteRecordIsDiscarded() throws IOException {
+    LogStorageSource source = new LogStorageSource(directory);
+    source.open();
+    source.put(key(1), Bytes.fromHexString("0x01"));
+    source.close();
+    Files.delete(directory.resolve("index.snapshot"));
+    // Header of a record whose content was not written before crash
+    Files.write(
+        directory.resolve("data-0.log"),
+        new byte[] {0, 0, 0, 32, 0, 0, 0, 8, 1, 2, 3},
+        StandardOpenOption.APPEND);
+
+    source.open();
+    assertThat(source.get(key(1))).contains(Bytes.fromHexString("0x01"));
+    source.put(key(2), Bytes.fromHexString("0x02"));
+    source.close();
+    Files.delete(directory.resolve("index.snapshot"));
+
+    source.open();
+    assertThat(source.get(key(1))).contains(Bytes.fromHexString("0x01"));
+    assertThat(source.get(key(2))).contains(Bytes.fromHexString("0x02"));
+    source.close();
+  }
+
+  @Test
+  void testCompactionBoundsLogSize() throws Exception {
+    LogStorageSource source = new LogStorageSource(directory, 64 * 1024);
+    source.open();
+    for (int round = 0; round < 100; round++) {
+      for (int i = 0; i < 10; i++) {
+        source.put(key(i), largeValue(round));
+      }
+    }
+    // Compaction runs in background and may need another round after many updates
+    for (int attempt = 0; attempt < 200 && source.getLogSize() >= 2 * 64 * 1024; attempt++) {
+      TimeUnit.MILLISECONDS.sleep(10);
+    }
+    assertThat(source.getCompactionCount()).isPositive();
+    assertThat(source.getLogSize()).isLessThan(2 * 64 * 1024);
+    assertThat(source.get(key(9))).contains(largeValue(99));
+    source.close();
+
+    source.open();
+    assertThat(source.get(key(0))).contains(largeValue(99));
+    source.close();
+    try (Stream<Path> files = Files.list(directory)) {
+      assertThat(files.filter(path -> path.toString().endsWith(".log")).count()).isEqualTo(1);
+    }
+  }
+
+  private static Bytes key(int i) {
+    return Bytes.ofUnsignedInt(i);
+  }
+
+  private static Bytes largeValue(int i) {
+    return Bytes.concatenate(Bytes.wrap(new byte[1000]), Bytes.ofUnsignedInt(i));
+  }
+}
@@ -0,0 +1,126 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.ethereum.beacon.discovery.database;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doCallRealMethod;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import org.ethereum.beacon.discovery.scheduler.RunnableEx;
+import org.ethereum.beacon.discovery.scheduler.Scheduler;
+import org.junit.jupiter.api.Test;
+
+public class WriteBehindFlusherTest {
+  private final Scheduler scheduler = mock(Scheduler.class);
+  private final WriteBehindFlusher flusher =
+      new WriteBehindFlusher(scheduler, Duration.ofSeconds(1), 3);
+
+  @Test
+  void testUpdatesAreCoalescedUntilFlush() {
+    HashMapDataSource<String, String> upstream = spy(new HashMapDataSource<>());
+    upstream.put("removed", "old");
+    DataSource<String, String> source = flusher.writeBehind(upstream);
+
+    source.put("a", "1");
+    source.put("a", "2");
+    source.remove("removed");
+    assertThat(source.get("a")).contains("2");
+    assertThat(source.get("removed")).isEmpty();
+    assertThat(upstream.get("a")).isEmpty();
+    assertThat(upstream.get("removed")).contains("old");
+    assertThat(flusher.getPendingCount()).isEqualTo(2);
+
+    flusher.flush();
+    verify(upstream).batchUpdate(anyMap());
+    assertThat(upstream.get("a")).contains("2");
+    assertThat(upstream.get("removed")).isEmpty();
+    assertThat(flusher.getPendingCount()).isZero();
+    assertThat(flusher.getFlushCount()).isEqualTo(1);
+    assertThat(flusher.getLastBatchSize()).isEqualTo(2);
+    assertThat(flusher.getWrittenCount()).isEqualTo(2);
+  }
+
+  @Test
+  void testThresholdRequestsFlush() {
+    DataSource<String, String> source = flusher.writeBehind(new HashMapDataSource<>());
+    source.put("a", "1");
+    source.put("b", "1");
+    source.put("c", "1");
+    verify(scheduler).execute(any(RunnableEx.class));
+  }
+
+  @Test
+  void testFailedWriteIsRetriedAndStopsLaterSources() {
+    HashMapDataSource<String, String> records = spy(new HashMapDataSource<>());
+    HashMapDataSource<String, String> index = new HashMapDataSource<>();
+    DataSource<String, String> recordsSource = flusher.writeBehind(records);
+    DataSource<String, String> indexSource = flusher.writeBehind(index);
+    recordsSource.put("a", "1");
+    indexSource.put("i", "a");
+
+    doThrow(new IllegalStateException("Disk failure")).when(records).batchUpdate(anyMap());
+    flusher.flush();
+    assertThat(flusher.getFailedFlushCount()).isEqualTo(1);
+    assertThat(index.get("i")).isEmpty();
+    assertThat(recordsSource.get("a")).contains("1");
+    assertThat(flusher.getPendingCount()).isEqualTo(2);
+
+    recordsSource.put("a", "2");
+    doCallRealMethod().when(records).batchUpdate(anyMap());
+    flusher.flush();
+    assertThat(records.get("a")).contains("2");
+    assertThat(index.get("i")).contains("a");
+    assertThat(flusher.getPendingCount()).isZero();
+  }
+
+  @Test
+  void testUpdatesMadeDuringWriteWaitForNextFlush() {
+    HashMapDataSource<String, String> records = spy(new HashMapDataSource<>());
+    HashMapDataSource<String, String> index = new HashMapDataSource<>();
+    DataSource<String, String> recordsSource = flusher.writeBehind(records);
+    DataSource<String, String> indexSource = flusher.writeBehind(index);
+    recordsSource.put("a", "1");
+    indexSource.put("i", "a");
+    doAnswer(
+            invocation -> {
+              recordsSource.put("b", "2");
+              indexSource.put("j", "b");
+              return invocation.callRealMethod();
+            })
+        .when(records)
+        .batchUpdate(Map.of("a", "1"));
+
+    flusher.flush();
+    assertThat(index.get("i")).contains("a");
+    assertThat(records.get("b")).isEmpty();
+    assertThat(index.get("j")).isEmpty();
+    assertThat(flusher.getPendingCount()).isEqualTo(2);
+
+    flusher.flush();
+    assertThat(records.get("b")).contains("2");
+    assertThat(index.get("j")).contains("b");
+  }
+
+  @Test
+  void testDirectFlushPropagatesFailure() {
+    HashMapDataSource<String, String> upstream = spy(new HashMapDataSource<>());
+    DataSource<String, String> source = flusher.writeBehind(upstream);
+    source.put("a", "1");
+    doThrow(new IllegalStateException("Disk failure"))
+        .when(upstream)
+        .batchUpdate(Map.of("a", "1"));
+    assertThatThrownBy(source::flush).isInstanceOf(IllegalStateException.class);
+    assertThat(source.get("a")).isEqualTo(Optional.of("1"));
+  }
+}
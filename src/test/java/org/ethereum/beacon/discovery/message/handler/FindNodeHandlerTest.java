@@ -0,0 +1,80 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.ethereum.beacon.discovery.message.handler;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.apache.tuweni.bytes.Bytes;
+import org.ethereum.beacon.discovery.TestUtil;
+import org.ethereum.beacon.discovery.message.DiscoveryV5Message;
+import org.ethereum.beacon.discovery.message.FindNodeMessage;
+import org.ethereum.beacon.discovery.message.NodesMessage;
+import org.ethereum.beacon.discovery.packet.MessagePacket;
+import org.ethereum.beacon.discovery.packet.Packet;
+import org.ethereum.beacon.discovery.schema.NodeRecordFactory;
+import org.ethereum.beacon.discovery.schema.NodeRecordInfo;
+import org.ethereum.beacon.discovery.schema.NodeSession;
+import org.ethereum.beacon.discovery.storage.NodeBucket;
+import org.ethereum.beacon.discovery.util.Functions;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+class FindNodeHandlerTest {
+  private static final Bytes KEY = Bytes.fromHexString("0x00112233445566778899aabbccddeeff");
+  private static final Bytes REQUEST_ID = Bytes.fromHexString("0x1234");
+  private static final int DISTANCE = 255;
+
+  private final NodeSession session = mock(NodeSession.class);
+  private final NodeBucket bucket = mock(NodeBucket.class);
+
+  @Test
+  void shouldSendEveryNodesPacketWithOwnNonce() {
+    final List<NodeRecordInfo> records =
+        IntStream.range(0, 10)
+            .mapToObj(
+                i -> NodeRecordInfo.createDefault(TestUtil.generateNode(9000 + i).getNodeRecord()))
+            .collect(Collectors.toList());
+    when(bucket.getNodeRecords()).thenReturn(records);
+    when(session.getBucket(DISTANCE)).thenReturn(Optional.of(bucket));
+    when(session.getHomeNodeId()).thenReturn(Bytes.random(32));
+    when(session.getNodeId()).thenReturn(Bytes.random(32));
+    // Session auth tag must not be reused as nonce of every response
+    when(session.getAuthTag()).thenReturn(Optional.of(Bytes.wrap(new byte[12])));
+    when(session.generateNonce()).thenAnswer(invocation -> Bytes.random(12));
+    when(session.getInitiatorCipherKey()).thenReturn(Functions.aesgcm_key(KEY));
+
+    new FindNodeHandler().handle(new FindNodeMessage(REQUEST_ID, DISTANCE), session);
+
+    final ArgumentCaptor<Packet> packets = ArgumentCaptor.forClass(Packet.class);
+    verify(session, atLeastOnce()).sendOutgoing(packets.capture());
+    assertThat(packets.getAllValues()).hasSize(3);
+    final Set<Bytes> nonces = new HashSet<>();
+    int received = 0;
+    for (Packet packet : packets.getAllValues()) {
+      final MessagePacket messagePacket = (MessagePacket) packet;
+      messagePacket.decode(KEY);
+      nonces.add(messagePacket.getAuthTag());
+      final NodesMessage nodes =
+          (NodesMessage)
+              ((DiscoveryV5Message) messagePacket.getMessage())
+                  .create(NodeRecordFactory.DEFAULT);
+      assertThat(nodes.getRequestId()).isEqualTo(REQUEST_ID);
+      assertThat(nodes.getTotal()).isEqualTo(records.size());
+      received += nodes.getNodeRecordsSize();
+    }
+    assertThat(nonces).hasSize(3);
+    assertThat(received).isEqualTo(records.size());
+  }
+}
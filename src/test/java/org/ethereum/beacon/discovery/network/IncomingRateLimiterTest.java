@@ -0,0 +1,105 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.ethereum.beacon.discovery.network;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.google.common.net.InetAddresses;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import java.net.InetAddress;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.tuweni.bytes.Bytes;
+import org.apache.tuweni.units.bigints.UInt64;
+import org.ethereum.beacon.discovery.network.IncomingRateLimiter.Budget;
+import org.ethereum.beacon.discovery.packet.Packet;
+import org.ethereum.beacon.discovery.packet.WhoAreYouPacket;
+import org.junit.jupiter.api.Test;
+
+public class IncomingRateLimiterTest {
+  private static final Bytes HOME_NODE_ID = Bytes.wrap(new byte[32]).not();
+  private static final Bytes NODE_1 = Bytes.wrap(new byte[32]);
+  private static final Bytes NODE_2 = Bytes.concatenate(Bytes.wrap(new byte[31]), Bytes.of(1));
+  private static final InetAddress ADDRESS_1 = InetAddresses.forString("127.0.0.1");
+  private static final InetAddress ADDRESS_2 = InetAddresses.forString("127.0.0.2");
+  private static final InetAddress ADDRESS_3 = InetAddresses.forString("127.0.0.3");
+
+  private final AtomicLong clock = new AtomicLong();
+  private final IncomingRateLimiter limiter =
+      new IncomingRateLimiter(HOME_NODE_ID, new Budget(1, 2), new Budget(10, 3), clock::get);
+
+  @Test
+  void testMessageBurstIsRefilledOverTime() {
+    for (int i = 0; i < 3; i++) {
+      assertThat(limiter.tryAcquire(ADDRESS_1, message(NODE_1))).isTrue();
+    }
+    assertThat(limiter.tryAcquire(ADDRESS_1, message(NODE_1))).isFalse();
+
+    clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(100));
+    assertThat(limiter.tryAcquire(ADDRESS_1, message(NODE_1))).isTrue();
+    assertThat(limiter.tryAcquire(ADDRESS_1, message(NODE_1))).isFalse();
+    assertThat(limiter.getPassedCount()).isEqualTo(4);
+    assertThat(limiter.getDroppedMessageCount()).isEqualTo(2);
+  }
+
+  @Test
+  void testHandshakesHaveSeparateBudget() {
+    assertThat(limiter.tryAcquire(ADDRESS_1, authHeader(NODE_1))).isTrue();
+    assertThat(limiter.tryAcquire(ADDRESS_1, whoAreYou())).isTrue();
+    assertThat(limiter.tryAcquire(ADDRESS_1, authHeader(NODE_1))).isFalse();
+
+    assertThat(limiter.tryAcquire(ADDRESS_1, message(NODE_1))).isTrue();
+    assertThat(limiter.getDroppedHandshakeCount()).isEqualTo(1);
+    assertThat(limiter.getDroppedMessageCount()).isZero();
+  }
+
+  @Test
+  void testChallengeTakesHandshakeToken() {
+    assertThat(limiter.tryAcquire(ADDRESS_1, message(NODE_1))).isTrue();
+    assertThat(limiter.tryAcquireChallenge(ADDRESS_1, NODE_1)).isTrue();
+    assertThat(limiter.tryAcquire(ADDRESS_1, message(NODE_1))).isTrue();
+    assertThat(limiter.tryAcquireChallenge(ADDRESS_1, NODE_1)).isTrue();
+    assertThat(limiter.tryAcquireChallenge(ADDRESS_1, NODE_1)).isFalse();
+    assertThat(limiter.tryAcquire(ADDRESS_1, authHeader(NODE_1))).isFalse();
+
+    assertThat(limiter.tryAcquire(ADDRESS_1, message(NODE_1))).isTrue();
+    assertThat(limiter.getDroppedHandshakeCount()).isEqualTo(2);
+    assertThat(limiter.getDroppedMessageCount()).isZero();
+  }
+
+  @Test
+  void testNodeIdIsLimitedAcrossAddresses() {
+    assertThat(limiter.tryAcquire(ADDRESS_1, authHeader(NODE_1))).isTrue();
+    assertThat(limiter.tryAcquire(ADDRESS_2, authHeader(NODE_1))).isTrue();
+    assertThat(limiter.tryAcquire(ADDRESS_3, authHeader(NODE_1))).isFalse();
+
+    assertThat(limiter.tryAcquire(ADDRESS_3, authHeader(NODE_2))).isTrue();
+    clock.addAndGet(TimeUnit.SECONDS.toNanos(1));
+    assertThat(limiter.tryAcquire(ADDRESS_1, authHeader(NODE_1))).isTrue();
+  }
+
+  private static ByteBuf message(Bytes srcNodeId) {
+    // tag || rlp(auth-tag) || message
+    return packet(srcNodeId, Bytes.of(0x8c), Bytes.wrap(new byte[12 + 20]));
+  }
+
+  private static ByteBuf authHeader(Bytes srcNodeId) {
+    // tag || rlp-list(auth-header) || message
+    return packet(srcNodeId, Bytes.of(0xf8), Bytes.wrap(new byte[150]));
+  }
+
+  private static ByteBuf packet(Bytes srcNodeId, Bytes prefix, Bytes rest) {
+    Bytes tag = Packet.createTag(srcNodeId, HOME_NODE_ID);
+    return Unpooled.wrappedBuffer(Bytes.concatenate(tag, prefix, rest).toArray());
+  }
+
+  private static ByteBuf whoAreYou() {
+    return Unpooled.wrappedBuffer(
+        WhoAreYouPacket.createFromNodeId(
+                HOME_NODE_ID, Bytes.wrap(new byte[12]), Bytes.wrap(new byte[32]), UInt64.ZERO)
+            .getBytes()
+            .toArray());
+  }
+}
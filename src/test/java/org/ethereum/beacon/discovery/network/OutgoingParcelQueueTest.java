@@ -0,0 +1,130 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.ethereum.beacon.discovery.network;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import org.apache.tuweni.bytes.Bytes;
+import org.ethereum.beacon.discovery.network.OutgoingParcelQueue.OverflowPolicy;
+import org.ethereum.beacon.discovery.packet.MessagePacket;
+import org.ethereum.beacon.discovery.packet.WhoAreYouPacket;
+import org.junit.jupiter.api.Test;
+
+public class OutgoingParcelQueueTest {
+  private static final InetSocketAddress DESTINATION = new InetSocketAddress("127.0.0.1", 30303);
+
+  @Test
+  void testDropOldest() {
+    OutgoingParcelQueue queue = new OutgoingParcelQueue(2, OverflowPolicy.DROP_OLDEST);
+    NetworkParcel first = message(1);
+    NetworkParcel second = message(2);
+    NetworkParcel third = message(3);
+    assertThat(queue.offer(first, true)).isTrue();
+    assertThat(queue.offer(second, true)).isTrue();
+    assertThat(queue.offer(third, true)).isTrue();
+
+    assertThat(queue.getDepth()).isEqualTo(2);
+    assertThat(queue.getDroppedCount()).isEqualTo(1);
+    assertThat(queue.poll()).isSameAs(second);
+    assertThat(queue.poll()).isSameAs(third);
+    assertThat(queue.poll()).isNull();
+    assertThat(queue.getSentCount()).isEqualTo(2);
+    assertThat(queue.getEnqueuedCount()).isEqualTo(3);
+    assertThat(queue.getMaxDepth()).isEqualTo(2);
+  }
+
+  @Test
+  void testDropByTypeKeepsHandshakePackets() {
+    OutgoingParcelQueue queue = new OutgoingParcelQueue(2, OverflowPolicy.DROP_BY_TYPE);
+    NetworkParcel whoAreYou = whoAreYou(1);
+    NetworkParcel message = message(2);
+    queue.offer(whoAreYou, true);
+    queue.offer(message, true);
+
+    assertThat(queue.offer(message(3), true)).isFalse();
+    NetworkParcel secondWhoAreYou = whoAreYou(4);
+    assertThat(queue.offer(secondWhoAreYou, true)).isTrue();
+
+    assertThat(queue.getDroppedCount()).isEqualTo(2);
+    assertThat(queue.poll()).isSameAs(whoAreYou);
+    assertThat(queue.poll()).isSameAs(secondWhoAreYou);
+  }
+
+  @Test
+  void testBlockWaitsForSpaceAndTimesOut() throws Exception {
+    OutgoingParcelQueue queue =
+        new OutgoingParcelQueue(
+            1,
+            OverflowPolicy.BLOCK,
+            OutgoingParcelQueue.DEFAULT_SHEDDABLE_TYPES,
+            Duration.ofSeconds(5));
+    queue.offer(message(1), true);
+    assertThat(queue.offer(message(2), false)).isFalse();
+
+    Thread consumer =
+        new Thread(
+            () -> {
+              try {
+                Thread.sleep(100);
+              } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+              }
+              queue.poll();
+            });
+    consumer.start();
+    NetworkParcel blocked = message(3);
+    assertThat(queue.offer(blocked, true)).isTrue();
+    consumer.join();
+    assertThat(queue.poll()).isSameAs(blocked);
+    assertThat(queue.getDroppedCount()).isEqualTo(1);
+  }
+
+  @Test
+  void testPushBackReturnsParcelToHead() {
+    OutgoingParcelQueue queue = new OutgoingParcelQueue(4, OverflowPolicy.DROP_OLDEST);
+    NetworkParcel first = message(1);
+    NetworkParcel second = message(2);
+    queue.offer(first, true);
+    queue.offer(second, true);
+    NetworkParcel polled = queue.poll();
+    queue.pushBack(polled);
+
+    assertThat(queue.getSentCount()).isZero();
+    assertThat(queue.poll()).isSameAs(first);
+    assertThat(queue.poll()).isSameAs(second);
+  }
+
+  @Test
+  void testLanesAreDrainedSeparatelyAndShareCapacity() {
+    OutgoingParcelQueue queue = new OutgoingParcelQueue(3, OverflowPolicy.DROP_OLDEST);
+    InetSocketAddress otherDestination = new InetSocketAddress("127.0.0.1", 30304);
+    queue.setLanes(2, destination -> destination.equals(DESTINATION) ? 0 : 1);
+    NetworkParcel first = message(1);
+    NetworkParcel second = new NetworkParcelV5(new MessagePacket(Bytes.of(2)), otherDestination);
+    NetworkParcel third = message(3);
+    NetworkParcel fourth = new NetworkParcelV5(new MessagePacket(Bytes.of(4)), otherDestination);
+    queue.offer(first, true);
+    queue.offer(second, true);
+    queue.offer(third, true);
+    queue.offer(fourth, true);
+
+    assertThat(queue.getDroppedCount()).isEqualTo(1);
+    assertThat(queue.getDepth(0)).isEqualTo(1);
+    assertThat(queue.getDepth(1)).isEqualTo(2);
+    assertThat(queue.poll(1)).isSameAs(second);
+    assertThat(queue.poll(1)).isSameAs(fourth);
+    assertThat(queue.poll(1)).isNull();
+    assertThat(queue.poll(0)).isSameAs(third);
+  }
+
+  private static NetworkParcel message(int id) {
+    return new NetworkParcelV5(new MessagePacket(Bytes.of(id)), DESTINATION);
+  }
+
+  private static NetworkParcel whoAreYou(int id) {
+    return new NetworkParcelV5(new WhoAreYouPacket(Bytes.of(id)), DESTINATION);
+  }
+}
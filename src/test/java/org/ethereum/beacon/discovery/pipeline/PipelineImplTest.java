@@ -0,0 +1,86 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.ethereum.beacon.discovery.pipeline;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+public class PipelineImplTest {
+
+  @Test
+  void testHandlersAreCalledOnlyWhenRequiredFieldsPresent() {
+    List<String> calls = new ArrayList<>();
+    Pipeline pipeline = new PipelineImpl();
+    pipeline
+        .addHandler(
+            handler(
+                "unpack",
+                Set.of(Field.INCOMING),
+                envelope -> {
+                  envelope.remove(Field.INCOMING);
+                  envelope.put(Field.PACKET_UNKNOWN, "packet");
+                },
+                calls))
+        .addHandler(handler("session", Set.of(Field.SESSION), envelope -> {}, calls))
+        .addHandler(
+            handler(
+                "classify",
+                Set.of(Field.PACKET_UNKNOWN),
+                envelope -> envelope.put(Field.SESSION, "session"),
+                calls))
+        .addHandler(
+            handler(
+                "message",
+                Set.of(Field.PACKET_UNKNOWN, Field.SESSION),
+                envelope -> envelope.remove(Field.PACKET_UNKNOWN),
+                calls))
+        .addHandler(handler("bad", Set.of(Field.BAD_PACKET), envelope -> {}, calls))
+        .addHandler(handler("any", Set.of(), envelope -> {}, calls))
+        .build();
+
+    pipeline.push("data");
+
+    assertThat(calls).containsExactly("unpack", "classify", "message", "any");
+  }
+
+  @Test
+  void testEnvelopeTracksFieldsPresence() {
+    Envelope envelope = new Envelope();
+    long mask = Envelope.mask(Set.of(Field.SESSION, Field.NODE));
+    assertThat(envelope.containsAll(mask)).isFalse();
+
+    envelope.put(Field.SESSION, "session");
+    envelope.put(Field.NODE, "node");
+    assertThat(envelope.containsAll(mask)).isTrue();
+    assertThat(envelope.contains(Field.SESSION)).isTrue();
+
+    assertThat(envelope.remove(Field.NODE)).isTrue();
+    assertThat(envelope.remove(Field.NODE)).isFalse();
+    assertThat(envelope.containsAll(mask)).isFalse();
+
+    envelope.put(Field.SESSION, null);
+    assertThat(envelope.contains(Field.SESSION)).isFalse();
+    assertThat(envelope.containsAll(0)).isTrue();
+  }
+
+  private static EnvelopeHandler handler(
+      String name, Set<Field> requiredFields, EnvelopeHandler action, List<String> calls) {
+    return new EnvelopeHandler() {
+      @Override
+      public void handle(Envelope envelope) {
+        calls.add(name);
+        action.handle(envelope);
+      }
+
+      @Override
+      public Set<Field> getRequiredFields() {
+        return requiredFields;
+      }
+    };
+  }
+}
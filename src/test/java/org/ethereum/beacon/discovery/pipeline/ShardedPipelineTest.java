@@ -0,0 +1,72 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.ethereum.beacon.discovery.pipeline;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.ethereum.beacon.discovery.scheduler.Schedulers;
+import org.junit.jupiter.api.Test;
+
+public class ShardedPipelineTest {
+
+  @Test
+  void testOrderIsPreservedPerSender() throws Exception {
+    final int senders = 8;
+    final int packetsPerSender = 100;
+    Schedulers schedulers = Schedulers.createDefault();
+    Map<Object, List<Object>> received = new ConcurrentHashMap<>();
+    Map<Object, String> threads = new ConcurrentHashMap<>();
+    CountDownLatch done = new CountDownLatch(senders * packetsPerSender);
+    Pipeline pipeline =
+        new ShardedPipeline(
+            List.of(
+                schedulers.newSingleThreadDaemon("lane-0"),
+                schedulers.newSingleThreadDaemon("lane-1"),
+                schedulers.newSingleThreadDaemon("lane-2")));
+    pipeline
+        .addHandler(
+            new EnvelopeHandler() {
+              @Override
+              public void handle(Envelope envelope) {
+                Object sender = envelope.get(Field.REMOTE_SENDER);
+                received
+                    .computeIfAbsent(sender, key -> Collections.synchronizedList(new ArrayList<>()))
+                    .add(envelope.get(Field.INCOMING));
+                String thread = Thread.currentThread().getName();
+                assertThat(threads.computeIfAbsent(sender, key -> thread)).isEqualTo(thread);
+                done.countDown();
+              }
+
+              @Override
+              public Set<Field> getRequiredFields() {
+                return Set.of(Field.REMOTE_SENDER, Field.INCOMING);
+              }
+            })
+        .build();
+
+    for (int i = 0; i < packetsPerSender; i++) {
+      for (int sender = 0; sender < senders; sender++) {
+        Envelope envelope = new Envelope();
+        envelope.put(Field.REMOTE_SENDER, new InetSocketAddress("127.0.0.1", 30303 + sender));
+        envelope.put(Field.INCOMING, i);
+        pipeline.push(envelope);
+      }
+    }
+
+    assertThat(done.await(10, TimeUnit.SECONDS)).isTrue();
+    assertThat(received).hasSize(senders);
+    for (List<Object> packets : received.values()) {
+      assertThat(packets).hasSize(packetsPerSender).isSorted();
+    }
+  }
+}
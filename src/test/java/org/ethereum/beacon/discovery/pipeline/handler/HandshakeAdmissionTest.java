@@ -0,0 +1,95 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.ethereum.beacon.discovery.pipeline.handler;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.net.InetSocketAddress;
+import org.apache.tuweni.bytes.Bytes;
+import org.ethereum.beacon.discovery.packet.AuthHeaderMessagePacket;
+import org.ethereum.beacon.discovery.pipeline.handler.HandshakeAdmission.Stage;
+import org.ethereum.beacon.discovery.schema.NodeSession;
+import org.ethereum.beacon.discovery.schema.NodeSession.SessionStatus;
+import org.junit.jupiter.api.Test;
+import org.web3j.rlp.RlpEncoder;
+import org.web3j.rlp.RlpList;
+import org.web3j.rlp.RlpString;
+
+class HandshakeAdmissionTest {
+  private static final Bytes ID_NONCE = Bytes.wrap(new byte[32]).not();
+  private static final InetSocketAddress SENDER = new InetSocketAddress("127.0.0.1", 9000);
+
+  private final HandshakeAdmission admission = new HandshakeAdmission(2, 3);
+
+  @Test
+  void shouldRejectAttemptsOverSessionBudget() {
+    NodeSession session = createSession(1, 2, 3);
+
+    assertThat(admission.admit(createPacket(ID_NONCE, "gcm"), session, SENDER)).isEmpty();
+    assertThat(admission.admit(createPacket(ID_NONCE, "gcm"), session, SENDER)).isEmpty();
+    assertThat(admission.admit(createPacket(ID_NONCE, "gcm"), session, SENDER))
+        .contains(Stage.SESSION_BUDGET);
+    assertThat(admission.getAdmittedCount()).isEqualTo(2);
+  }
+
+  @Test
+  void shouldRejectAttemptsOverAddressBudgetAcrossSessions() {
+    for (int i = 0; i < 3; i++) {
+      assertThat(admission.admit(createPacket(ID_NONCE, "gcm"), createSession(1), SENDER))
+          .isEmpty();
+    }
+    assertThat(admission.admit(createPacket(ID_NONCE, "gcm"), createSession(1), SENDER))
+        .contains(Stage.ADDRESS_BUDGET);
+    assertThat(
+            admission.admit(
+                createPacket(ID_NONCE, "gcm"),
+                createSession(1),
+                new InetSocketAddress("127.0.0.2", 9000)))
+        .isEmpty();
+  }
+
+  @Test
+  void shouldRejectCheapChecksWithoutSpendingBudgets() {
+    NodeSession session = createSession(1);
+
+    assertThat(admission.admit(createPacket(Bytes.wrap(new byte[32]), "gcm"), session, SENDER))
+        .contains(Stage.ID_NONCE);
+    assertThat(admission.admit(createPacket(ID_NONCE, "ctr"), session, SENDER))
+        .contains(Stage.AUTH_SCHEME);
+    assertThat(
+            admission.admit(
+                new AuthHeaderMessagePacket(Bytes.wrap(new byte[40])), session, SENDER))
+        .contains(Stage.MALFORMED);
+    assertThat(admission.getRejectedCount(Stage.ID_NONCE)).isEqualTo(1);
+    assertThat(admission.getRejectedCount(Stage.AUTH_SCHEME)).isEqualTo(1);
+    assertThat(admission.getRejectedCount(Stage.MALFORMED)).isEqualTo(1);
+
+    assertThat(admission.admit(createPacket(ID_NONCE, "gcm"), session, SENDER)).isEmpty();
+  }
+
+  private static NodeSession createSession(Integer attempts, Integer... nextAttempts) {
+    NodeSession session = mock(NodeSession.class);
+    when(session.getStatus()).thenReturn(SessionStatus.WHOAREYOU_SENT);
+    when(session.getIdNonce()).thenReturn(ID_NONCE);
+    when(session.incrementHandshakeAttempts()).thenReturn(attempts, nextAttempts);
+    return session;
+  }
+
+  private static AuthHeaderMessagePacket createPacket(Bytes idNonce, String authScheme) {
+    Bytes authHeader =
+        Bytes.wrap(
+            RlpEncoder.encode(
+                new RlpList(
+                    RlpString.create(new byte[12]),
+                    RlpString.create(idNonce.toArray()),
+                    RlpString.create(authScheme.getBytes(UTF_8)),
+                    RlpString.create(new byte[64]),
+                    RlpString.create(new byte[48]))));
+    return AuthHeaderMessagePacket.create(Bytes.wrap(new byte[32]), authHeader, Bytes.EMPTY);
+  }
+}
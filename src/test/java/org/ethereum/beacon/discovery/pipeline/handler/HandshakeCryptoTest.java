@@ -0,0 +1,169 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.ethereum.beacon.discovery.pipeline.handler;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+import java.net.InetSocketAddress;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.apache.tuweni.bytes.Bytes;
+import org.ethereum.beacon.discovery.TestUtil;
+import org.ethereum.beacon.discovery.TestUtil.NodeInfo;
+import org.ethereum.beacon.discovery.packet.UnknownPacket;
+import org.ethereum.beacon.discovery.packet.WhoAreYouPacket;
+import org.ethereum.beacon.discovery.pipeline.Envelope;
+import org.ethereum.beacon.discovery.pipeline.Field;
+import org.ethereum.beacon.discovery.pipeline.Pipeline;
+import org.ethereum.beacon.discovery.scheduler.ExpirationScheduler;
+import org.ethereum.beacon.discovery.scheduler.Schedulers;
+import org.ethereum.beacon.discovery.schema.NodeSession;
+import org.ethereum.beacon.discovery.storage.AuthTagRepository;
+import org.ethereum.beacon.discovery.storage.LocalNodeRecordStore;
+import org.ethereum.beacon.discovery.storage.NodeBucketStorage;
+import org.ethereum.beacon.discovery.storage.NodeRecordListener;
+import org.ethereum.beacon.discovery.storage.NodeTable;
+import org.junit.jupiter.api.Test;
+
+class HandshakeCryptoTest {
+  private final BlockingQueue<Envelope> pushed = new LinkedBlockingQueue<>();
+  private final Pipeline incomingPipeline = mock(Pipeline.class);
+  private final HandshakeCrypto handshakeCrypto =
+      new HandshakeCrypto(
+          Schedulers.createDefault().newSingleThreadDaemon("handshake-crypto-test"),
+          incomingPipeline);
+  private final HandshakeInProgressHandler inProgressHandler = new HandshakeInProgressHandler();
+  private final NodeSession session = createSession();
+  private final CountDownLatch cryptoRelease = new CountDownLatch(1);
+
+  HandshakeCryptoTest() {
+    doAnswer(invocation -> pushed.add(invocation.getArgument(0)))
+        .when(incomingPipeline)
+        .push(any());
+  }
+
+  @Test
+  void testPacketsWaitForOffloadedHandshake() throws Exception {
+    final Envelope envelope = envelope(Field.PACKET_WHOAREYOU, mock(WhoAreYouPacket.class));
+    assertThat(
+            handshakeCrypto.run(
+                envelope,
+                session,
+                () -> {
+                  cryptoRelease.await();
+                  return "keys";
+                }))
+        .isEmpty();
+    assertThat(session.isHandshakeInProgress()).isTrue();
+
+    final Envelope whoAreYou = envelope(Field.PACKET_WHOAREYOU, mock(WhoAreYouPacket.class));
+    final Envelope unknown = envelope(Field.PACKET_UNKNOWN, mock(UnknownPacket.class));
+    final Object whoAreYouPacket = whoAreYou.get(Field.PACKET_WHOAREYOU);
+    final Object unknownPacket = unknown.get(Field.PACKET_UNKNOWN);
+    inProgressHandler.handle(whoAreYou);
+    inProgressHandler.handle(unknown);
+    assertThat(whoAreYou.contains(Field.PACKET_WHOAREYOU)).isFalse();
+    assertThat(unknown.contains(Field.PACKET_UNKNOWN)).isFalse();
+
+    cryptoRelease.countDown();
+    final Envelope returned = pushed.poll(5, TimeUnit.SECONDS);
+    assertThat(returned).isSameAs(envelope);
+    inProgressHandler.handle(returned);
+    assertThat(returned.contains(Field.PACKET_WHOAREYOU)).isTrue();
+    assertThat(handshakeCrypto.run(returned, session, null)).contains("keys");
+    assertThat(session.isHandshakeInProgress()).isFalse();
+    // Held packets are replayed in arrival order
+    assertThat(pushed.poll().get(Field.PACKET_WHOAREYOU)).isSameAs(whoAreYouPacket);
+    assertThat(pushed.poll().get(Field.PACKET_UNKNOWN)).isSameAs(unknownPacket);
+  }
+
+  @Test
+  void testFailedHandshakeReturnsEnvelopeWithFailure() throws Exception {
+    final Envelope envelope = envelope(Field.PACKET_WHOAREYOU, mock(WhoAreYouPacket.class));
+    handshakeCrypto.run(
+        envelope,
+        session,
+        () -> {
+          cryptoRelease.await();
+          throw new IllegalStateException("Bad key");
+        });
+    final Envelope unknown = envelope(Field.PACKET_UNKNOWN, mock(UnknownPacket.class));
+    inProgressHandler.handle(unknown);
+
+    cryptoRelease.countDown();
+    final Envelope returned = pushed.poll(5, TimeUnit.SECONDS);
+    assertThat(returned).isSameAs(envelope);
+    assertThatThrownBy(() -> handshakeCrypto.run(returned, session, null))
+        .isInstanceOf(CompletionException.class)
+        .hasCauseInstanceOf(IllegalStateException.class);
+    assertThat(session.isHandshakeInProgress()).isFalse();
+    assertThat(pushed.poll().contains(Field.PACKET_UNKNOWN)).isTrue();
+  }
+
+  @Test
+  void testHeldPacketsAreReplayedWhenEnvelopeCannotReturn() throws Exception {
+    doAnswer(
+            invocation -> {
+              final Envelope envelope = invocation.getArgument(0);
+              if (envelope.contains(Field.HANDSHAKE_RESULT)) {
+                throw new IllegalStateException("Pipeline stopped");
+              }
+              return pushed.add(envelope);
+            })
+        .when(incomingPipeline)
+        .push(any());
+    handshakeCrypto.run(
+        envelope(Field.PACKET_WHOAREYOU, mock(WhoAreYouPacket.class)),
+        session,
+        () -> {
+          cryptoRelease.await();
+          return "keys";
+        });
+    final Envelope unknown = envelope(Field.PACKET_UNKNOWN, mock(UnknownPacket.class));
+    final Object packet = unknown.get(Field.PACKET_UNKNOWN);
+    inProgressHandler.handle(unknown);
+
+    cryptoRelease.countDown();
+    final Envelope replayed = pushed.poll(5, TimeUnit.SECONDS);
+    assertThat(replayed).isNotNull();
+    assertThat(replayed.get(Field.PACKET_UNKNOWN)).isSameAs(packet);
+    assertThat(session.isHandshakeInProgress()).isFalse();
+  }
+
+  private Envelope envelope(Field packetField, Object packet) {
+    final Envelope envelope = new Envelope();
+    envelope.put(Field.SESSION, session);
+    envelope.put(Field.REMOTE_SENDER, session.getRemoteAddress());
+    envelope.put(packetField, packet);
+    return envelope;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static NodeSession createSession() {
+    final NodeInfo homeNodeInfo = TestUtil.generateNode(9000);
+    return new NodeSession(
+        Bytes.fromHexString("0x888888"),
+        Optional.empty(),
+        new InetSocketAddress(9000),
+        new LocalNodeRecordStore(
+            homeNodeInfo.getNodeRecord(), homeNodeInfo.getPrivateKey(), NodeRecordListener.NOOP),
+        Bytes.fromHexString("0x1234"),
+        mock(NodeTable.class),
+        mock(NodeBucketStorage.class),
+        mock(AuthTagRepository.class),
+        parcel -> {},
+        new Random(),
+        mock(ExpirationScheduler.class));
+  }
+}
@@ -0,0 +1,47 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.ethereum.beacon.discovery.pipeline.handler;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.tuweni.bytes.Bytes;
+import org.junit.jupiter.api.Test;
+
+class IdNonceMacTest {
+  private static final Bytes NODE_ID = Bytes.wrap(new byte[32]).not();
+  private static final InetSocketAddress ADDRESS = new InetSocketAddress("127.0.0.1", 30303);
+
+  private final AtomicLong clock = new AtomicLong();
+  private final IdNonceMac idNonceMac =
+      new IdNonceMac(Duration.ofSeconds(30), new Random(1), clock::get);
+
+  @Test
+  void shouldVerifyNonceOnlyForSameNodeAndAddress() {
+    Bytes idNonce = idNonceMac.create(NODE_ID, ADDRESS);
+
+    assertThat(idNonce.size()).isEqualTo(32);
+    assertThat(idNonceMac.verify(idNonce, NODE_ID, ADDRESS)).isTrue();
+    assertThat(idNonceMac.verify(idNonce, Bytes.wrap(new byte[32]), ADDRESS)).isFalse();
+    assertThat(idNonceMac.verify(idNonce, NODE_ID, new InetSocketAddress("127.0.0.1", 30304)))
+        .isFalse();
+  }
+
+  @Test
+  void shouldAcceptNonceForOneRotationOnly() {
+    Bytes idNonce = idNonceMac.create(NODE_ID, ADDRESS);
+
+    clock.addAndGet(TimeUnit.SECONDS.toNanos(40));
+    assertThat(idNonceMac.verify(idNonce, NODE_ID, ADDRESS)).isTrue();
+    assertThat(idNonceMac.create(NODE_ID, ADDRESS)).isNotEqualTo(idNonce);
+
+    clock.addAndGet(TimeUnit.SECONDS.toNanos(30));
+    assertThat(idNonceMac.verify(idNonce, NODE_ID, ADDRESS)).isFalse();
+  }
+}
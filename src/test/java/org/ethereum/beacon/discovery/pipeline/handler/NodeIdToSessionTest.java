@@ -4,16 +4,26 @@
 
 package org.ethereum.beacon.discovery.pipeline.handler;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 
 import java.net.InetSocketAddress;
+import java.util.Optional;
+import java.util.Random;
 import java.util.concurrent.Executors;
 import org.apache.tuweni.bytes.Bytes;
 import org.apache.tuweni.units.bigints.UInt64;
 import org.ethereum.beacon.discovery.SimpleIdentitySchemaInterpreter;
 import org.ethereum.beacon.discovery.TestUtil;
 import org.ethereum.beacon.discovery.TestUtil.NodeInfo;
+import org.ethereum.beacon.discovery.network.NetworkParcelV5;
+import org.ethereum.beacon.discovery.packet.AuthHeaderMessagePacket;
+import org.ethereum.beacon.discovery.packet.Packet;
+import org.ethereum.beacon.discovery.packet.RandomPacket;
+import org.ethereum.beacon.discovery.packet.UnknownPacket;
+import org.ethereum.beacon.discovery.packet.WhoAreYouPacket;
 import org.ethereum.beacon.discovery.pipeline.Envelope;
 import org.ethereum.beacon.discovery.pipeline.Field;
 import org.ethereum.beacon.discovery.pipeline.Pipeline;
@@ -30,6 +40,10 @@ import org.ethereum.beacon.discovery.storage.NodeRecordListener;
 import org.ethereum.beacon.discovery.storage.NodeTable;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.web3j.rlp.RlpEncoder;
+import org.web3j.rlp.RlpList;
+import org.web3j.rlp.RlpString;
 
 class NodeIdToSessionTest {
 
@@ -54,6 +68,20 @@ class NodeIdToSessionTest {
           nodeTable,
           outgoingPipeline,
           expirationSchedulerFactory);
+  private final SessionTable sessionTable = new SessionTable();
+  private final NodeIdToSession statelessHandler =
+      new NodeIdToSession(
+          new LocalNodeRecordStore(
+              homeNodeRecord, homeNodeInfo.getPrivateKey(), NodeRecordListener.NOOP),
+          STATIC_NODE_KEY,
+          nodeBucketStorage,
+          authTagRepository,
+          nodeTable,
+          outgoingPipeline,
+          expirationSchedulerFactory,
+          Optional.of(new IdNonceMac()),
+          sessionTable,
+          Optional.empty());
 
   @AfterEach
   public void tearDown() {
@@ -130,6 +158,65 @@ class NodeIdToSessionTest {
     assertThat(envelope.contains(Field.SESSION)).isFalse();
   }
 
+  @Test
+  void shouldCreateSessionOnlyForAuthHeaderAnsweringStatelessWhoAreYou() {
+    final InetSocketAddress remoteSender = new InetSocketAddress(9000);
+    final Bytes authTag = Bytes.wrap(new byte[12]);
+    final RandomPacket randomPacket =
+        RandomPacket.create(NODE_ID, homeNodeRecord.getNodeId(), authTag, new Random(1));
+    assertThat(lookupSessionForUnknownPacket(randomPacket.getBytes(), remoteSender)).isNull();
+    assertThat(sessionTable.getLiveCount()).isZero();
+
+    final ArgumentCaptor<NetworkParcelV5> parcel = ArgumentCaptor.forClass(NetworkParcelV5.class);
+    verify(outgoingPipeline).push(parcel.capture());
+    assertThat(parcel.getValue().getDestination()).isEqualTo(remoteSender);
+    final WhoAreYouPacket whoAreYou = (WhoAreYouPacket) parcel.getValue().getPacket();
+    assertThat(whoAreYou.isValid(NODE_ID, authTag)).isTrue();
+
+    // Answer from another address or with another nonce doesn't create session
+    assertThat(
+            lookupSessionForUnknownPacket(
+                createAuthHeader(whoAreYou.getIdNonce()), new InetSocketAddress(9001)))
+        .isNull();
+    assertThat(lookupSessionForUnknownPacket(createAuthHeader(Bytes.random(32)), remoteSender))
+        .isNull();
+    assertThat(sessionTable.getLiveCount()).isZero();
+
+    final NodeSession session =
+        lookupSessionForUnknownPacket(createAuthHeader(whoAreYou.getIdNonce()), remoteSender);
+    assertThat(session).isNotNull();
+    assertThat(session.getStatus()).isEqualTo(NodeSession.SessionStatus.WHOAREYOU_SENT);
+    assertThat(session.getIdNonce()).isEqualTo(whoAreYou.getIdNonce());
+    assertThat(sessionTable.contains(session)).isTrue();
+  }
+
+  private NodeSession lookupSessionForUnknownPacket(
+      final Bytes packet, final InetSocketAddress remoteSender) {
+    final Envelope envelope = new Envelope();
+    envelope.put(Field.SESSION_LOOKUP, new SessionLookup(NODE_ID));
+    envelope.put(Field.REMOTE_SENDER, remoteSender);
+    envelope.put(Field.PACKET_UNKNOWN, new UnknownPacket(packet));
+    statelessHandler.handle(envelope);
+
+    return (NodeSession) envelope.get(Field.SESSION);
+  }
+
+  /** Auth header with given id nonce, its signature is checked later by the handshake */
+  private Bytes createAuthHeader(final Bytes idNonce) {
+    final Bytes authHeader =
+        Bytes.wrap(
+            RlpEncoder.encode(
+                new RlpList(
+                    RlpString.create(new byte[12]),
+                    RlpString.create(idNonce.toArray()),
+                    RlpString.create(AuthHeaderMessagePacket.AUTH_SCHEME_NAME.getBytes(UTF_8)),
+                    RlpString.create(new byte[64]),
+                    RlpString.create(new byte[48]))));
+    return AuthHeaderMessagePacket.create(
+            Packet.createTag(NODE_ID, homeNodeRecord.getNodeId()), authHeader, Bytes.EMPTY)
+        .getBytes();
+  }
+
   private NodeSession lookupSessionForIncomingMessage(
       final Bytes nodeId, final InetSocketAddress remoteSender) {
     final Envelope envelope = new Envelope();
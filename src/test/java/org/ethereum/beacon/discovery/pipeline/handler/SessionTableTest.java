@@ -0,0 +1,100 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.ethereum.beacon.discovery.pipeline.handler;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.tuweni.bytes.Bytes;
+import org.ethereum.beacon.discovery.schema.NodeSession;
+import org.junit.jupiter.api.Test;
+
+class SessionTableTest {
+  private static final InetSocketAddress ADDRESS = new InetSocketAddress("127.0.0.1", 30303);
+
+  private final SessionTable table = new SessionTable(3);
+  private final List<NodeSession> evicted = new ArrayList<>();
+
+  @Test
+  void testEvictsLeastRecentlyUsedUnauthenticatedFirst() {
+    final NodeSession authenticated = getOrCreate(1, true);
+    final NodeSession pending1 = getOrCreate(2, false);
+    final NodeSession pending2 = getOrCreate(3, false);
+    // Touch makes pending1 the most recently used
+    assertThat(getOrCreate(2, false)).isSameAs(pending1);
+
+    getOrCreate(4, false);
+    assertThat(evicted).containsExactly(pending2);
+    getOrCreate(5, false);
+    assertThat(evicted).containsExactly(pending2, pending1);
+
+    assertThat(table.getLiveCount()).isEqualTo(3);
+    assertThat(table.getAuthenticatedCount()).isEqualTo(1);
+    assertThat(table.getEvictedCount()).isEqualTo(2);
+    assertThat(table.getEvictedAuthenticatedCount()).isZero();
+    assertThat(table.contains(id(1), ADDRESS)).isTrue();
+    assertThat(evicted).doesNotContain(authenticated);
+  }
+
+  @Test
+  void testSessionAuthenticatedAfterCreationIsKept() {
+    final NodeSession session = getOrCreate(1, false);
+    getOrCreate(2, false);
+    getOrCreate(3, false);
+    when(session.isAuthenticated()).thenReturn(true);
+
+    getOrCreate(4, false);
+    assertThat(evicted).hasSize(1).doesNotContain(session);
+    assertThat(table.contains(id(1), ADDRESS)).isTrue();
+  }
+
+  @Test
+  void testEvictsAuthenticatedWhenNoOtherLeft() {
+    final NodeSession oldest = getOrCreate(1, true);
+    getOrCreate(2, true);
+    getOrCreate(3, true);
+
+    getOrCreate(4, true);
+    assertThat(evicted).containsExactly(oldest);
+    assertThat(table.getEvictedAuthenticatedCount()).isEqualTo(1);
+    assertThat(table.getLiveCount()).isEqualTo(3);
+  }
+
+  @Test
+  void testNewSessionIsKeptWhenFullOfAuthenticated() {
+    final NodeSession oldest = getOrCreate(1, true);
+    getOrCreate(2, true);
+    getOrCreate(3, true);
+
+    final NodeSession created = getOrCreate(4, false);
+    assertThat(evicted).containsExactly(oldest);
+    assertThat(table.contains(created)).isTrue();
+    assertThat(table.contains(oldest)).isFalse();
+    assertThat(table.getLiveCount()).isEqualTo(3);
+    assertThat(getOrCreate(4, false)).isSameAs(created);
+  }
+
+  private NodeSession getOrCreate(int id, boolean authenticated) {
+    return table.getOrCreate(
+        id(id),
+        ADDRESS,
+        () -> {
+          NodeSession session = mock(NodeSession.class);
+          when(session.getNodeId()).thenReturn(id(id));
+          when(session.getRemoteAddress()).thenReturn(ADDRESS);
+          when(session.isAuthenticated()).thenReturn(authenticated);
+          return session;
+        },
+        evicted::add);
+  }
+
+  private static Bytes id(int id) {
+    return Bytes.ofUnsignedInt(id);
+  }
+}
@@ -0,0 +1,66 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.ethereum.beacon.discovery.scheduler;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+
+class ExpirationSchedulerTest {
+  private static final long TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+  private final AtomicLong clock = new AtomicLong();
+  private final List<String> expired = new ArrayList<>();
+  private final ExpirationScheduler<String> scheduler =
+      new ExpirationScheduler<>(1, TimeUnit.SECONDS, TICK_NANOS, clock::get);
+
+  @Test
+  void testTaskRunsOnceAfterDelay() {
+    scheduler.put("a", () -> expired.add("a"));
+    advance(900);
+    assertThat(expired).isEmpty();
+
+    advance(200);
+    assertThat(expired).containsExactly("a");
+    assertThat(scheduler.size()).isZero();
+    advance(5000);
+    assertThat(expired).containsExactly("a");
+  }
+
+  @Test
+  void testPutRenewsAndCancelRemoves() {
+    scheduler.put("a", () -> expired.add("a"));
+    scheduler.put("b", () -> expired.add("b"));
+    advance(600);
+    scheduler.put("a", () -> expired.add("a2"));
+    scheduler.cancel("b");
+    advance(600);
+    assertThat(expired).isEmpty();
+
+    advance(600);
+    assertThat(expired).containsExactly("a2");
+  }
+
+  @Test
+  void testTaskRenewedFromExpirationAndAfterLongPause() {
+    scheduler.put("a", () -> scheduler.put("a", () -> expired.add("a")));
+    advance(1100);
+    assertThat(expired).isEmpty();
+    assertThat(scheduler.size()).isEqualTo(1);
+
+    scheduler.put("b", () -> expired.add("b"));
+    advance(60_000);
+    assertThat(expired).containsExactlyInAnyOrder("a", "b");
+  }
+
+  private void advance(long millis) {
+    clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(millis));
+    scheduler.expire();
+  }
+}
@@ -0,0 +1,80 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.ethereum.beacon.discovery.storage;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.apache.tuweni.bytes.Bytes;
+import org.ethereum.beacon.discovery.type.NodeId;
+import org.junit.jupiter.api.Test;
+
+public class NodeIdTrieTest {
+  private final Random rnd = new Random(1);
+  private final NodeIdTrie trie = new NodeIdTrie();
+
+  @Test
+  public void testIteratesAllIdsByXorDistance() {
+    List<NodeId> ids = randomIds(2000);
+    ids.forEach(trie::add);
+    assertThat(trie.add(ids.get(0))).isFalse();
+    assertThat(trie.size()).isEqualTo(ids.size());
+
+    for (NodeId target : List.of(ids.get(7), randomIds(1).get(0))) {
+      List<NodeId> expected = new ArrayList<>(ids);
+      expected.sort(target.distanceComparator());
+      assertThat(closest(target)).containsExactlyElementsOf(expected);
+    }
+  }
+
+  @Test
+  public void testRemoveKeepsOrderAndMergesLeaves() {
+    List<NodeId> ids = randomIds(500);
+    ids.forEach(trie::add);
+    List<NodeId> removed = ids.subList(0, 490);
+    removed.forEach(id -> assertThat(trie.remove(id)).isTrue());
+    assertThat(trie.remove(ids.get(0))).isFalse();
+
+    NodeId target = ids.get(0);
+    List<NodeId> expected = new ArrayList<>(ids.subList(490, 500));
+    expected.sort(target.distanceComparator());
+    assertThat(closest(target)).containsExactlyElementsOf(expected);
+    assertThat(trie.contains(ids.get(0))).isFalse();
+    assertThat(trie.contains(ids.get(499))).isTrue();
+  }
+
+  @Test
+  public void testIdsSharingLongPrefix() {
+    byte[] base = new byte[NodeId.SIZE];
+    List<NodeId> ids = new ArrayList<>();
+    for (int i = 0; i < 40; i++) {
+      base[NodeId.SIZE - 1] = (byte) i;
+      ids.add(NodeId.fromBytes(Bytes.wrap(base.clone())));
+    }
+    ids.forEach(trie::add);
+    NodeId target = ids.get(5);
+    List<NodeId> expected = new ArrayList<>(ids);
+    expected.sort(target.distanceComparator());
+    assertThat(closest(target)).containsExactlyElementsOf(expected);
+  }
+
+  private List<NodeId> closest(NodeId target) {
+    List<NodeId> result = new ArrayList<>();
+    trie.closest(target).forEachRemaining(result::add);
+    return result;
+  }
+
+  private List<NodeId> randomIds(int count) {
+    List<NodeId> ids = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      byte[] id = new byte[NodeId.SIZE];
+      rnd.nextBytes(id);
+      ids.add(NodeId.fromBytes(Bytes.wrap(id)));
+    }
+    return ids;
+  }
+}
@@ -0,0 +1,128 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.ethereum.beacon.discovery.storage;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.ethereum.beacon.discovery.TestUtil.NODE_RECORD_FACTORY_NO_VERIFICATION;
+import static org.ethereum.beacon.discovery.TestUtil.TEST_SERIALIZER;
+import static org.mockito.Mockito.mock;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import org.ethereum.beacon.discovery.TestUtil;
+import org.ethereum.beacon.discovery.database.Database;
+import org.ethereum.beacon.discovery.scheduler.Scheduler;
+import org.ethereum.beacon.discovery.schema.NodeRecord;
+import org.ethereum.beacon.discovery.schema.NodeRecordInfo;
+import org.ethereum.beacon.discovery.schema.NodeStatus;
+import org.ethereum.beacon.discovery.util.Functions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class NodeTableSnapshotTest {
+  private static final NodeRecord HOME_NODE =
+      TestUtil.generateUnverifiedNode(30303).getNodeRecord();
+
+  @TempDir Path directory;
+
+  @Test
+  void testRestoresNodesDemotingStaleOnes() {
+    final long now = Functions.getTime();
+    NodeRecordInfo fresh = nodeInfo(1, now, NodeStatus.ACTIVE);
+    NodeRecordInfo stale = nodeInfo(2, now - 1000, NodeStatus.ACTIVE);
+    NodeRecordInfo sleeping = nodeInfo(3, now, NodeStatus.SLEEP);
+    NodeRecordInfo dead = nodeInfo(4, now, NodeStatus.DEAD);
+    Storages saved = new Storages();
+    for (NodeRecordInfo node : new NodeRecordInfo[] {fresh, stale, sleeping, dead}) {
+      saved.nodeTable.save(node);
+    }
+    saved.buckets.put(fresh);
+    saved.buckets.put(stale);
+    assertThat(saved.snapshot().save()).isEqualTo(3);
+
+    Storages restored = new Storages();
+    NodeTableSnapshot snapshot = restored.snapshot();
+    assertThat(snapshot.load()).isEqualTo(3);
+    assertThat(snapshot.getDemotedCount()).isEqualTo(1);
+    assertThat(restored.nodeTable.getNode(fresh.getNode().getNodeId())).contains(fresh);
+    assertThat(restored.nodeTable.getNode(stale.getNode().getNodeId()))
+        .contains(new NodeRecordInfo(stale.getNode(), now - 1000, NodeStatus.SLEEP, 0));
+    assertThat(restored.nodeTable.getNode(sleeping.getNode().getNodeId())).contains(sleeping);
+    assertThat(restored.nodeTable.getNode(dead.getNode().getNodeId())).isEmpty();
+    assertThat(restored.bucketOf(fresh).getNodeRecords()).contains(fresh);
+    assertThat(
+            restored
+                .buckets
+                .get(restored.bucketIndex(stale))
+                .map(NodeBucket::getNodeRecords)
+                .orElse(Collections.emptyList()))
+        .noneMatch(node -> node.getNode().equals(stale.getNode()));
+  }
+
+  @Test
+  void testKeepsNodesAlreadyInTable() {
+    final long now = Functions.getTime();
+    Storages saved = new Storages();
+    saved.nodeTable.save(nodeInfo(1, now - 10, NodeStatus.ACTIVE));
+    saved.snapshot().save();
+
+    Storages restored = new Storages();
+    NodeRecordInfo newer = nodeInfo(1, now, NodeStatus.SLEEP);
+    restored.nodeTable.save(newer);
+    assertThat(restored.snapshot().load()).isZero();
+    assertThat(restored.nodeTable.getNode(newer.getNode().getNodeId())).contains(newer);
+  }
+
+  @Test
+  void testIgnoresCorruptedSnapshot() throws IOException {
+    Storages saved = new Storages();
+    saved.nodeTable.save(nodeInfo(1, Functions.getTime(), NodeStatus.ACTIVE));
+    saved.snapshot().save();
+    Path path = directory.resolve("nodes.snapshot");
+    byte[] bytes = Files.readAllBytes(path);
+    bytes[bytes.length / 2] ^= 1;
+    Files.write(path, bytes);
+
+    assertThat(new Storages().snapshot().load()).isZero();
+  }
+
+  private static NodeRecordInfo nodeInfo(int port, long lastRetry, NodeStatus status) {
+    return new NodeRecordInfo(
+        TestUtil.generateUnverifiedNode(30303 + port).getNodeRecord(), lastRetry, status, 0);
+  }
+
+  private class Storages {
+    private final NodeTable nodeTable;
+    private final NodeBucketStorage buckets;
+
+    private Storages() {
+      Database database = Database.inMemoryDB();
+      NodeTableStorageFactoryImpl factory = new NodeTableStorageFactoryImpl();
+      nodeTable =
+          factory
+              .createTable(database, TEST_SERIALIZER, seq -> HOME_NODE, Collections::emptyList)
+              .get();
+      buckets = factory.createBucketStorage(database, TEST_SERIALIZER, HOME_NODE);
+    }
+
+    private NodeTableSnapshot snapshot() {
+      return new NodeTableSnapshot(
+          directory.resolve("nodes.snapshot"),
+          nodeTable,
+          buckets,
+          NODE_RECORD_FACTORY_NO_VERIFICATION,
+          mock(Scheduler.class));
+    }
+
+    private int bucketIndex(NodeRecordInfo node) {
+      return Functions.logDistance(HOME_NODE.getNodeId(), node.getNode().getNodeId());
+    }
+
+    private NodeBucket bucketOf(NodeRecordInfo node) {
+      return buckets.get(bucketIndex(node)).orElseThrow();
+    }
+  }
+}
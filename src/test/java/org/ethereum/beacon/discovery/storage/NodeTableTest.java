@@ -8,19 +8,31 @@ import static org.ethereum.beacon.discovery.TestUtil.NODE_RECORD_FACTORY_NO_VERI
 import static org.ethereum.beacon.discovery.TestUtil.TEST_SERIALIZER;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
 
+import com.google.common.util.concurrent.Uninterruptibles;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
 import java.util.function.Function;
 import org.apache.tuweni.bytes.Bytes;
 import org.apache.tuweni.units.bigints.UInt64;
+import org.ethereum.beacon.discovery.SimpleIdentitySchemaInterpreter;
 import org.ethereum.beacon.discovery.TestUtil;
+import org.ethereum.beacon.discovery.database.DataSource;
 import org.ethereum.beacon.discovery.database.Database;
+import org.ethereum.beacon.discovery.database.WriteBehindFlusher;
+import org.ethereum.beacon.discovery.format.SerializerFactory;
+import org.ethereum.beacon.discovery.scheduler.Scheduler;
 import org.ethereum.beacon.discovery.schema.EnrField;
+import org.ethereum.beacon.discovery.schema.IdentitySchema;
 import org.ethereum.beacon.discovery.schema.NodeRecord;
+import org.ethereum.beacon.discovery.schema.NodeRecordFactory;
 import org.ethereum.beacon.discovery.schema.NodeRecordInfo;
 import org.ethereum.beacon.discovery.schema.NodeStatus;
 import org.junit.jupiter.api.Test;
@@ -126,4 +138,69 @@ public class NodeTableTest {
     assertEquals(153, NodeTableImpl.getNodeIndex(nodeId9s));
     assertEquals(255, NodeTableImpl.getNodeIndex(nodeIdfs));
   }
+
+  @Test
+  public void testIndexUpdateWhileFlushing() throws Exception {
+    WriteBehindFlusher flusher =
+        new WriteBehindFlusher(mock(Scheduler.class), Duration.ofSeconds(1), Integer.MAX_VALUE);
+    CountDownLatch serializing = new CountDownLatch(1);
+    CountDownLatch updated = new CountDownLatch(1);
+    // Holds the flusher in the middle of index serialization until the index is updated again
+    SerializerFactory serializerFactory =
+        new SerializerFactory() {
+          @Override
+          public <T> Function<Bytes, T> getDeserializer(Class<? extends T> objectClass) {
+            return TEST_SERIALIZER.getDeserializer(objectClass);
+          }
+
+          @Override
+          public <T> Function<T, Bytes> getSerializer(Class<? extends T> objectClass) {
+            Function<T, Bytes> serializer = TEST_SERIALIZER.getSerializer(objectClass);
+            return value -> {
+              if (value instanceof NodeIndex) {
+                serializing.countDown();
+                Uninterruptibles.awaitUninterruptibly(updated);
+              }
+              return serializer.apply(value);
+            };
+          }
+        };
+    Database database = Database.inMemoryDB();
+    NodeTable nodeTable =
+        new NodeTableStorageFactoryImpl(flusher)
+            .createTable(database, serializerFactory, HOME_NODE_SUPPLIER, ArrayList::new)
+            .get();
+    DataSource<Bytes, Bytes> indexes =
+        database.createStorage(NodeTableStorageImpl.INDEXES_STORAGE_NAME);
+    // Both ids share the first byte, so they are in the same index
+    Bytes nodeId1 = saveNode(nodeTable, 1);
+    Bytes indexKey = Bytes.minimalBytes(NodeTableImpl.getNodeIndex(nodeId1));
+
+    CompletableFuture<Void> flushing = CompletableFuture.runAsync(flusher::flush);
+    serializing.await();
+    Bytes nodeId2 = saveNode(nodeTable, 2);
+    updated.countDown();
+    flushing.get();
+    assertEquals(0, flusher.getFailedFlushCount());
+    assertEquals(
+        List.of(nodeId1), NodeIndex.fromRlpBytes(indexes.get(indexKey).orElseThrow()).getEntries());
+
+    flusher.flush();
+    assertEquals(
+        List.of(nodeId1, nodeId2),
+        NodeIndex.fromRlpBytes(indexes.get(indexKey).orElseThrow()).getEntries());
+  }
+
+  private static Bytes saveNode(NodeTable nodeTable, int number) {
+    Bytes nodeId =
+        Bytes.concatenate(Bytes.of(1), Bytes.ofUnsignedInt(number), Bytes.wrap(new byte[27]));
+    nodeTable.save(
+        NodeRecordInfo.createDefault(
+            new NodeRecordFactory(new SimpleIdentitySchemaInterpreter())
+                .createFromValues(
+                    UInt64.ONE,
+                    new EnrField(EnrField.ID, IdentitySchema.V4),
+                    new EnrField(EnrField.PKEY_SECP256K1, nodeId))));
+    return nodeId;
+  }
 }
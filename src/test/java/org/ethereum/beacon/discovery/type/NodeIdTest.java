@@ -0,0 +1,55 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.ethereum.beacon.discovery.type;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import org.apache.tuweni.bytes.Bytes;
+import org.apache.tuweni.units.bigints.UInt256;
+import org.junit.jupiter.api.Test;
+
+public class NodeIdTest {
+
+  @Test
+  public void shouldMatchBytesArithmetic() {
+    Random rnd = new Random(1);
+    Bytes target = randomId(rnd);
+    NodeId targetId = NodeId.fromBytes(target);
+    for (int i = 0; i < 1000; i++) {
+      // Shorten common prefix gradually to hit every word
+      Bytes other = target.xor(UInt256.ONE.shiftLeft(i % 256).toBytes());
+      NodeId otherId = NodeId.fromBytes(other);
+      assertThat(otherId.toBytes()).isEqualTo(other);
+      assertThat(targetId.xor(otherId).toBytes()).isEqualTo(target.xor(other));
+      assertThat(targetId.logDistance(otherId)).isEqualTo(i % 256 + 1);
+      assertThat(targetId.logDistance(other)).isEqualTo(i % 256 + 1);
+    }
+    assertThat(targetId.logDistance(target)).isZero();
+  }
+
+  @Test
+  public void shouldOrderByXorDistance() {
+    Random rnd = new Random(2);
+    NodeId target = NodeId.fromBytes(randomId(rnd));
+    List<Bytes> ids = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      ids.add(randomId(rnd));
+    }
+    List<Bytes> expected = new ArrayList<>(ids);
+    expected.sort(Comparator.comparing(id -> UInt256.fromBytes(target.toBytes().xor(id))));
+    ids.sort(target::compareDistance);
+    assertThat(ids).isEqualTo(expected);
+  }
+
+  private static Bytes randomId(Random rnd) {
+    byte[] id = new byte[NodeId.SIZE];
+    rnd.nextBytes(id);
+    return Bytes.wrap(id);
+  }
+}
@@ -0,0 +1,71 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.ethereum.beacon.discovery.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.security.SecureRandom;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+import org.junit.jupiter.api.Test;
+
+public class RandomSourceTest {
+
+  @Test
+  void testEachThreadHasOwnGenerator() {
+    final SecureRandom generator = RandomSource.getThreadNonceRandom();
+    assertThat(RandomSource.getThreadNonceRandom()).isSameAs(generator);
+    final SecureRandom otherGenerator = onNewThread(RandomSource::getThreadNonceRandom);
+    assertThat(otherGenerator).isNotSameAs(generator);
+
+    // Generators are seeded independently
+    final byte[] bytes = new byte[32];
+    final byte[] otherBytes = onNewThread(() -> nextBytes(RandomSource.nonces(), 32));
+    RandomSource.nonces().nextBytes(bytes);
+    assertThat(otherBytes).isNotEqualTo(bytes);
+  }
+
+  @Test
+  void testNoncesAreWellFormed() {
+    final Random nonces = RandomSource.nonces();
+    final Set<Integer> byteValues = new HashSet<>();
+    for (byte b : nextBytes(nonces, 16384)) {
+      byteValues.add(b & 0xff);
+    }
+    assertThat(byteValues).hasSize(256);
+    assertThat(nextBytes(nonces, 12)).isNotEqualTo(new byte[12]);
+
+    final boolean[] seen = new boolean[10];
+    for (int i = 0; i < 1000; i++) {
+      final int value = nonces.nextInt(seen.length);
+      assertThat(value).isBetween(0, seen.length - 1);
+      seen[value] = true;
+    }
+    assertThat(seen).doesNotContain(false);
+
+    final Set<Boolean> booleans = new HashSet<>();
+    final Set<Long> longs = new HashSet<>();
+    for (int i = 0; i < 100; i++) {
+      booleans.add(nonces.nextBoolean());
+      longs.add(nonces.nextLong());
+    }
+    assertThat(booleans).containsExactlyInAnyOrder(true, false);
+    assertThat(longs).hasSize(100);
+    assertThat(longs.stream().anyMatch(value -> value < 0)).isTrue();
+  }
+
+  private static <T> T onNewThread(final Supplier<T> supplier) {
+    return CompletableFuture.supplyAsync(supplier, task -> new Thread(task).start()).join();
+  }
+
+  private static byte[] nextBytes(final Random random, final int size) {
+    final byte[] bytes = new byte[size];
+    random.nextBytes(bytes);
+    return bytes;
+  }
+}